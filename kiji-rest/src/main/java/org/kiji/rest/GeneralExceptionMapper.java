@@ -19,6 +19,9 @@
 
 package org.kiji.rest;
 
+import java.util.List;
+import java.util.Map;
+
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -56,6 +59,13 @@ public class GeneralExceptionMapper implements ExceptionMapper<Throwable> {
     if (thrownException instanceof WebApplicationException) {
       WebApplicationException webAppException = (WebApplicationException) thrownException;
       status = Status.fromStatusCode(webAppException.getResponse().getStatus());
+      // Keeps headers such as Retry-After.
+      for (Map.Entry<String, List<Object>> header
+          : webAppException.getResponse().getMetadata().entrySet()) {
+        for (Object value : header.getValue()) {
+          builder.header(header.getKey(), value);
+        }
+      }
     }
     if (status == null) {
       status = Status.INTERNAL_SERVER_ERROR;
@@ -21,6 +21,9 @@ package org.kiji.rest;
 
 import java.util.Collection;
 
+import org.kiji.rest.util.JsonDecoderCache;
+import org.kiji.rest.util.KijiTableReaderPool;
+import org.kiji.rest.util.SchemaIdCache;
 import org.kiji.schema.Kiji;
 import org.kiji.schema.KijiSchemaTable;
 import org.kiji.schema.KijiTable;
@@ -67,6 +70,33 @@ public interface KijiClient {
    */
   KijiSchemaTable getKijiSchemaTable(String instance);
 
+  /**
+   * Gets the pool of KijiTableReaders for a table. Readers borrowed from the pool must be returned
+   * to it; caller should not close the pool or the borrowed readers.
+   *
+   * @param instance in which this table resides
+   * @param table name of the table to read
+   * @return KijiTableReaderPool object
+   * @throws javax.ws.rs.WebApplicationException if there is an error.
+   */
+  KijiTableReaderPool getKijiTableReaderPool(String instance, String table);
+
+  /**
+   * Returns the cache of schema UIDs in front of the Kiji schema table for the given instance.
+   *
+   * @param instance is the instance for which the schema id cache should be retrieved.
+   * @return the schema id cache for the specified instance.
+   */
+  SchemaIdCache getSchemaIdCache(String instance);
+
+  /**
+   * Gets the cache of decoders for the JSON values of cells written to an instance.
+   *
+   * @param instance is the instance for which the decoder cache should be retrieved.
+   * @return the JSON decoder cache for the specified instance.
+   */
+  JsonDecoderCache getJsonDecoderCache(String instance);
+
   /**
    * Gets a FreshKijiTableReader. Caller should not close the fresh table reader.
    *
@@ -28,7 +28,9 @@ import com.google.common.collect.Sets;
 import com.yammer.dropwizard.config.Configuration;
 import org.hibernate.validator.constraints.NotEmpty;
 
+import org.kiji.rest.config.CachesConfiguration;
 import org.kiji.rest.config.FresheningConfiguration;
+import org.kiji.rest.config.RowsConfiguration;
 
 /**
  * The Java object which is deserialized from the YAML configuration file.
@@ -44,10 +46,18 @@ public class KijiRESTConfiguration extends Configuration {
   @JsonProperty("freshening")
   private FresheningConfiguration mFresheningConfiguration = new FresheningConfiguration();
 
+  /** Subconfiguration for reading and writing rows. */
+  @JsonProperty("rows")
+  private RowsConfiguration mRowsConfiguration = new RowsConfiguration();
+
   /** Set cache timeout in minutes. */
   @JsonProperty("cacheTimeout")
   private long mCacheTimeout = 10;
 
+  /** Subconfiguration of the caches of instances, tables and readers. */
+  @JsonProperty("caches")
+  private CachesConfiguration mCachesConfiguration = new CachesConfiguration();
+
   /** Subconfiguration controlling the visibility of instances. */
   @JsonProperty("instances")
   private Set<String> mInstances = Sets.newHashSet();
@@ -78,11 +88,21 @@ public class KijiRESTConfiguration extends Configuration {
     return mFresheningConfiguration;
   }
 
+  /** @return The rows configuration. */
+  public RowsConfiguration getRowsConfiguration() {
+    return mRowsConfiguration;
+  }
+
   /** @return The caching timeout. */
   public final long getCacheTimeout() {
     return mCacheTimeout;
   }
 
+  /** @return The configuration of the caches. */
+  public CachesConfiguration getCachesConfiguration() {
+    return mCachesConfiguration;
+  }
+
   /** @return The set of visible instances. */
   public Set<String> getVisibleInstances() {
     return mInstances;
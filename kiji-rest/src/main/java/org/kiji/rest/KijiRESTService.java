@@ -35,6 +35,7 @@ import org.slf4j.LoggerFactory;
 import org.kiji.delegation.Lookups;
 import org.kiji.rest.health.KijiClientHealthCheck;
 import org.kiji.rest.plugins.KijiRestPlugin;
+import org.kiji.rest.resources.CachesTask;
 import org.kiji.rest.resources.CloseTask;
 import org.kiji.rest.resources.RefreshInstancesTask;
 import org.kiji.rest.resources.ShutdownTask;
@@ -103,6 +104,8 @@ public class KijiRESTService extends Service<KijiRESTConfiguration> {
     environment.addTask(new RefreshInstancesTask(managedKijiClient));
     // Load admin task to manually close instances and tables.
     environment.addTask(new CloseTask(managedKijiClient));
+    // Load admin task to dump and configure the caches of instances and tables.
+    environment.addTask(new CachesTask(managedKijiClient));
     // Load admin task to manually shutdown the system.
     environment.addTask(new ShutdownTask(managedKijiClient, configuration));
 
@@ -24,8 +24,8 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
@@ -33,14 +33,14 @@ import javax.ws.rs.core.Response;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Splitter;
-import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheBuilderSpec;
 import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.yammer.dropwizard.lifecycle.Managed;
 import com.yammer.metrics.core.HealthCheck;
@@ -53,7 +53,12 @@ import org.apache.curator.framework.recipes.cache.PathChildrenCacheListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.kiji.rest.config.CachesConfiguration;
+import org.kiji.rest.util.InstrumentedCache;
+import org.kiji.rest.util.JsonDecoderCache;
 import org.kiji.rest.util.KijiInstanceCache;
+import org.kiji.rest.util.KijiTableReaderPool;
+import org.kiji.rest.util.SchemaIdCache;
 import org.kiji.schema.Kiji;
 import org.kiji.schema.KijiNotInstalledException;
 import org.kiji.schema.KijiSchemaTable;
@@ -72,8 +77,14 @@ public class ManagedKijiClient implements KijiClient, Managed {
 
   public static final long DEFAULT_TIMEOUT = 10;
 
+  /** Name of the cache of instances. */
+  public static final String INSTANCES = "instances";
+
   /** Holds instances currently being served. */
-  private final LoadingCache<String, KijiInstanceCache> mInstanceCaches;
+  private final InstrumentedCache<String, KijiInstanceCache> mInstanceCaches;
+
+  /** Specs of the caches of newly served instances, by cache name. */
+  private final ConcurrentMap<String, String> mInstanceCacheSpecs = Maps.newConcurrentMap();
 
   /** CuratorFramework object which is backing <code>mZKInstances</code>. */
   private final CuratorFramework mZKFramework;
@@ -114,7 +125,8 @@ public class ManagedKijiClient implements KijiClient, Managed {
   public ManagedKijiClient(final KijiRESTConfiguration configuration) throws IOException {
     this(KijiURI.newBuilder(configuration.getClusterURI()).build(),
          configuration.getCacheTimeout(),
-         configuration.getVisibleInstances());
+         configuration.getVisibleInstances(),
+         configuration.getCachesConfiguration());
   }
 
   /**
@@ -143,28 +155,40 @@ public class ManagedKijiClient implements KijiClient, Managed {
                            final long cacheTimeout,
                            final Set<String> visibleInstances)
       throws IOException {
+    this(clusterURI, cacheTimeout, visibleInstances, new CachesConfiguration());
+  }
+
+  /**
+   * Constructs a ManagedKijiClient.
+   *
+   * @param clusterURI of HBase cluster to serve.
+   * @param cacheTimeout time to hold open connections to instances before clearing them from the
+   *        cache, unless the spec of the instance cache is configured.
+   * @param visibleInstances is the set of instances that are specified as visible in the
+   *        configuration.yml file. If this set is empty, all instances are considered to be
+   *        visible.
+   * @param caches configures the caches of instances, tables and readers.
+   * @throws IOException if error while creating connections to the cluster.
+   */
+  public ManagedKijiClient(final KijiURI clusterURI,
+                           final long cacheTimeout,
+                           final Set<String> visibleInstances,
+                           final CachesConfiguration caches)
+      throws IOException {
     mVisibleKijiInstances = visibleInstances;
+    mInstanceCacheSpecs.putAll(caches.getInstanceCacheSpecs());
     mZKFramework = ZooKeeperUtils.getZooKeeperClient(clusterURI);
     mZKInstances =
         new PathChildrenCache(
             mZKFramework,
             ZooKeeperUtils.INSTANCES_ZOOKEEPER_PATH.getPath(),
             true);
-    mInstanceCaches = CacheBuilder
-        .newBuilder()
-        .expireAfterAccess(cacheTimeout, TimeUnit.MINUTES)
-        .removalListener(new RemovalListener<String, KijiInstanceCache>() {
-          @Override
-          public void onRemoval(RemovalNotification<String, KijiInstanceCache> notification) {
-            try {
-              notification.getValue().stop(); // strong cache; should not be null
-            } catch (IOException e) {
-              LOG.warn("Unable to stop KijiInstanceCache {} for instance {}.",
-                  notification.getValue(), notification.getKey());
-            }
-          }
-        })
-        .build(new CacheLoader<String, KijiInstanceCache>() {
+    final String instancesSpec = (null != caches.getInstances())
+        ? caches.getInstances()
+        : "expireAfterAccess=" + cacheTimeout + "m";
+    mInstanceCaches = new InstrumentedCache<String, KijiInstanceCache>(
+        ManagedKijiClient.class, INSTANCES, null, instancesSpec,
+        new CacheLoader<String, KijiInstanceCache>() {
           @Override
           public KijiInstanceCache load(String instanceName) throws Exception {
             final KijiURI instanceURI =
@@ -175,7 +199,18 @@ public class ManagedKijiClient implements KijiClient, Managed {
               throw new KijiNotInstalledException(
                   "Kiji instance not found in known instances set.", instanceURI);
             }
-            return new KijiInstanceCache(instanceURI);
+            return new KijiInstanceCache(instanceURI, mInstanceCacheSpecs);
+          }
+        },
+        new RemovalListener<String, KijiInstanceCache>() {
+          @Override
+          public void onRemoval(RemovalNotification<String, KijiInstanceCache> notification) {
+            try {
+              notification.getValue().stop(); // strong cache; should not be null
+            } catch (IOException e) {
+              LOG.warn("Unable to stop KijiInstanceCache {} for instance {}.",
+                  notification.getValue(), notification.getKey());
+            }
           }
         });
 
@@ -205,7 +240,7 @@ public class ManagedKijiClient implements KijiClient, Managed {
     ResourceUtils.closeOrLog(mZKFramework);
 
     mInstanceCaches.invalidateAll();
-    mInstanceCaches.cleanUp();
+    mInstanceCaches.removeMetrics();
   }
 
   /**
@@ -262,6 +297,24 @@ public class ManagedKijiClient implements KijiClient, Managed {
     }
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public SchemaIdCache getSchemaIdCache(String instance) {
+    final State state = mState.get();
+    Preconditions.checkState(state == State.STARTED,
+        "Can not get a schema id cache while in state %s.", state);
+    return getInstanceCache(instance).getSchemaIdCache();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public JsonDecoderCache getJsonDecoderCache(String instance) {
+    final State state = mState.get();
+    Preconditions.checkState(state == State.STARTED,
+        "Can not get a JSON decoder cache while in state %s.", state);
+    return getInstanceCache(instance).getJsonDecoderCache();
+  }
+
   /** {@inheritDoc} */
   @Override
   public Collection<String> getInstances() {
@@ -289,6 +342,24 @@ public class ManagedKijiClient implements KijiClient, Managed {
     }
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public KijiTableReaderPool getKijiTableReaderPool(String instance, String table) {
+    final State state = mState.get();
+    Preconditions.checkState(state == State.STARTED,
+        "Can not get Kiji table reader pool while in state %s.", state);
+    try {
+      return getInstanceCache(instance).getKijiTableReaderPool(table);
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      throw new WebApplicationException(cause, getExceptionStatus(cause));
+    } catch (WebApplicationException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new WebApplicationException(e.getCause(), Response.Status.INTERNAL_SERVER_ERROR);
+    }
+  }
+
   /** {@inheritDoc} */
   @Override
   public FreshKijiTableReader getFreshKijiTableReader(String instance, String table) {
@@ -350,6 +421,37 @@ public class ManagedKijiClient implements KijiClient, Managed {
     mKijiInstances = instancesBuilder.build();
   }
 
+  /**
+   * Returns the cache of instances.
+   *
+   * @return the cache of instances.
+   */
+  public InstrumentedCache<String, KijiInstanceCache> getInstanceCaches() {
+    return mInstanceCaches;
+  }
+
+  /**
+   * Changes the spec of a cache: the cache of instances, or the caches of tables, fresh readers
+   * or reader pools of every instance, including those served later.
+   *
+   * @param cache name, {@link #INSTANCES} or a cache of {@link KijiInstanceCache}.
+   * @param spec of the cache.
+   * @throws IllegalArgumentException if the cache is unknown or the spec is invalid.
+   */
+  public synchronized void setCacheSpec(String cache, String spec) {
+    // Fails on invalid specs before any cache is changed.
+    CacheBuilderSpec.parse(spec);
+    if (INSTANCES.equals(cache)) {
+      mInstanceCaches.setSpec(spec);
+      return;
+    }
+    Preconditions.checkArgument(mInstanceCacheSpecs.containsKey(cache), "Unknown cache: %s", cache);
+    mInstanceCacheSpecs.put(cache, spec);
+    for (KijiInstanceCache instanceCache : mInstanceCaches.asMap().values()) {
+      instanceCache.getCaches().get(cache).setSpec(spec);
+    }
+  }
+
   /**
    * Check whether this KijiClient is healthy.
    *
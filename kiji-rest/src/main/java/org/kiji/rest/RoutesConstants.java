@@ -90,4 +90,20 @@ public final class RoutesConstants {
    * {@link org.kiji.rest.resources.RowsResource#getRows}
    */
   public static final String ROWS_PATH = TABLE_PATH + "/rows";
+
+  /**
+   * POSTs a list of entity ids whose rows are fetched with a single bulk get.
+   * <li>Path: /v1/instances/{instance}/tables/{table}/rows/batch-get
+   * <li>Handled by:
+   * {@link org.kiji.rest.resources.RowsResource#batchGetRows}
+   */
+  public static final String BATCH_GET_ENDPOINT = "/batch-get";
+
+  /**
+   * POSTs a list of entity ids whose existence is checked with a single bulk get.
+   * <li>Path: /v1/instances/{instance}/tables/{table}/rows/exists
+   * <li>Handled by:
+   * {@link org.kiji.rest.resources.RowsResource#checkRowsExist}
+   */
+  public static final String EXISTS_ENDPOINT = "/exists";
 }
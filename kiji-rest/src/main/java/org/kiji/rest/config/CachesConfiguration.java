@@ -0,0 +1,96 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest.config;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableMap;
+import com.yammer.dropwizard.config.Configuration;
+
+import org.kiji.rest.util.KijiInstanceCache;
+
+/**
+ * The Java object which is deserialized from the YAML configuration file under 'caches'.
+ *
+ * Each cache is configured by a Guava cache spec, such as
+ * "maximumSize=100,expireAfterAccess=10m,refreshAfterWrite=1h".
+ */
+public class CachesConfiguration extends Configuration {
+
+  /** Spec of the cache of instances, or null to expire instances after cacheTimeout. */
+  @JsonProperty("instances")
+  private String mInstances = null;
+
+  /** Spec of the cache of open tables of each instance. */
+  @JsonProperty("tables")
+  private String mTables = KijiInstanceCache.DEFAULT_SPEC;
+
+  /** Spec of the cache of fresh table readers of each instance. */
+  @JsonProperty("fresh-readers")
+  private String mFreshReaders = KijiInstanceCache.DEFAULT_SPEC;
+
+  /** Spec of the cache of table reader pools of each instance. */
+  @JsonProperty("reader-pools")
+  private String mReaderPools = KijiInstanceCache.DEFAULT_SPEC;
+
+  /**
+   * Get the spec of the cache of instances.
+   * @return Spec of the instance cache, or null if instances expire after cacheTimeout.
+   */
+  public String getInstances() {
+    return mInstances;
+  }
+
+  /**
+   * Get the spec of the cache of open tables of each instance.
+   * @return Spec of the table caches.
+   */
+  public String getTables() {
+    return mTables;
+  }
+
+  /**
+   * Get the spec of the cache of fresh table readers of each instance.
+   * @return Spec of the fresh reader caches.
+   */
+  public String getFreshReaders() {
+    return mFreshReaders;
+  }
+
+  /**
+   * Get the spec of the cache of table reader pools of each instance.
+   * @return Spec of the reader pool caches.
+   */
+  public String getReaderPools() {
+    return mReaderPools;
+  }
+
+  /**
+   * Get the specs of the caches of each instance.
+   * @return Specs of the caches of each instance, by cache name.
+   */
+  public Map<String, String> getInstanceCacheSpecs() {
+    return ImmutableMap.of(
+        KijiInstanceCache.TABLES, mTables,
+        KijiInstanceCache.FRESH_READERS, mFreshReaders,
+        KijiInstanceCache.READER_POOLS, mReaderPools);
+  }
+}
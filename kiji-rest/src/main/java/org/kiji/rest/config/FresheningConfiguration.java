@@ -35,6 +35,10 @@ public class FresheningConfiguration extends Configuration {
   @JsonProperty("timeout")
   private long mTimeout = 100;
 
+  /** Maximum number of requests waiting for freshening at once. 0 for no limit. */
+  @JsonProperty("max-waiting")
+  private int mMaxWaiting = 0;
+
   /**
    * Constructor for tests.
    * @param freshen Whether to freshen columns by default.
@@ -66,4 +70,14 @@ public class FresheningConfiguration extends Configuration {
   public long getTimeout() {
     return mTimeout;
   }
+
+  /**
+   * Get the maximum number of requests waiting for freshening at once. Further requests trigger
+   * freshening but return the current, possibly stale, data without waiting, with the
+   * X-Kiji-Freshening-Skipped response header.
+   * @return Maximum number of waiting requests, or 0 for no limit.
+   */
+  public int getMaxWaiting() {
+    return mMaxWaiting;
+  }
 }
@@ -0,0 +1,370 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.yammer.dropwizard.config.Configuration;
+
+/**
+ * The Java object which is deserialized from the YAML configuration file under 'rows'.
+ */
+public class RowsConfiguration extends Configuration {
+
+  /** Number of rows streamed to the client between flushes. 0 disables row based flushing. */
+  @JsonProperty("flush-rows")
+  private int mFlushRows = 1;
+
+  /** Number of bytes streamed to the client between flushes. 0 disables byte based flushing. */
+  @JsonProperty("flush-bytes")
+  private long mFlushBytes = 0;
+
+  /** Size in bytes of the write buffer used by POSTs. 0 uses the default of the HBase client. */
+  @JsonProperty("write-buffer-size")
+  private long mWriteBufferSize = 0;
+
+  /** Number of POST-ed rows between flushes of the write buffer. 0 flushes once per request. */
+  @JsonProperty("write-flush-rows")
+  private int mWriteFlushRows = 0;
+
+  /** Maximum number of concurrent sub-scanners a range scan may request with parallelism. */
+  @JsonProperty("max-scan-parallelism")
+  private int mMaxScanParallelism = 8;
+
+  /** Number of threads shared by the sub-scanners of all parallel range scans. */
+  @JsonProperty("scan-threads")
+  private int mScanThreads = 16;
+
+  /** Number of rows each sub-scanner of a parallel range scan may read ahead. */
+  @JsonProperty("scan-buffer-rows")
+  private int mScanBufferRows = 1000;
+
+  /** Number of rows a serial scan may read ahead on a scan thread. 0 scans on the request. */
+  @JsonProperty("scan-pipeline-rows")
+  private int mScanPipelineRows = 0;
+
+  /** Rows fetched per scanner RPC when the request does not set scanner_caching. 0 for HBase's. */
+  @JsonProperty("scanner-caching")
+  private int mScannerCaching = 0;
+
+  /** Upper bound of the scanner_caching a request may set. */
+  @JsonProperty("max-scanner-caching")
+  private int mMaxScannerCaching = 10000;
+
+  /** Cells per row fetched per scanner RPC when the request does not set scanner_batch. */
+  @JsonProperty("scanner-batch")
+  private int mScannerBatch = 0;
+
+  /** Upper bound of the scanner_batch a request may set. */
+  @JsonProperty("max-scanner-batch")
+  private int mMaxScannerBatch = 10000;
+
+  /** Maximum size in bytes of the cached responses of point GETs. 0 disables the cache. */
+  @JsonProperty("row-cache-bytes")
+  private long mRowCacheBytes = 0;
+
+  /** Time in milliseconds after which a cached response expires. */
+  @JsonProperty("row-cache-ttl-ms")
+  private long mRowCacheTtlMillis = 1000;
+
+  /** Maximum number of salt buckets a wildcard scan with an unknown hash may fan out to. */
+  @JsonProperty("max-salt-buckets")
+  private int mMaxSaltBuckets = 256;
+
+  /** Maximum number of concurrent point GETs. 0 for no limit. */
+  @JsonProperty("max-concurrent-gets")
+  private int mMaxConcurrentGets = 0;
+
+  /** Maximum number of concurrent range and wildcard scans. 0 for no limit. */
+  @JsonProperty("max-concurrent-scans")
+  private int mMaxConcurrentScans = 0;
+
+  /** Maximum number of concurrent writes and deletes. 0 for no limit. */
+  @JsonProperty("max-concurrent-writes")
+  private int mMaxConcurrentWrites = 0;
+
+  /** Maximum number of concurrent requests per instance. 0 for no limit. */
+  @JsonProperty("max-concurrent-per-instance")
+  private int mMaxConcurrentPerInstance = 0;
+
+  /** Maximum number of concurrent requests per table. 0 for no limit. */
+  @JsonProperty("max-concurrent-per-table")
+  private int mMaxConcurrentPerTable = 0;
+
+  /** Maximum number of requests waiting to be admitted. 0 rejects requests over a limit. */
+  @JsonProperty("admission-queue-size")
+  private int mAdmissionQueueSize = 0;
+
+  /** Maximum time in milliseconds a request waits to be admitted. */
+  @JsonProperty("admission-wait-ms")
+  private long mAdmissionWaitMillis = 1000;
+
+  /** Seconds after which rejected clients are told to retry. */
+  @JsonProperty("retry-after-seconds")
+  private int mRetryAfterSeconds = 1;
+
+  /** Scans reading more rows than this, or unlimited, are bulk requests unless set otherwise. */
+  @JsonProperty("bulk-scan-rows")
+  private int mBulkScanRows = 10000;
+
+  /** Number of threads running the sub-scanners of bulk scans. 0 shares the scan threads. */
+  @JsonProperty("bulk-scan-threads")
+  private int mBulkScanThreads = 0;
+
+  /** Number of rows bulk requests process between pauses. */
+  @JsonProperty("bulk-chunk-rows")
+  private int mBulkChunkRows = 1000;
+
+  /** Maximum time in ms a bulk request pauses per chunk for interactive requests. 0 for none. */
+  @JsonProperty("bulk-yield-ms")
+  private long mBulkYieldMillis = 0;
+
+  /**
+   * Constructor for tests.
+   *
+   * @param flushRows Number of rows between flushes of the response stream.
+   * @param flushBytes Number of bytes between flushes of the response stream.
+   */
+  public RowsConfiguration(int flushRows, long flushBytes) {
+    mFlushRows = flushRows;
+    mFlushBytes = flushBytes;
+  }
+
+  /**
+   * Default constructor.
+   */
+  public RowsConfiguration() {
+  }
+
+  /**
+   * Get the number of rows to stream between flushes of the response.
+   * @return Number of rows between flushes, or 0 if rows do not trigger a flush.
+   */
+  public int getFlushRows() {
+    return mFlushRows;
+  }
+
+  /**
+   * Get the number of bytes to stream between flushes of the response.
+   * @return Number of bytes between flushes, or 0 if bytes do not trigger a flush.
+   */
+  public long getFlushBytes() {
+    return mFlushBytes;
+  }
+
+  /**
+   * Get the size of the write buffer used to write POST-ed rows.
+   * @return Size of the write buffer in bytes, or 0 to use the default size.
+   */
+  public long getWriteBufferSize() {
+    return mWriteBufferSize;
+  }
+
+  /**
+   * Get the number of POST-ed rows to write between flushes of the write buffer.
+   * @return Number of rows between flushes, or 0 if the buffer is only flushed once per request.
+   */
+  public int getWriteFlushRows() {
+    return mWriteFlushRows;
+  }
+
+  /**
+   * Get the maximum parallelism of a range scan.
+   * @return Maximum number of concurrent sub-scanners of a range scan.
+   */
+  public int getMaxScanParallelism() {
+    return mMaxScanParallelism;
+  }
+
+  /**
+   * Get the number of threads running the sub-scanners of parallel range scans.
+   * @return Number of threads shared by all parallel range scans.
+   */
+  public int getScanThreads() {
+    return mScanThreads;
+  }
+
+  /**
+   * Get the number of rows each sub-scanner of a parallel range scan may read ahead.
+   * @return Number of rows buffered per sub-scanner.
+   */
+  public int getScanBufferRows() {
+    return mScanBufferRows;
+  }
+
+  /**
+   * Get the default number of rows fetched per scanner RPC.
+   * @return Default scanner caching, or 0 to use the HBase default.
+   */
+  public int getScannerCaching() {
+    return mScannerCaching;
+  }
+
+  /**
+   * Get the maximum number of rows a request may fetch per scanner RPC.
+   * @return Upper bound of the scanner caching.
+   */
+  public int getMaxScannerCaching() {
+    return mMaxScannerCaching;
+  }
+
+  /**
+   * Get the default number of cells per row fetched per scanner RPC.
+   * @return Default scanner batch, or 0 to fetch whole rows.
+   */
+  public int getScannerBatch() {
+    return mScannerBatch;
+  }
+
+  /**
+   * Get the maximum number of cells per row a request may fetch per scanner RPC.
+   * @return Upper bound of the scanner batch.
+   */
+  public int getMaxScannerBatch() {
+    return mMaxScannerBatch;
+  }
+
+  /**
+   * Get the maximum size of the cached responses of point GETs.
+   * @return Maximum size of the cache in bytes, or 0 if responses are not cached.
+   */
+  public long getRowCacheBytes() {
+    return mRowCacheBytes;
+  }
+
+  /**
+   * Get the time after which a cached response expires.
+   * @return Time to live of cached responses in milliseconds.
+   */
+  public long getRowCacheTtlMillis() {
+    return mRowCacheTtlMillis;
+  }
+
+  /**
+   * Get the number of rows a serial scan reads ahead while the previous rows are streamed.
+   * @return Depth of the scan pipeline, or 0 if rows are scanned on the request thread.
+   */
+  public int getScanPipelineRows() {
+    return mScanPipelineRows;
+  }
+
+  /**
+   * Get the maximum number of salt buckets a wildcard scan may fan out to.
+   * @return Maximum number of bounded scans of a wildcard scan whose hash prefix is unknown.
+   */
+  public int getMaxSaltBuckets() {
+    return mMaxSaltBuckets;
+  }
+
+  /**
+   * Get the maximum number of point GETs running concurrently.
+   * @return Maximum number of concurrent point GETs, or 0 if they are not limited.
+   */
+  public int getMaxConcurrentGets() {
+    return mMaxConcurrentGets;
+  }
+
+  /**
+   * Get the maximum number of range and wildcard scans running concurrently.
+   * @return Maximum number of concurrent scans, or 0 if they are not limited.
+   */
+  public int getMaxConcurrentScans() {
+    return mMaxConcurrentScans;
+  }
+
+  /**
+   * Get the maximum number of writes and deletes running concurrently.
+   * @return Maximum number of concurrent writes, or 0 if they are not limited.
+   */
+  public int getMaxConcurrentWrites() {
+    return mMaxConcurrentWrites;
+  }
+
+  /**
+   * Get the maximum number of requests running concurrently on an instance.
+   * @return Maximum number of concurrent requests per instance, or 0 if they are not limited.
+   */
+  public int getMaxConcurrentPerInstance() {
+    return mMaxConcurrentPerInstance;
+  }
+
+  /**
+   * Get the maximum number of requests running concurrently on a table.
+   * @return Maximum number of concurrent requests per table, or 0 if they are not limited.
+   */
+  public int getMaxConcurrentPerTable() {
+    return mMaxConcurrentPerTable;
+  }
+
+  /**
+   * Get the maximum number of requests waiting to be admitted.
+   * @return Size of the admission queue, or 0 if requests over a limit are rejected at once.
+   */
+  public int getAdmissionQueueSize() {
+    return mAdmissionQueueSize;
+  }
+
+  /**
+   * Get the maximum time a request waits to be admitted.
+   * @return Maximum admission wait in milliseconds.
+   */
+  public long getAdmissionWaitMillis() {
+    return mAdmissionWaitMillis;
+  }
+
+  /**
+   * Get the delay after which rejected clients are told to retry.
+   * @return Value of the Retry-After header of rejected requests, in seconds.
+   */
+  public int getRetryAfterSeconds() {
+    return mRetryAfterSeconds;
+  }
+
+  /**
+   * Get the number of rows above which a scan is a bulk request.
+   * @return Limit of the largest scans which are interactive requests by default.
+   */
+  public int getBulkScanRows() {
+    return mBulkScanRows;
+  }
+
+  /**
+   * Get the number of threads running the sub-scanners of bulk scans.
+   * @return Number of threads shared by bulk scans, or 0 if they share the scan threads.
+   */
+  public int getBulkScanThreads() {
+    return mBulkScanThreads;
+  }
+
+  /**
+   * Get the number of rows bulk requests process between pauses for interactive requests.
+   * @return Number of rows per chunk of bulk requests.
+   */
+  public int getBulkChunkRows() {
+    return mBulkChunkRows;
+  }
+
+  /**
+   * Get the maximum time a bulk request pauses per chunk while interactive requests run.
+   * @return Maximum pause in milliseconds, or 0 if bulk requests do not pause.
+   */
+  public long getBulkYieldMillis() {
+    return mBulkYieldMillis;
+  }
+}
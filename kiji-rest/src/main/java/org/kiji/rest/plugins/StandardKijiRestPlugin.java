@@ -73,7 +73,8 @@ public class StandardKijiRestPlugin implements KijiRestPlugin {
     environment.addResource(new TablesResource(kijiClient));
     environment.addResource(new RowsResource(kijiClient,
         environment.getObjectMapperFactory().build(),
-        configuration.getFresheningConfiguration()));
+        configuration.getFresheningConfiguration(),
+        configuration.getRowsConfiguration()));
   }
 
   /**
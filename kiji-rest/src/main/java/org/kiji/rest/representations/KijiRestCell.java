@@ -21,6 +21,7 @@ package org.kiji.rest.representations;
 
 import java.io.IOException;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
@@ -92,6 +93,16 @@ public class KijiRestCell {
     return mValue;
   }
 
+  /**
+   * Returns the underlying cell's writer schema, as a UID or a JSON string.
+   *
+   * @return the underlying cell's writer schema option.
+   */
+  @JsonIgnore
+  public SchemaOption getWriterSchemaOption() {
+    return mWriterSchema;
+  }
+
   /**
    * Returns the underlying cell's writer schema.
    *
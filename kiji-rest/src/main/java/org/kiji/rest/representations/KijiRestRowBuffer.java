@@ -0,0 +1,309 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest.representations;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import org.apache.avro.Schema;
+
+/**
+ * A flat, reusable buffer of the cells of a row, serialized to exactly the same JSON as the
+ * {@link KijiRestRow} holding the same cells. Streaming rows through a single buffer avoids
+ * allocating maps, lists and cell objects for every cell of every row.
+ *
+ * <p>Cells are stored in parallel arrays which grow as needed and are kept across rows. They are
+ * expected to be added sorted by family and qualifier, as the columns of a request plan are, and
+ * are only sorted when serialized otherwise. The writer schema of each cell is held as a UID,
+ * along with the reader schema its value was decoded with, if any.</p>
+ *
+ * <p>A buffer must not be shared between threads.</p>
+ */
+public final class KijiRestRowBuffer implements JsonSerializable {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private KijiRestEntityId mEntityId = null;
+  private int mSize = 0;
+  private String[] mFamilies = new String[INITIAL_CAPACITY];
+  private String[] mQualifiers = new String[INITIAL_CAPACITY];
+  private long[] mTimestamps = new long[INITIAL_CAPACITY];
+  private Object[] mValues = new Object[INITIAL_CAPACITY];
+  private long[] mSchemaIds = new long[INITIAL_CAPACITY];
+  private Schema[] mValueSchemas = new Schema[INITIAL_CAPACITY];
+
+  /** Orders cell indexes by family then qualifier, as KijiRestRow orders its cells. */
+  private final Comparator<Integer> mCellOrder = new Comparator<Integer>() {
+    @Override
+    public int compare(Integer left, Integer right) {
+      return compareCells(left, right);
+    }
+  };
+
+  /**
+   * Empties the buffer to hold a new row.
+   *
+   * @param entityId of the new row.
+   */
+  public void reset(KijiRestEntityId entityId) {
+    mEntityId = entityId;
+    // Release the values of the previous row.
+    Arrays.fill(mValues, 0, mSize, null);
+    Arrays.fill(mValueSchemas, 0, mSize, null);
+    mSize = 0;
+  }
+
+  /**
+   * Adds a cell to the row.
+   *
+   * @param family of the cell.
+   * @param qualifier of the cell.
+   * @param timestamp of the cell.
+   * @param value of the cell.
+   * @param schemaId UID of the writer schema of the cell, -1 if the cell could not be read.
+   */
+  public void addCell(String family, String qualifier, long timestamp, Object value,
+      long schemaId) {
+    addCell(family, qualifier, timestamp, value, schemaId, null);
+  }
+
+  /**
+   * Adds a cell decoded with a reader schema to the row.
+   *
+   * @param family of the cell.
+   * @param qualifier of the cell.
+   * @param timestamp of the cell.
+   * @param value of the cell.
+   * @param schemaId UID of the writer schema of the cell, -1 if the cell could not be read.
+   * @param valueSchema the value was decoded with, or null if it is the writer schema.
+   */
+  public void addCell(String family, String qualifier, long timestamp, Object value,
+      long schemaId, Schema valueSchema) {
+    if (mSize == mFamilies.length) {
+      final int capacity = mSize * 2;
+      mFamilies = Arrays.copyOf(mFamilies, capacity);
+      mQualifiers = Arrays.copyOf(mQualifiers, capacity);
+      mTimestamps = Arrays.copyOf(mTimestamps, capacity);
+      mValues = Arrays.copyOf(mValues, capacity);
+      mSchemaIds = Arrays.copyOf(mSchemaIds, capacity);
+      mValueSchemas = Arrays.copyOf(mValueSchemas, capacity);
+    }
+    mFamilies[mSize] = family;
+    mQualifiers[mSize] = qualifier;
+    mTimestamps[mSize] = timestamp;
+    mValues[mSize] = value;
+    mSchemaIds[mSize] = schemaId;
+    mValueSchemas[mSize] = valueSchema;
+    mSize++;
+  }
+
+  /**
+   * Returns the entity id of the row.
+   *
+   * @return the entity id of the row.
+   */
+  public KijiRestEntityId getEntityId() {
+    return mEntityId;
+  }
+
+  /**
+   * Returns the number of cells in the row.
+   *
+   * @return the number of cells in the row.
+   */
+  public int size() {
+    return mSize;
+  }
+
+  /**
+   * Returns the family of a cell.
+   *
+   * @param index of the cell, in the order cells were added.
+   * @return the family of the cell.
+   */
+  public String getFamily(int index) {
+    return mFamilies[index];
+  }
+
+  /**
+   * Returns the qualifier of a cell.
+   *
+   * @param index of the cell, in the order cells were added.
+   * @return the qualifier of the cell.
+   */
+  public String getQualifier(int index) {
+    return mQualifiers[index];
+  }
+
+  /**
+   * Returns the timestamp of a cell.
+   *
+   * @param index of the cell, in the order cells were added.
+   * @return the timestamp of the cell.
+   */
+  public long getTimestamp(int index) {
+    return mTimestamps[index];
+  }
+
+  /**
+   * Returns the value of a cell.
+   *
+   * @param index of the cell, in the order cells were added.
+   * @return the value of the cell.
+   */
+  public Object getValue(int index) {
+    return mValues[index];
+  }
+
+  /**
+   * Returns the UID of the writer schema of a cell.
+   *
+   * @param index of the cell, in the order cells were added.
+   * @return the UID of the writer schema of the cell, -1 if the cell could not be read.
+   */
+  public long getSchemaId(int index) {
+    return mSchemaIds[index];
+  }
+
+  /**
+   * Returns the schema the value of a cell was decoded with.
+   *
+   * @param index of the cell, in the order cells were added.
+   * @return the reader schema of the cell, or null if it is the writer schema of the cell.
+   */
+  public Schema getValueSchema(int index) {
+    return mValueSchemas[index];
+  }
+
+  /**
+   * Copies the row into a new KijiRestRow.
+   *
+   * @return a KijiRestRow holding the cells of this buffer.
+   */
+  public KijiRestRow toKijiRestRow() {
+    final KijiRestRow row = new KijiRestRow(mEntityId);
+    for (int i = 0; i < mSize; i++) {
+      row.addCell(mFamilies[i], mQualifiers[i], mTimestamps[i], mValues[i],
+          new SchemaOption(mSchemaIds[i]));
+    }
+    return row;
+  }
+
+  /**
+   * Compares two cells by family then qualifier.
+   *
+   * @param left index of a cell.
+   * @param right index of a cell.
+   * @return the comparison of the columns of the cells.
+   */
+  private int compareCells(int left, int right) {
+    final int familyOrder = mFamilies[left].compareTo(mFamilies[right]);
+    return (familyOrder != 0) ? familyOrder : mQualifiers[left].compareTo(mQualifiers[right]);
+  }
+
+  /**
+   * Returns the indexes of the cells sorted by family and qualifier, cells of the same column
+   * remaining in the order they were added.
+   *
+   * @return the sorted cell indexes, or null if the cells were added sorted.
+   */
+  private Integer[] sortCells() {
+    for (int i = 1; i < mSize; i++) {
+      if (compareCells(i - 1, i) > 0) {
+        final Integer[] order = new Integer[mSize];
+        for (int j = 0; j < mSize; j++) {
+          order[j] = j;
+        }
+        // Object sorts are stable.
+        Arrays.sort(order, mCellOrder);
+        return order;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Writes the row as a KijiRestRow would be: the entity id followed by the cells, grouped by
+   * family then qualifier.
+   *
+   * {@inheritDoc}
+   */
+  @Override
+  public void serialize(JsonGenerator generator, SerializerProvider provider)
+      throws IOException, JsonProcessingException {
+    generator.writeStartObject();
+    generator.writeFieldName("entityId");
+    provider.defaultSerializeValue(mEntityId, generator);
+    generator.writeFieldName("cells");
+    generator.writeStartObject();
+    final Integer[] order = sortCells();
+    String family = null;
+    String qualifier = null;
+    for (int i = 0; i < mSize; i++) {
+      final int cell = (null != order) ? order[i] : i;
+      final boolean newFamily = !mFamilies[cell].equals(family);
+      if (newFamily || !mQualifiers[cell].equals(qualifier)) {
+        if (null != qualifier) {
+          generator.writeEndArray();
+        }
+        if (newFamily) {
+          if (null != family) {
+            generator.writeEndObject();
+          }
+          family = mFamilies[cell];
+          generator.writeObjectFieldStart(family);
+        }
+        qualifier = mQualifiers[cell];
+        generator.writeArrayFieldStart(qualifier);
+      }
+      generator.writeStartObject();
+      generator.writeNumberField("timestamp", mTimestamps[cell]);
+      generator.writeFieldName("value");
+      provider.defaultSerializeValue(mValues[cell], generator);
+      if (mSchemaIds[cell] >= 0) {
+        generator.writeNumberField("writer_schema", mSchemaIds[cell]);
+      } else {
+        // Error cells are rare: write them exactly as their SchemaOption would be.
+        generator.writeFieldName("writer_schema");
+        provider.defaultSerializeValue(new SchemaOption(mSchemaIds[cell]), generator);
+      }
+      generator.writeEndObject();
+    }
+    if (null != qualifier) {
+      generator.writeEndArray();
+      generator.writeEndObject();
+    }
+    generator.writeEndObject();
+    generator.writeEndObject();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void serializeWithType(JsonGenerator generator, SerializerProvider provider,
+      TypeSerializer typeSerializer) throws IOException, JsonProcessingException {
+    serialize(generator, provider);
+  }
+}
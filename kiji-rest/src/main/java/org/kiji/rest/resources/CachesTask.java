@@ -0,0 +1,95 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest.resources;
+
+import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableMultimap;
+import com.yammer.dropwizard.tasks.Task;
+
+import org.kiji.rest.ManagedKijiClient;
+import org.kiji.rest.util.InstrumentedCache;
+import org.kiji.rest.util.KijiInstanceCache;
+
+/**
+ * This REST task dumps the specs, sizes and statistics of the caches of instances, tables and
+ * readers, one cache per line. Given a cache name and a Guava cache spec, it first changes the
+ * spec of the cache, e.g. to resize it while it serves requests. The caches of tables, fresh
+ * readers and reader pools are changed for every instance.
+ */
+public class CachesTask extends Task {
+  public static final String CACHE_KEY = "cache";
+  public static final String SPEC_KEY = "spec";
+
+  private final ManagedKijiClient mKijiClient;
+
+  /**
+   * Create a CachesTask with the provided ManagedKijiClient.
+   *
+   * @param kijiClient whose caches are dumped and configured.
+   */
+  public CachesTask(ManagedKijiClient kijiClient) {
+    super("caches");
+    mKijiClient = kijiClient;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void execute(
+      ImmutableMultimap<String, String> parameters,
+      PrintWriter output
+  ) throws Exception {
+    final Collection<String> caches = parameters.get(CACHE_KEY);
+    final Collection<String> specs = parameters.get(SPEC_KEY);
+    Preconditions.checkArgument(caches.size() == specs.size() && caches.size() <= 1,
+        "Supply either no cache, or a single cache and its spec.");
+    if (!caches.isEmpty()) {
+      mKijiClient.setCacheSpec(caches.iterator().next(), specs.iterator().next());
+    }
+
+    final InstrumentedCache<String, KijiInstanceCache> instanceCaches =
+        mKijiClient.getInstanceCaches();
+    dump(ManagedKijiClient.INSTANCES, instanceCaches, output);
+    for (Map.Entry<String, KijiInstanceCache> instance : instanceCaches.asMap().entrySet()) {
+      for (InstrumentedCache<String, ?> cache : instance.getValue().getCaches().values()) {
+        dump(instance.getKey() + "/" + cache.getName(), cache, output);
+      }
+    }
+    output.flush();
+  }
+
+  /**
+   * Prints the spec, size and statistics of a cache.
+   *
+   * @param name of the cache.
+   * @param cache to dump.
+   * @param output to print to.
+   */
+  private static void dump(String name, InstrumentedCache<String, ?> cache, PrintWriter output) {
+    final CacheStats stats = cache.stats();
+    output.printf("%s spec=%s size=%d hits=%d misses=%d evictions=%d load-time-ms=%.1f%n",
+        name, cache.getSpec(), cache.size(), stats.hitCount(), stats.missCount(),
+        stats.evictionCount(), stats.averageLoadPenalty() / 1000000.0);
+  }
+}
@@ -19,25 +19,33 @@
 
 package org.kiji.rest.resources;
 
+import static org.kiji.rest.RoutesConstants.BATCH_GET_ENDPOINT;
+import static org.kiji.rest.RoutesConstants.EXISTS_ENDPOINT;
 import static org.kiji.rest.RoutesConstants.INSTANCE_PARAMETER;
 import static org.kiji.rest.RoutesConstants.ROWS_PATH;
 import static org.kiji.rest.RoutesConstants.TABLE_PARAMETER;
-import static org.kiji.rest.util.RowResourceUtil.addColumnDefs;
-import static org.kiji.rest.util.RowResourceUtil.getKijiRestRow;
-import static org.kiji.rest.util.RowResourceUtil.getTimestamps;
 
-import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
 import java.net.URI;
 import java.net.URLEncoder;
-import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
@@ -50,6 +58,7 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
@@ -58,40 +67,73 @@ import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterators;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.io.CountingOutputStream;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.jersey.spi.CloseableService;
+import com.yammer.metrics.Metrics;
 import com.yammer.metrics.annotation.Timed;
+import com.yammer.metrics.core.Counter;
 
-import org.apache.hadoop.hbase.HConstants;
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
 
 import org.kiji.annotations.ApiAudience;
 import org.kiji.annotations.ApiStability;
 import org.kiji.rest.KijiClient;
 import org.kiji.rest.config.FresheningConfiguration;
+import org.kiji.rest.config.RowsConfiguration;
 import org.kiji.rest.representations.KijiRestEntityId;
 import org.kiji.rest.representations.KijiRestRow;
+import org.kiji.rest.representations.KijiRestRowBuffer;
+import org.kiji.rest.representations.SchemaOption;
+import org.kiji.rest.serializers.AvroRowCodec;
+import org.kiji.rest.util.AdmissionController;
+import org.kiji.rest.util.AdmissionController.RequestClass;
+import org.kiji.rest.util.ColumnPageToken;
+import org.kiji.rest.util.EntityIdScanRanges;
+import org.kiji.rest.util.KeyOnlyRowFilter;
+import org.kiji.rest.util.KijiRestRowWriter;
+import org.kiji.rest.util.PageRowFilter;
+import org.kiji.rest.util.ParallelRowScanner;
+import org.kiji.rest.util.PriorityLanes;
+import org.kiji.rest.util.PriorityLanes.Priority;
+import org.kiji.rest.util.RequestPlan;
+import org.kiji.rest.util.RequestPlanCache;
+import org.kiji.rest.util.RowFilterExpression;
 import org.kiji.rest.util.RowResourceUtil;
+import org.kiji.rest.util.RowResponseCache;
+import org.kiji.rest.util.ScanCursor;
+import org.kiji.rest.util.SchemaIdCache;
 import org.kiji.schema.EntityId;
+import org.kiji.schema.HBaseEntityId;
 import org.kiji.schema.KijiBufferedWriter;
 import org.kiji.schema.KijiColumnName;
 import org.kiji.schema.KijiDataRequest;
-import org.kiji.schema.KijiDataRequestBuilder;
-import org.kiji.schema.KijiDataRequestBuilder.ColumnsDef;
 import org.kiji.schema.KijiIOException;
+import org.kiji.schema.KijiPager;
 import org.kiji.schema.KijiRowData;
-import org.kiji.schema.KijiRowScanner;
-import org.kiji.schema.KijiSchemaTable;
 import org.kiji.schema.KijiTable;
 import org.kiji.schema.KijiTableReader;
 import org.kiji.schema.KijiTableReader.KijiScannerOptions;
 import org.kiji.schema.avro.RowKeyFormat2;
+import org.kiji.schema.filter.Filters;
 import org.kiji.schema.filter.FormattedEntityIdRowFilter;
 import org.kiji.schema.filter.KijiRowFilter;
 import org.kiji.schema.layout.KijiTableLayout;
@@ -103,13 +145,16 @@ import org.kiji.scoring.FreshKijiTableReader;
  *
  * This resource is served for requests using the resource identifier: <li>
  * /v1/instances/&lt;instance&gt;/tables/&lt;table&gt;/rows
+ *
+ * Concurrent point GETs, scans and writes are bounded per class, instance and table as
+ * configured under 'rows' (see {@link AdmissionController}). Requests over a limit fail with
+ * status 503 and a Retry-After header. Bulk requests, such as large scans, yield to interactive
+ * requests, such as point GETs, between chunks of rows (see {@link PriorityLanes}).
  */
 @Path(ROWS_PATH)
 @Produces(MediaType.APPLICATION_JSON)
 @ApiAudience.Public
 public class RowsResource {
-  private static final String UNLIMITED_VERSIONS = "all";
-
   private final KijiClient mKijiClient;
 
   /**
@@ -118,17 +163,92 @@ public class RowsResource {
    */
   private static final int UNLIMITED_ROWS = -1;
 
+  /**
+   * Delimiter written after each streamed row.
+   */
+  private static final String ROW_DELIMITER = "\r\n";
+
+  /**
+   * Response header holding the page_token of the next page of a column.
+   */
+  public static final String NEXT_PAGE_TOKEN_HEADER = "X-Kiji-Next-Page-Token";
+
+  /**
+   * Response header set to true when the rows may be stale: freshening was requested, but the
+   * request did not wait for it because max-waiting requests were already waiting.
+   */
+  public static final String FRESHENING_SKIPPED_HEADER = "X-Kiji-Freshening-Skipped";
+
+  /**
+   * Field of the JSON object ending a page of a range scan, holding the cursor of the next page.
+   */
+  public static final String CURSOR_FIELD = "cursor";
+
+  /** Mode of GET /rows streaming rows with their cells. */
+  public static final String ROWS_MODE = "rows";
+
+  /** Mode of GET /rows streaming the entity ids of the rows only. */
+  public static final String KEYS_MODE = "keys";
+
   /**
    * Since we are streaming the rows to the user, we need access to the object mapper
    * used by DropWizard to convert objects to JSON.
    */
   private final ObjectMapper mJsonObjectMapper;
 
+  /**
+   * Writer used to stream rows into a JsonGenerator. Flushing is left to the RowStreamer so
+   * that it can be batched.
+   */
+  private final ObjectWriter mRowWriter;
+
   /**
    * Configuration values to use while freshening.
    */
   private final FresheningConfiguration mFreshenConfig;
 
+  /**
+   * Configuration values to use while streaming rows.
+   */
+  private final RowsConfiguration mRowsConfig;
+
+  /**
+   * Runs the sub-scanners of parallel range scans. Its threads are daemons and time out when
+   * idle, so the executor does not need to be shut down. It has no queue: parallel scans which
+   * find no free thread fail with 503 instead of waiting for one, and pipelined scans run on the
+   * request thread.
+   */
+  private final ExecutorService mScanExecutor;
+
+  /** Runs the sub-scanners of bulk scans, or null if they share the scan executor. */
+  private final ExecutorService mBulkScanExecutor;
+
+  /** Schedules bulk requests behind interactive requests. */
+  private final PriorityLanes mLanes;
+
+  /** Cache of the responses of point GETs, or null if responses are not cached. */
+  private final RowResponseCache mRowCache;
+
+  /** Compiled cols, versions and timerange parameters of GETs. */
+  private final RequestPlanCache mRequestPlans = new RequestPlanCache();
+
+  /** Bounds the number of concurrent requests per class, instance and table. */
+  private final AdmissionController mAdmission;
+
+  /** Number of requests waiting for freshening, when bounded by max-waiting. */
+  private final AtomicInteger mFresheningWaits = new AtomicInteger(0);
+
+  /** Number of scans which failed because no scan thread was free. */
+  private final Counter mRejectedScans = Metrics.newCounter(RowsResource.class, "rejected-scans");
+
+  /** Number of pipelined scans which ran on the request thread because no scan thread was free. */
+  private final Counter mUnpipelinedScans =
+      Metrics.newCounter(RowsResource.class, "unpipelined-scans");
+
+  /** Number of freshened requests which did not wait because too many requests were waiting. */
+  private final Counter mSkippedFresheningWaits =
+      Metrics.newCounter(RowsResource.class, "skipped-freshening-waits");
+
   /**
    * Special constant to denote that all columns are to be selected.
    */
@@ -144,23 +264,99 @@ public class RowsResource {
    */
   public RowsResource(KijiClient kijiClient, ObjectMapper jsonObjectMapper,
       FresheningConfiguration freshenConfig) {
+    this(kijiClient, jsonObjectMapper, freshenConfig, new RowsConfiguration());
+  }
+
+  /**
+   * Constructs a RowsResource with the given rows configuration.
+   *
+   * @param kijiClient that this should use for connecting to Kiji.
+   * @param jsonObjectMapper is the ObjectMapper used by DropWizard to convert from Java
+   *        objects to JSON.
+   * @param freshenConfig to use with freshening reader.
+   * @param rowsConfig controlling how rows are streamed to the client.
+   */
+  public RowsResource(KijiClient kijiClient, ObjectMapper jsonObjectMapper,
+      FresheningConfiguration freshenConfig, RowsConfiguration rowsConfig) {
     mKijiClient = kijiClient;
     mJsonObjectMapper = jsonObjectMapper;
+    mRowWriter = jsonObjectMapper.writer()
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     mFreshenConfig = freshenConfig;
+    mRowsConfig = rowsConfig;
+    mScanExecutor = newScanExecutor(rowsConfig.getScanThreads(), "kiji-rest-scan-%d");
+    mBulkScanExecutor = (rowsConfig.getBulkScanThreads() > 0)
+        ? newScanExecutor(rowsConfig.getBulkScanThreads(), "kiji-rest-bulk-scan-%d")
+        : null;
+    mLanes = new PriorityLanes(rowsConfig.getBulkChunkRows(), rowsConfig.getBulkYieldMillis());
+    mAdmission = new AdmissionController(
+        ImmutableMap.of(
+            RequestClass.GET, rowsConfig.getMaxConcurrentGets(),
+            RequestClass.SCAN, rowsConfig.getMaxConcurrentScans(),
+            RequestClass.WRITE, rowsConfig.getMaxConcurrentWrites()),
+        rowsConfig.getMaxConcurrentPerInstance(),
+        rowsConfig.getMaxConcurrentPerTable(),
+        rowsConfig.getAdmissionQueueSize(),
+        rowsConfig.getAdmissionWaitMillis(),
+        rowsConfig.getRetryAfterSeconds());
+    mRowCache = (rowsConfig.getRowCacheBytes() > 0)
+        ? new RowResponseCache(rowsConfig.getRowCacheBytes(), rowsConfig.getRowCacheTtlMillis())
+        : null;
   }
 
   /**
-   * Class to support streaming KijiRows to the client.
+   * Creates an executor running sub-scanners. Its threads are daemons and time out when idle,
+   * so the executor does not need to be shut down. Sub-scanners are handed to a free thread or
+   * rejected, since a queued sub-scanner would wait for the slowest clients of the running ones.
    *
+   * @param threads number of threads of the executor.
+   * @param nameFormat of the threads.
+   * @return the executor.
    */
-  private class RowStreamer implements StreamingOutput {
+  private static ExecutorService newScanExecutor(int threads, String nameFormat) {
+    final ThreadPoolExecutor scanExecutor = new ThreadPoolExecutor(
+        threads,
+        threads,
+        60L, TimeUnit.SECONDS,
+        new SynchronousQueue<Runnable>(),
+        new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat(nameFormat)
+            .build());
+    scanExecutor.allowCoreThreadTimeOut(true);
+    return scanExecutor;
+  }
+
+  /**
+   * Class to support streaming KijiRows to the client. Subclasses encode the rows.
+   *
+   */
+  private abstract class RowStreamer implements StreamingOutput, Closeable {
 
     private Iterable<KijiRowData> mScanner = null;
     private final KijiTable mTable;
-    private final KijiSchemaTable mSchemaTable;
+    private final SchemaIdCache mSchemaIds;
 
     private int mNumRows = 0;
-    private final List<KijiColumnName> mColsRequested;
+    private final RequestPlan mPlan;
+
+    /** Holds the row being written, reused for every row of the response. */
+    private final KijiRestRowBuffer mRowBuffer = new KijiRestRowBuffer();
+
+    /** Cursor of the range scan paged through by the client, without its start key, or null. */
+    private ScanCursor mCursor = null;
+
+    /** Whether only the entity ids of the rows are written. */
+    private boolean mKeysOnly = false;
+
+    /** Admission permit of the request, released once the rows are streamed, or null. */
+    private AdmissionController.Permit mPermit = null;
+
+    /** Priority lane of the request, left once the rows are streamed, or null. */
+    private PriorityLanes.Lane mLane = null;
+
+    /** Whether the scanner, permit and lane were released. */
+    private boolean mClosed = false;
 
     /**
      * Construct a new RowStreamer.
@@ -168,67 +364,667 @@ public class RowsResource {
      * @param scanner is the iterator over KijiRowData.
      * @param table the table from which the rows originate.
      * @param numRows is the maximum number of rows to stream.
-     * @param columns are the columns requested by the client.
-     * @param schemaTable is the handle to the KijiSchemaTable used to encode the cell's writer
-     *        schema as a UID.
+     * @param plan of the request, holding the columns requested by the client.
+     * @param schemaIds is the cache in front of the KijiSchemaTable used to encode the cell's
+     *        writer schema as a UID.
      */
     public RowStreamer(Iterable<KijiRowData> scanner, KijiTable table, int numRows,
-        List<KijiColumnName> columns, KijiSchemaTable schemaTable) {
+        RequestPlan plan, SchemaIdCache schemaIds) {
       mScanner = scanner;
       mTable = table;
       mNumRows = numRows;
-      mColsRequested = columns;
-      mSchemaTable = schemaTable;
+      mPlan = plan;
+      mSchemaIds = schemaIds;
+    }
+
+    /**
+     * Ends the response with the cursor of the next page when rows remain after the limit.
+     *
+     * @param cursor of the range scan, whose start key is set to the next row, or null.
+     */
+    public void setCursor(ScanCursor cursor) {
+      mCursor = cursor;
+    }
+
+    /**
+     * Writes the rows without their cells, which are neither decoded nor serialized.
+     *
+     * @param keysOnly whether only the entity ids of the rows are written.
+     */
+    public void setKeysOnly(boolean keysOnly) {
+      mKeysOnly = keysOnly;
+    }
+
+    /**
+     * Sets the admission permit of the request, released once the rows are streamed.
+     *
+     * @param permit of the request.
+     */
+    public void setPermit(AdmissionController.Permit permit) {
+      mPermit = permit;
+    }
+
+    /**
+     * Sets the priority lane of the request. Rows of bulk requests are streamed in chunks,
+     * between which the streamer yields to interactive requests. The lane is left once the rows
+     * are streamed.
+     *
+     * @param lane of the request.
+     */
+    public void setLane(PriorityLanes.Lane lane) {
+      mLane = lane;
+    }
+
+    /**
+     * Returns the cache used to encode the writer schemas of cells as UIDs.
+     *
+     * @return the schema id cache.
+     */
+    protected SchemaIdCache getSchemaIds() {
+      return mSchemaIds;
+    }
+
+    /**
+     * Starts streaming rows into the response.
+     *
+     * @param os is the OutputStream where the results are written.
+     * @throws IOException if the response can not be written.
+     */
+    protected abstract void open(OutputStream os) throws IOException;
+
+    /**
+     * Writes a row into the response. The row may be buffered until the next flush, but the
+     * buffer holding it is reused for the next row once this returns.
+     *
+     * @param row to write.
+     * @throws IOException if the response can not be written.
+     */
+    protected abstract void writeRow(KijiRestRowBuffer row) throws IOException;
+
+    /**
+     * Starts writing a row whose cells are written incrementally, as the pages of its paged
+     * columns are read.
+     *
+     * @param entityId of the row.
+     * @throws IOException if the response can not be written.
+     */
+    protected abstract void startRow(KijiRestEntityId entityId) throws IOException;
+
+    /**
+     * Writes cells of the row started by {@link #startRow(KijiRestEntityId)}. Cells are written
+     * in the order given, and the cells of a column must not be split across families or
+     * qualifiers of other columns. The buffer is reused once this returns.
+     *
+     * @param cells to write.
+     * @throws IOException if the response can not be written.
+     */
+    protected abstract void writeCells(KijiRestRowBuffer cells) throws IOException;
+
+    /**
+     * Ends the row started by {@link #startRow(KijiRestEntityId)}.
+     *
+     * @throws IOException if the response can not be written.
+     */
+    protected abstract void endRow() throws IOException;
+
+    /**
+     * Sends buffered rows to the client.
+     *
+     * @throws IOException if the response can not be written.
+     */
+    protected abstract void flush() throws IOException;
+
+    /**
+     * Returns the number of bytes of the rows written so far which the encoder still holds, and
+     * the response stream has not seen yet. Only called when flush-bytes is set.
+     *
+     * @return the number of bytes buffered by the encoder.
+     * @throws IOException if the response can not be written.
+     */
+    protected abstract long getBufferedBytes() throws IOException;
+
+    /**
+     * Writes the cursor of the next page after the last row.
+     *
+     * @param cursor of the next page, encoded.
+     * @throws IOException if the response can not be written.
+     */
+    protected abstract void writeCursor(String cursor) throws IOException;
+
+    /**
+     * Ends the response after the last row.
+     *
+     * @param numRows number of rows written.
+     * @throws IOException if the response can not be written.
+     */
+    protected abstract void finish(int numRows) throws IOException;
+
+    /**
+     * Closes the scanner, releases the admission permit and leaves the lane of the request. Called
+     * once the rows are streamed, and by Jersey once the request is done, in case the rows are
+     * never streamed, e.g. for HEAD requests. Only the first call has an effect.
+     *
+     * @throws IOException if the scanner can not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+      if (mClosed) {
+        return;
+      }
+      mClosed = true;
+      try {
+        if (mScanner instanceof Closeable) {
+          ((Closeable) mScanner).close();
+        }
+      } finally {
+        if (null != mPermit) {
+          mPermit.release();
+        }
+        if (null != mLane) {
+          mLane.leave();
+        }
+      }
     }
 
     /**
-     * Performs the actual streaming of the rows.
+     * Performs the actual streaming of the rows. The response is flushed every flush-rows rows
+     * or flush-bytes bytes, as configured. Bytes are counted once each row is written, including
+     * those still buffered by the encoder.
      *
      * @param os is the OutputStream where the results are written.
      */
     @Override
     public void write(OutputStream os) {
       int numRows = 0;
-      Writer writer = new BufferedWriter(new OutputStreamWriter(os, Charset.forName("UTF-8")));
+      final int flushRows = mRowsConfig.getFlushRows();
+      final long flushBytes = mRowsConfig.getFlushBytes();
+      int unflushedRows = 0;
+      long flushedBytes = 0;
+      final CountingOutputStream countingStream = new CountingOutputStream(os);
       Iterator<KijiRowData> it = mScanner.iterator();
       boolean clientClosed = false;
 
       try {
-        while (it.hasNext() && (numRows < mNumRows || mNumRows == UNLIMITED_ROWS)
-            && !clientClosed) {
+        // Resolved once for all rows, and only if a counter is requested.
+        final long counterSchemaId = (mPlan.hasCounters() && !mKeysOnly)
+            ? RowResourceUtil.getCounterSchemaId(mSchemaIds) : -1;
+        open(countingStream);
+        // The limit is checked first so that no row is fetched past it.
+        while ((numRows < mNumRows || mNumRows == UNLIMITED_ROWS) && !clientClosed
+            && it.hasNext()) {
           KijiRowData row = it.next();
-          KijiRestRow restRow = getKijiRestRow(row, mTable.getLayout(), mColsRequested,
-              mSchemaTable);
-          String jsonResult = mJsonObjectMapper.writeValueAsString(restRow);
-          // Let's strip out any carriage return + line feeds and replace them with just
-          // line feeds. Therefore we can safely delimit individual json messages on the
-          // carriage return + line feed for clients to parse properly.
-          jsonResult = jsonResult.replaceAll("\r\n", "\n");
-          writer.write(jsonResult + "\r\n");
-          writer.flush();
+          if (mKeysOnly) {
+            mRowBuffer.reset(KijiRestEntityId.create(row.getEntityId(), mTable.getLayout()));
+            writeRow(mRowBuffer);
+          } else if (mPlan.isPaged()) {
+            writePagedRow(row, counterSchemaId);
+          } else {
+            RowResourceUtil.fillRowBuffer(row, mTable.getLayout(), mPlan, counterSchemaId,
+                mSchemaIds, mRowBuffer);
+            writeRow(mRowBuffer);
+          }
           numRows++;
+          unflushedRows++;
+          if ((flushRows > 0 && unflushedRows >= flushRows)
+              || (flushBytes > 0
+                  && countingStream.getCount() + getBufferedBytes() - flushedBytes >= flushBytes)) {
+            flush();
+            unflushedRows = 0;
+            flushedBytes = countingStream.getCount();
+          }
+          if (null != mLane) {
+            mLane.rowDone();
+          }
+        }
+        if (null != mCursor && it.hasNext()) {
+          // The limit was reached: the next page starts at the next row.
+          writeCursor(mCursor.resumeAt(it.next().getEntityId().getHBaseRowKey()).encode());
         }
       } catch (IOException e) {
         clientClosed = true;
       } finally {
-        if (mScanner instanceof KijiRowScanner) {
-          try {
-            ((KijiRowScanner) mScanner).close();
-          } catch (IOException e1) {
-            throw new WebApplicationException(e1, Status.INTERNAL_SERVER_ERROR);
-          }
+        try {
+          close();
+        } catch (IOException e1) {
+          throw new WebApplicationException(e1, Status.INTERNAL_SERVER_ERROR);
         }
       }
 
       if (!clientClosed) {
         try {
-          writer.flush();
-          writer.close();
+          finish(numRows);
         } catch (IOException e) {
           throw new WebApplicationException(e, Status.INTERNAL_SERVER_ERROR);
         }
       }
     }
+
+    /**
+     * Writes a row whose pageable columns are read with Kiji pagers. Each page is written as
+     * soon as it is read, so that neither the server nor the client holds the whole row.
+     *
+     * @param row to write.
+     * @param counterSchemaId is the UID of the schema of counters.
+     * @throws IOException if the row can not be read or the response can not be written.
+     */
+    private void writePagedRow(KijiRowData row, long counterSchemaId) throws IOException {
+      final KijiRestEntityId entityId =
+          KijiRestEntityId.create(row.getEntityId(), mTable.getLayout());
+      startRow(entityId);
+      for (RequestPlan.ColumnPlan columnPlan : mPlan.getColumnPlans()) {
+        mRowBuffer.reset(entityId);
+        if (!columnPlan.isPageable()) {
+          RowResourceUtil.addColumnCells(row, columnPlan, counterSchemaId, mSchemaIds,
+              mRowBuffer);
+          writeCells(mRowBuffer);
+          continue;
+        }
+        final KijiColumnName column = columnPlan.getColumn();
+        final KijiPager pager = column.isFullyQualified()
+            ? row.getPager(column.getFamily(), column.getQualifier())
+            : row.getPager(column.getFamily());
+        try {
+          while (pager.hasNext()) {
+            mRowBuffer.reset(entityId);
+            RowResourceUtil.addColumnCells(pager.next(), columnPlan, counterSchemaId,
+                mSchemaIds, mRowBuffer);
+            writeCells(mRowBuffer);
+          }
+        } finally {
+          ResourceUtils.closeOrLog(pager);
+        }
+      }
+      endRow();
+    }
+  }
+
+  /**
+   * Streams rows as JSON. Each row is serialized directly into a JsonGenerator bound to the
+   * response and rows are delimited by carriage return + line feed so that clients can parse
+   * individual JSON messages. The compact JSON written by the generator escapes control
+   * characters, so the delimiter never appears within a row.
+   */
+  private class JsonRowStreamer extends RowStreamer {
+    private JsonGenerator mGenerator = null;
+
+    /** Response stream of the generator, see {@link #getBufferedBytes()}. */
+    private FlushGateOutputStream mStream = null;
+
+    /** Family and qualifier of the cells last written by writeCells, null if none. */
+    private String mFamily = null;
+    private String mQualifier = null;
+
+    /** Whether a cursor was written after the rows. */
+    private boolean mWroteCursor = false;
+
+    /**
+     * Construct a new JsonRowStreamer.
+     *
+     * @param scanner is the iterator over KijiRowData.
+     * @param table the table from which the rows originate.
+     * @param numRows is the maximum number of rows to stream.
+     * @param plan of the request, holding the columns requested by the client.
+     * @param schemaIds is the cache in front of the KijiSchemaTable used to encode the cell's
+     *        writer schema as a UID.
+     */
+    public JsonRowStreamer(Iterable<KijiRowData> scanner, KijiTable table, int numRows,
+        RequestPlan plan, SchemaIdCache schemaIds) {
+      super(scanner, table, numRows, plan, schemaIds);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void open(OutputStream os) throws IOException {
+      mStream = new FlushGateOutputStream(os);
+      mGenerator =
+          mJsonObjectMapper.getJsonFactory().createJsonGenerator(mStream, JsonEncoding.UTF8);
+      mGenerator.setPrettyPrinter(new MinimalPrettyPrinter(ROW_DELIMITER));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void writeRow(KijiRestRowBuffer row) throws IOException {
+      mRowWriter.writeValue(mGenerator, row);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void startRow(KijiRestEntityId entityId) throws IOException {
+      // Written as KijiRestRowBuffer writes whole rows.
+      mGenerator.writeStartObject();
+      mGenerator.writeFieldName("entityId");
+      mRowWriter.writeValue(mGenerator, entityId);
+      mGenerator.writeFieldName("cells");
+      mGenerator.writeStartObject();
+      mFamily = null;
+      mQualifier = null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void writeCells(KijiRestRowBuffer cells) throws IOException {
+      for (int i = 0; i < cells.size(); i++) {
+        final boolean newFamily = !cells.getFamily(i).equals(mFamily);
+        if (newFamily || !cells.getQualifier(i).equals(mQualifier)) {
+          if (null != mQualifier) {
+            mGenerator.writeEndArray();
+          }
+          if (newFamily) {
+            if (null != mFamily) {
+              mGenerator.writeEndObject();
+            }
+            mFamily = cells.getFamily(i);
+            mGenerator.writeObjectFieldStart(mFamily);
+          }
+          mQualifier = cells.getQualifier(i);
+          mGenerator.writeArrayFieldStart(mQualifier);
+        }
+        mGenerator.writeStartObject();
+        mGenerator.writeNumberField("timestamp", cells.getTimestamp(i));
+        mGenerator.writeFieldName("value");
+        mRowWriter.writeValue(mGenerator, cells.getValue(i));
+        mGenerator.writeFieldName("writer_schema");
+        if (cells.getSchemaId(i) >= 0) {
+          mGenerator.writeNumber(cells.getSchemaId(i));
+        } else {
+          mRowWriter.writeValue(mGenerator, new SchemaOption(cells.getSchemaId(i)));
+        }
+        mGenerator.writeEndObject();
+      }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void endRow() throws IOException {
+      if (null != mQualifier) {
+        mGenerator.writeEndArray();
+        mGenerator.writeEndObject();
+      }
+      mGenerator.writeEndObject();
+      mGenerator.writeEndObject();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void flush() throws IOException {
+      mGenerator.flush();
+    }
+
+    /**
+     * Jackson 2.1 does not tell how many bytes the generator buffers. Its buffer is moved to the
+     * response stream instead, without flushing the response to the client.
+     *
+     * @return 0, as the generator no longer buffers any byte.
+     * @throws IOException if the response can not be written.
+     */
+    @Override
+    protected long getBufferedBytes() throws IOException {
+      mStream.setPassFlush(false);
+      try {
+        mGenerator.flush();
+      } finally {
+        mStream.setPassFlush(true);
+      }
+      return 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void writeCursor(String cursor) throws IOException {
+      mGenerator.writeStartObject();
+      mGenerator.writeStringField(CURSOR_FIELD, cursor);
+      mGenerator.writeEndObject();
+      mWroteCursor = true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void finish(int numRows) throws IOException {
+      if (numRows > 0 || mWroteCursor) {
+        // The pretty printer only separates rows, so terminate the last one.
+        mGenerator.writeRaw(ROW_DELIMITER);
+      }
+      mGenerator.flush();
+      mGenerator.close();
+    }
+  }
+
+  /**
+   * Output stream whose flushes may be held back, so that a JsonGenerator can be emptied into the
+   * response without flushing the response to the client.
+   */
+  private static final class FlushGateOutputStream extends FilterOutputStream {
+    private boolean mPassFlush = true;
+
+    /**
+     * Create a stream writing into another.
+     *
+     * @param out is the stream written into.
+     */
+    private FlushGateOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    /**
+     * Sets whether flushes are passed to the underlying stream.
+     *
+     * @param passFlush whether flushes are passed to the underlying stream.
+     */
+    private void setPassFlush(boolean passFlush) {
+      mPassFlush = passFlush;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      // FilterOutputStream writes arrays a byte at a time.
+      out.write(bytes, offset, length);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void flush() throws IOException {
+      if (mPassFlush) {
+        out.flush();
+      }
+    }
+  }
+
+  /**
+   * Streams rows as binary Avro, see {@link AvroRowCodec}.
+   */
+  private class AvroRowStreamer extends RowStreamer {
+    private AvroRowCodec mCodec = null;
+    private BinaryEncoder mEncoder = null;
+
+    /**
+     * Construct a new AvroRowStreamer.
+     *
+     * @param scanner is the iterator over KijiRowData.
+     * @param table the table from which the rows originate.
+     * @param numRows is the maximum number of rows to stream.
+     * @param plan of the request, holding the columns requested by the client.
+     * @param schemaIds is the cache in front of the KijiSchemaTable used to encode the cell's
+     *        writer schema as a UID.
+     */
+    public AvroRowStreamer(Iterable<KijiRowData> scanner, KijiTable table, int numRows,
+        RequestPlan plan, SchemaIdCache schemaIds) {
+      super(scanner, table, numRows, plan, schemaIds);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void open(OutputStream os) throws IOException {
+      mCodec = new AvroRowCodec(getSchemaIds());
+      mEncoder = EncoderFactory.get().binaryEncoder(os, null);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void writeRow(KijiRestRowBuffer row) throws IOException {
+      mCodec.write(row, mEncoder);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void startRow(KijiRestEntityId entityId) throws IOException {
+      mCodec.startRow(entityId, mEncoder);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void writeCells(KijiRestRowBuffer cells) throws IOException {
+      mCodec.writeCells(cells, mEncoder);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void endRow() throws IOException {
+      mCodec.endRow(mEncoder);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void flush() throws IOException {
+      mEncoder.flush();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected long getBufferedBytes() throws IOException {
+      return mEncoder.bytesBuffered();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void writeCursor(String cursor) throws IOException {
+      // Binary Avro responses have no room for a trailing cursor, see getResumedCursor().
+      Preconditions.checkState(false, "Binary Avro rows can not end with a cursor.");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void finish(int numRows) throws IOException {
+      mEncoder.flush();
+    }
+  }
+
+  /**
+   * Determines whether the client prefers binary Avro rows over JSON.
+   *
+   * @param headers of the request.
+   * @return whether rows should be streamed as binary Avro.
+   */
+  private static boolean acceptsAvro(HttpHeaders headers) {
+    if (null == headers) {
+      return false;
+    }
+    // Acceptable media types are sorted by preference.
+    for (MediaType type : headers.getAcceptableMediaTypes()) {
+      if (type.isCompatible(MediaType.APPLICATION_JSON_TYPE)) {
+        return false;
+      } else if (AvroRowCodec.isAvro(type)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Builds the options of a scanner with the HBase scanner caching and batch of a request, or
+   * the configured defaults. Requested values are capped by the configured maximums, and the
+   * scanner caching by the rows the scan may return so that no RPC fetches rows past the limit.
+   *
+   * @param scannerCaching number of rows to fetch per scanner RPC, or null for the default.
+   * @param scannerBatch number of cells per row to fetch per scanner RPC, or null for the
+   *        default.
+   * @param scanLimit maximum number of rows read by the scan, or UNLIMITED_ROWS.
+   * @return the options of a scanner, without start row, stop row nor row filter.
+   */
+  private KijiScannerOptions newScannerOptions(Integer scannerCaching, Integer scannerBatch,
+      int scanLimit) {
+    int caching = getScannerSetting("scanner_caching", scannerCaching,
+        mRowsConfig.getScannerCaching(), mRowsConfig.getMaxScannerCaching());
+    if (scanLimit >= 0) {
+      // Fetch the rows of a limited scan in as few RPCs as allowed, but not more of them.
+      final int maxCaching = (caching > 0) ? caching : mRowsConfig.getMaxScannerCaching();
+      caching = Math.max(1, Math.min(maxCaching, scanLimit));
+    }
+    final KijiScannerOptions scanOptions = new KijiScannerOptions();
+    scanOptions.setHBaseScanOptions(
+        RowResourceUtil.newHBaseScanOptions(caching, getScannerBatch(scannerBatch)));
+    return scanOptions;
+  }
+
+  /**
+   * Returns the HBase scanner batch of a request, or the configured default, capped by the
+   * configured maximum.
+   *
+   * @param scannerBatch number of cells per row to fetch per scanner RPC, or null for the
+   *        default.
+   * @return the scanner batch, 0 to leave it to HBase.
+   */
+  private int getScannerBatch(Integer scannerBatch) {
+    return getScannerSetting("scanner_batch", scannerBatch,
+        mRowsConfig.getScannerBatch(), mRowsConfig.getMaxScannerBatch());
+  }
+
+  /**
+   * Combines the row filters of a scan.
+   *
+   * @param first filter, or null.
+   * @param second filter, or null.
+   * @return the conjunction of the filters, or null if there is none.
+   */
+  private static KijiRowFilter andRowFilters(KijiRowFilter first, KijiRowFilter second) {
+    if (null == first) {
+      return second;
+    } else if (null == second) {
+      return first;
+    }
+    return Filters.and(first, second);
+  }
+
+  /**
+   * Rejects the options of a request which only apply to scans.
+   *
+   * @param rowFilter of the request, or null.
+   * @param keysOnly whether the request is in keys mode.
+   * @throws WebApplicationException with status 400 if the request filters rows or only asks
+   *         for their keys.
+   */
+  private static void checkScan(KijiRowFilter rowFilter, boolean keysOnly) {
+    if (null != rowFilter) {
+      throw new WebApplicationException(new IllegalArgumentException(
+          "Row filters only apply to scans, not to eid without wildcards nor eids."),
+          Status.BAD_REQUEST);
+    }
+    if (keysOnly) {
+      throw new WebApplicationException(new IllegalArgumentException(
+          "mode=" + KEYS_MODE + " only applies to scans. POST entity ids to "
+          + EXISTS_ENDPOINT + " to check whether their rows exist."), Status.BAD_REQUEST);
+    }
+  }
+
+  /**
+   * Validates and caps a scanner setting of a request.
+   *
+   * @param name of the query parameter.
+   * @param requested value of the setting, or null if not set.
+   * @param defaultValue of the setting.
+   * @param maxValue of the setting.
+   * @return the setting to use, 0 to leave it to HBase.
+   */
+  private static int getScannerSetting(String name, Integer requested, int defaultValue,
+      int maxValue) {
+    if (null == requested) {
+      return defaultValue;
+    }
+    if (requested < 1) {
+      throw new WebApplicationException(new IllegalArgumentException(
+          name + " must be at least 1: " + requested), Status.BAD_REQUEST);
+    }
+    return Math.min(requested, maxValue);
   }
 
   /** Prefix for per-request freshening parameters. */
@@ -289,6 +1085,9 @@ public class RowsResource {
    * @param instance is the instance where the table resides.
    * @param table is the table where the rows from which the rows will be streamed
    * @param jsonEntityId the entity_id of the row to return.
+   * @param jsonEntityIds a JSON array of entity ids or row keys of the rows to return, fetched
+   *        with a single bulk get. Rows are streamed in the order requested and limit does not
+   *        apply. Will cause an error if jsonEntityId or start/end entity ids are also specified.
    * @param startEidString the left endpoint eid of the range scan.
    * @param endEidString the right endpoint eid of the range scan.
    * @param limit the maximum number of rows to return. Set to -1 to stream all rows.
@@ -300,18 +1099,55 @@ public class RowsResource {
    *        the ms since UNIX epoch. min and max are both optional; however, if something is
    *        specified, at least one of min/max must be present.)
    * @param freshen determines whether freshening should be done as part of the request.
+   *        Freshened rows are never served from the response cache.
    * @param timeout amount of time in ms to wait for freshening to finish before returning the
    *        old/stale/previous value of the column(s).
+   * @param parallelism is the number of sub-scanners to split a scan into, on region boundaries.
+   *        The default of 1 scans serially. Capped by the max-scan-parallelism configuration.
+   * @param ordered determines whether the rows of a parallel scan are returned in row key order.
+   *        Otherwise rows are returned as soon as any sub-scanner reads them.
+   * @param scannerCaching is the number of rows fetched per scanner RPC. Defaults to and is capped
+   *        by the scanner-caching and max-scanner-caching configuration.
+   * @param scannerBatch is the number of cells of a row fetched per scanner RPC. Defaults to and
+   *        is capped by the scanner-batch and max-scanner-batch configuration.
+   * @param pageSize is the number of qualifiers of map type families, or of versions of fully
+   *        qualified columns, read per page. Cells are then streamed as each page is read rather
+   *        than once the whole row is read. Counters are not paged.
+   * @param pageToken requests a single page of a single column of the row eid per response.
+   *        Empty for the first page; the X-Kiji-Next-Page-Token header of each response holds
+   *        the token of the next page, and is absent after the last page. Requires page_size.
+   * @param cursorString pages through a range scan, limit rows per response. Empty for the first
+   *        page; when more rows remain, each page ends with a {"cursor": "..."} line holding the
+   *        cursor of the next page. A cursor resumes the scan with its original start/end eids,
+   *        cols, versions, timerange, page_size and filter. Requires JSON rows in row key order.
+   * @param filterString is a JSON filter expression (see {@link RowFilterExpression}) evaluated by
+   *        the region servers. Row filters only apply to scans, qualifier filters to all GETs but
+   *        those with page_token.
+   * @param mode is "rows" to stream rows with their cells, or "keys" to only stream the entity
+   *        ids of the rows of a scan, whose cells are then not returned by the region servers.
+   *        Use {@link #checkRowsExist} for the existence of rows given by entity id.
+   * @param priorityString is "interactive" or "bulk" (see {@link PriorityLanes}). Bulk scans run
+   *        their sub-scanners on the bulk-scan-threads and yield to interactive requests between
+   *        chunks of rows. Defaults to bulk for scans of more than bulk-scan-rows rows.
    * @param uriInfo contains all the query parameters.
-   * @return the Response object containing the rows requested in JSON
+   * @param headers of the request. Rows are streamed as binary Avro (see {@link AvroRowCodec})
+   *        instead of JSON if the client prefers avro/binary or application/avro.
+   * @param closer releases the scanner, admission permit and lane of the request once it is
+   *        done, even if the rows are never streamed.
+   * @return the Response object containing the rows requested in JSON or binary Avro
    */
   @GET
+  @Produces({
+      MediaType.APPLICATION_JSON,
+      AvroRowCodec.AVRO_BINARY,
+      AvroRowCodec.APPLICATION_AVRO })
   @Timed
   @ApiStability.Experimental
   // CSOFF: ParameterNumberCheck - There are a bunch of query param options
   public Response getRows(@PathParam(INSTANCE_PARAMETER) String instance,
       @PathParam(TABLE_PARAMETER) String table,
       @QueryParam("eid") String jsonEntityId,
+      @QueryParam("eids") String jsonEntityIds,
       @QueryParam("start_eid") String startEidString,
       @QueryParam("end_eid") String endEidString,
       @QueryParam("limit") @DefaultValue("100") int limit,
@@ -320,86 +1156,299 @@ public class RowsResource {
       @QueryParam("timerange") String timeRange,
       @QueryParam("freshen") Boolean freshen,
       @QueryParam("timeout") Long timeout,
-      @Context UriInfo uriInfo) {
+      @QueryParam("parallelism") @DefaultValue("1") int parallelism,
+      @QueryParam("ordered") @DefaultValue("true") boolean ordered,
+      @QueryParam("scanner_caching") Integer scannerCaching,
+      @QueryParam("scanner_batch") Integer scannerBatch,
+      @QueryParam("page_size") Integer pageSize,
+      @QueryParam("page_token") String pageToken,
+      @QueryParam("cursor") String cursorString,
+      @QueryParam("filter") String filterString,
+      @QueryParam("mode") @DefaultValue(ROWS_MODE) String mode,
+      @QueryParam("priority") String priorityString,
+      @Context UriInfo uriInfo,
+      @Context HttpHeaders headers,
+      @Context CloseableService closer) {
     // CSON: ParameterNumberCheck - There are a bunch of query param options
-    long[] timeRanges = null;
     KijiTable kijiTable = mKijiClient.getKijiTable(instance, table);
     KijiTableLayout layout = kijiTable.getLayout();
     Iterable<KijiRowData> scanner = null;
-    int maxVersions;
-    KijiDataRequestBuilder dataBuilder = KijiDataRequest.builder();
-    if (timeRange != null) {
-      timeRanges = getTimestamps(timeRange);
+    final AtomicBoolean fresheningSkipped = new AtomicBoolean(false);
+    if (null != pageSize && pageSize < 1) {
+      throw new WebApplicationException(new IllegalArgumentException(
+          "page_size must be at least 1: " + pageSize), Status.BAD_REQUEST);
     }
-    try {
-      if (UNLIMITED_VERSIONS.equalsIgnoreCase(maxVersionsString)) {
-        maxVersions = HConstants.ALL_VERSIONS;
-      } else {
-        maxVersions = Integer.parseInt(maxVersionsString);
-      }
-    } catch (NumberFormatException nfe) {
-      throw new WebApplicationException(nfe, Status.BAD_REQUEST);
+    if (null != pageToken && (null == pageSize || null == jsonEntityId)) {
+      throw new WebApplicationException(new IllegalArgumentException(
+          "page_token requires page_size and eid."), Status.BAD_REQUEST);
+    }
+    final boolean keysOnly = KEYS_MODE.equals(mode);
+    if (!keysOnly && !ROWS_MODE.equals(mode)) {
+      throw new WebApplicationException(new IllegalArgumentException(
+          "mode must be " + ROWS_MODE + " or " + KEYS_MODE + ": " + mode), Status.BAD_REQUEST);
     }
-    if (timeRange != null) {
-      dataBuilder.withTimeRange(timeRanges[0], timeRanges[1]);
+    if (keysOnly && null != pageSize) {
+      throw new WebApplicationException(new IllegalArgumentException(
+          "page_size does not apply to mode=" + KEYS_MODE), Status.BAD_REQUEST);
     }
-    ColumnsDef colsRequested = dataBuilder.newColumnsDef().withMaxVersions(maxVersions);
-    List<KijiColumnName> requestedColumns = addColumnDefs(layout, colsRequested,
-        columns);
+    final ScanCursor resumed = getResumedCursor(cursorString, jsonEntityId, jsonEntityIds,
+        ordered, headers);
+    // A cursor carries the plan of the scan it resumes.
+    final String planColumns = (null != resumed) ? resumed.getColumns() : columns;
+    final String planMaxVersions =
+        (null != resumed) ? resumed.getMaxVersions() : maxVersionsString;
+    final String planTimeRange = (null != resumed) ? resumed.getTimeRange() : timeRange;
+    final int planPageSize;
+    if (null != resumed) {
+      planPageSize = resumed.getPageSize();
+    } else {
+      planPageSize = (null != pageSize) ? pageSize : 0;
+    }
+    RequestPlan plan = mRequestPlans.get(layout, planColumns, planMaxVersions, planTimeRange,
+        planPageSize);
+    final String planFilter = (null != resumed) ? resumed.getFilter() : filterString;
+    final RowFilterExpression filter = (null != planFilter)
+        ? RowFilterExpression.parse(planFilter, layout, mKijiClient.getJsonDecoderCache(instance))
+        : null;
+    if (null != filter && null != pageToken) {
+      throw new WebApplicationException(new IllegalArgumentException(
+          "filter is not supported with page_token."), Status.BAD_REQUEST);
+    }
+    final KijiRowFilter rowFilter = (null != filter) ? filter.getRowFilter() : null;
+    // Only the first cell of each row is needed, unless rows are filtered on their cells.
+    final KijiRowFilter scanFilter = andRowFilters(rowFilter,
+        keysOnly ? new KeyOnlyRowFilter(null == rowFilter) : null);
+    final KijiDataRequest dataRequest =
+        (null != filter) ? filter.applyTo(plan.getDataRequest()) : plan.getDataRequest();
+    String nextPageToken = null;
+    ScanCursor cursor = null;
     if (jsonEntityId != null && (startEidString != null || endEidString != null)) {
       throw new WebApplicationException(new IllegalArgumentException("Ambiguous request. "
           + "Specified both jsonEntityId and start/end entity Ids."), Status.BAD_REQUEST);
     }
+    if (jsonEntityIds != null
+        && (jsonEntityId != null || startEidString != null || endEidString != null)) {
+      throw new WebApplicationException(new IllegalArgumentException("Ambiguous request. "
+          + "Specified jsonEntityIds with jsonEntityId or start/end entity Ids."),
+          Status.BAD_REQUEST);
+    }
+    if (parallelism < 1) {
+      throw new WebApplicationException(new IllegalArgumentException(
+          "Parallelism must be at least 1: " + parallelism), Status.BAD_REQUEST);
+    }
+    final int scanParallelism = Math.min(parallelism, mRowsConfig.getMaxScanParallelism());
+    // Rows read by a scan: a page ending with a cursor reads the first row of the next page.
+    final int scanLimit = (limit < 0) ? UNLIMITED_ROWS : limit + ((null != cursorString) ? 1 : 0);
+    final KijiScannerOptions scanOptions =
+        newScannerOptions(scannerCaching, scannerBatch, scanLimit);
+    final int scanBatch = getScannerBatch(scannerBatch);
+    final int scanBufferRows = (scanLimit < 0)
+        ? mRowsConfig.getScanBufferRows()
+        : Math.max(1, Math.min(mRowsConfig.getScanBufferRows(), scanLimit));
+    final int pipelineRows = (scanLimit < 0 || mRowsConfig.getScanPipelineRows() <= 0)
+        ? mRowsConfig.getScanPipelineRows()
+        : Math.max(1, Math.min(mRowsConfig.getScanPipelineRows(), scanLimit));
+    int maxRows = limit;
+    final boolean pointGet = isPointGet(jsonEntityId, jsonEntityIds, layout);
+    final Priority priority = getPriority(priorityString, pointGet, limit);
+    final ExecutorService scanExecutor = (priority == Priority.BULK && null != mBulkScanExecutor)
+        ? mBulkScanExecutor : mScanExecutor;
+    // Held until the rows are streamed, unless the request fails first.
+    final AdmissionController.Permit permit = mAdmission.admit(instance, table,
+        pointGet ? RequestClass.GET : RequestClass.SCAN);
+    final PriorityLanes.Lane lane = mLanes.enter(priority);
+    boolean streaming = false;
     KijiTableReader reader = null;
     try {
-      if (jsonEntityId != null) {
+      if (jsonEntityIds != null) {
+        checkScan(rowFilter, keysOnly);
+        // Fetch all the requested rows with a single bulk get.
+        final List<EntityId> eids = Lists.newArrayList();
+        for (KijiRestEntityId kijiRestEntityId
+            : KijiRestEntityId.createListFromUrl(jsonEntityIds, layout)) {
+          if (kijiRestEntityId.isWildcarded()) {
+            throw new WebApplicationException(new IllegalArgumentException(
+                "Wildcards are not supported in jsonEntityIds: " + kijiRestEntityId),
+                Status.BAD_REQUEST);
+          }
+          eids.add(kijiRestEntityId.resolve(layout));
+        }
+        scanner = getKijiRowDatas(
+            kijiTable,
+            eids,
+            dataRequest,
+            freshen != null ? freshen : mFreshenConfig.isFreshen(),
+            timeout != null ? timeout : mFreshenConfig.getTimeout(),
+            getFresheningParameters(uriInfo.getQueryParameters()),
+            fresheningSkipped);
+        maxRows = UNLIMITED_ROWS;
+      } else if (jsonEntityId != null) {
         final KijiRestEntityId kijiRestEntityId =
             KijiRestEntityId.createFromUrl(jsonEntityId, layout);
         if (kijiRestEntityId.isWildcarded()) {
-          // Wildcards were found, continue with FormattedEntityIdRowFilter.
-          final KijiRowFilter entityIdRowFilter =
-              new FormattedEntityIdRowFilter(
-                  (RowKeyFormat2) layout.getDesc().getKeysFormat(),
-                  kijiRestEntityId.getComponents());
-          reader = kijiTable.openTableReader();
-          final KijiScannerOptions scanOptions = new KijiScannerOptions();
-          scanOptions.setKijiRowFilter(entityIdRowFilter);
-          scanner = reader.getScanner(dataBuilder.build(), scanOptions);
+          // Wildcards were found: scan the key ranges of the fixed leading components, if any,
+          // and match the remaining components with a FormattedEntityIdRowFilter.
+          final Object[] components = kijiRestEntityId.getComponents();
+          final List<byte[][]> ranges = EntityIdScanRanges.getRanges(
+              layout, components, mRowsConfig.getMaxSaltBuckets());
+          final Object[] filterComponents = components.clone();
+          if (null != ranges) {
+            // The ranges only hold rows matching the fixed leading components.
+            Arrays.fill(filterComponents, 0,
+                EntityIdScanRanges.getNumFixedComponents(components), null);
+          }
+          boolean needsFilter = false;
+          for (Object component : filterComponents) {
+            needsFilter |= (null != component);
+          }
+          KijiRowFilter entityIdRowFilter = null;
+          if (needsFilter) {
+            entityIdRowFilter =
+                new FormattedEntityIdRowFilter(
+                    (RowKeyFormat2) layout.getDesc().getKeysFormat(),
+                    filterComponents);
+          }
+          scanOptions.setKijiRowFilter(PageRowFilter.limitRows(
+              andRowFilters(entityIdRowFilter, scanFilter), scanLimit, scanBatch));
+          if (null != ranges && ranges.size() == 1) {
+            scanOptions.setStartRow(HBaseEntityId.fromHBaseRowKey(ranges.get(0)[0]));
+            if (ranges.get(0)[1].length > 0) {
+              scanOptions.setStopRow(HBaseEntityId.fromHBaseRowKey(ranges.get(0)[1]));
+            }
+          }
+          if (null != ranges && ranges.size() > 1) {
+            // One range per salt bucket.
+            scanner = new ParallelRowScanner(kijiTable, dataRequest, scanOptions, ranges,
+                scanParallelism, ordered, scanBufferRows, scanExecutor);
+          } else if (scanParallelism > 1) {
+            scanner = new ParallelRowScanner(kijiTable, dataRequest, scanOptions,
+                scanParallelism, ordered, scanBufferRows, scanExecutor);
+          } else {
+            scanner = (pipelineRows > 0)
+                ? startPipelinedScan(kijiTable, dataRequest, scanOptions, pipelineRows,
+                    scanExecutor)
+                : null;
+            if (null == scanner) {
+              reader = kijiTable.openTableReader();
+              scanner = reader.getScanner(dataRequest, scanOptions);
+            }
+          }
         } else {
           // No wildcards found, but potentially valid entity id.
           // Continue scanning point row.
+          checkScan(rowFilter, keysOnly);
           final EntityId eid = kijiRestEntityId.resolve(layout);
-          final KijiDataRequest request = dataBuilder.build();
           // Give priority to request freshness parameter; if not set use default
-          scanner = ImmutableList.of(getKijiRowData(
-              kijiTable,
-              eid,
-              request,
-              freshen != null ? freshen : mFreshenConfig.isFreshen(),
-              timeout != null ? timeout : mFreshenConfig.getTimeout(),
-              getFresheningParameters(uriInfo.getQueryParameters())));
+          final boolean doFreshen = freshen != null ? freshen : mFreshenConfig.isFreshen();
+          if (null != mRowCache && !doFreshen && 0 != limit && !acceptsAvro(headers)
+              && !plan.isPaged() && null == filter) {
+            return getCachedRow(kijiTable, eid, plan);
+          }
+          if (null != pageToken) {
+            // Read a single page of the column, and return it as the row.
+            final RequestPlan.ColumnPlan columnPlan = getPagedColumnPlan(plan);
+            final ColumnPageToken position =
+                pageToken.isEmpty() ? null : ColumnPageToken.decode(pageToken);
+            if (null != position && !position.getColumn().equals(columnPlan.getColumn())) {
+              throw new WebApplicationException(new IllegalArgumentException(
+                  "page_token is for column " + position.getColumn()), Status.BAD_REQUEST);
+            }
+            final KijiDataRequest pageRequest =
+                (null == position) ? dataRequest : position.resume(dataRequest);
+            final KijiRowData rowData = getKijiRowData(
+                kijiTable,
+                eid,
+                pageRequest,
+                doFreshen,
+                timeout != null ? timeout : mFreshenConfig.getTimeout(),
+                getFresheningParameters(uriInfo.getQueryParameters()),
+                fresheningSkipped);
+            final KijiColumnName column = columnPlan.getColumn();
+            final KijiPager pager = column.isFullyQualified()
+                ? rowData.getPager(column.getFamily(), column.getQualifier())
+                : rowData.getPager(column.getFamily());
+            try {
+              if (pager.hasNext()) {
+                final KijiRowData page = pager.next();
+                if (pager.hasNext()) {
+                  final ColumnPageToken next =
+                      ColumnPageToken.after(column, page, pageRequest.getMinTimestamp());
+                  nextPageToken = (null != next) ? next.encode() : null;
+                }
+                scanner = ImmutableList.of(page);
+                // The page holds whole columns.
+                plan = plan.withoutPaging();
+              } else {
+                scanner = ImmutableList.of(rowData);
+              }
+            } finally {
+              ResourceUtils.closeOrLog(pager);
+            }
+          } else {
+            scanner = ImmutableList.of(getKijiRowData(
+                kijiTable,
+                eid,
+                dataRequest,
+                doFreshen,
+                timeout != null ? timeout : mFreshenConfig.getTimeout(),
+                getFresheningParameters(uriInfo.getQueryParameters()),
+                fresheningSkipped));
+          }
         }
       } else {
         // Single eid not provided. Continue with a range scan.
-        final KijiScannerOptions scanOptions = new KijiScannerOptions();
-        if (startEidString != null) {
+        byte[] stopKey = new byte[0];
+        if (null != resumed) {
+          scanOptions.setStartRow(HBaseEntityId.fromHBaseRowKey(resumed.getStartKey()));
+          stopKey = resumed.getStopKey();
+        } else if (startEidString != null) {
           final EntityId eid =
               KijiRestEntityId.createFromUrl(startEidString, null).resolve(layout);
           scanOptions.setStartRow(eid);
         }
-        if (endEidString != null) {
+        if (null == resumed && endEidString != null) {
           final EntityId eid =
               KijiRestEntityId.createFromUrl(endEidString, null).resolve(layout);
-          scanOptions.setStopRow(eid);
+          stopKey = eid.getHBaseRowKey();
+        }
+        if (stopKey.length > 0) {
+          scanOptions.setStopRow(HBaseEntityId.fromHBaseRowKey(stopKey));
+        }
+        scanOptions.setKijiRowFilter(PageRowFilter.limitRows(scanFilter, scanLimit, scanBatch));
+        if (null != cursorString) {
+          cursor = new ScanCursor(null, stopKey, planColumns, planMaxVersions, planTimeRange,
+              planPageSize, planFilter);
+        }
+        if (scanParallelism > 1) {
+          scanner = new ParallelRowScanner(kijiTable, dataRequest, scanOptions,
+              scanParallelism, ordered, scanBufferRows, scanExecutor);
+        } else {
+          // Rows are scanned on a scan thread while the request thread streams them, if any.
+          scanner = (pipelineRows > 0)
+              ? startPipelinedScan(kijiTable, dataRequest, scanOptions, pipelineRows, scanExecutor)
+              : null;
+          if (null == scanner) {
+            reader = kijiTable.openTableReader();
+            scanner = reader.getScanner(dataRequest, scanOptions);
+          }
         }
-        reader = kijiTable.openTableReader();
-        scanner = reader.getScanner(dataBuilder.build(), scanOptions);
       }
+      streaming = true;
     } catch (KijiIOException kioe) {
       mKijiClient.invalidateTable(instance, table);
       throw new WebApplicationException(kioe, Status.BAD_REQUEST);
     } catch (JsonProcessingException jpe) {
       throw new WebApplicationException(jpe, Status.BAD_REQUEST);
+    } catch (RejectedExecutionException ree) {
+      mRejectedScans.inc();
+      throw new WebApplicationException(
+          new IllegalStateException("No free scan thread, rejected scan of "
+              + instance + "/" + table + "."),
+          Response.status(Status.SERVICE_UNAVAILABLE)
+              .header(AdmissionController.RETRY_AFTER_HEADER, mRowsConfig.getRetryAfterSeconds())
+              .build());
+    } catch (WebApplicationException wae) {
+      throw wae;
     } catch (Exception e) {
       throw new WebApplicationException(e, Status.INTERNAL_SERVER_ERROR);
     } finally {
@@ -407,10 +1456,300 @@ public class RowsResource {
       if (null != reader) {
         ResourceUtils.closeOrLog(reader);
       }
+      if (!streaming) {
+        permit.release();
+        lane.leave();
+      }
+    }
+    SchemaIdCache schemaIds = mKijiClient.getSchemaIdCache(instance);
+    final Response.ResponseBuilder response;
+    if (acceptsAvro(headers)) {
+      final AvroRowStreamer streamer =
+          new AvroRowStreamer(scanner, kijiTable, maxRows, plan, schemaIds);
+      streamer.setKeysOnly(keysOnly);
+      streamer.setPermit(permit);
+      streamer.setLane(lane);
+      closer.add(streamer);
+      response = Response.ok(streamer, AvroRowCodec.AVRO_BINARY_TYPE);
+    } else {
+      final JsonRowStreamer streamer =
+          new JsonRowStreamer(scanner, kijiTable, maxRows, plan, schemaIds);
+      streamer.setCursor(cursor);
+      streamer.setKeysOnly(keysOnly);
+      streamer.setPermit(permit);
+      streamer.setLane(lane);
+      closer.add(streamer);
+      response = Response.ok(streamer, MediaType.APPLICATION_JSON_TYPE);
+    }
+    if (null != nextPageToken) {
+      response.header(NEXT_PAGE_TOKEN_HEADER, nextPageToken);
+    }
+    if (fresheningSkipped.get()) {
+      response.header(FRESHENING_SKIPPED_HEADER, true);
+    }
+    return response.build();
+  }
+
+  /**
+   * Starts a serial scan reading rows ahead on a scan thread, unless no scan thread is free.
+   * Serial scans do not need a scan thread, so they then run on the request thread instead of
+   * failing.
+   *
+   * @param kijiTable to scan.
+   * @param dataRequest of the data to scan.
+   * @param scanOptions of the scan.
+   * @param pipelineRows maximum number of rows read ahead.
+   * @param scanExecutor to run the scan on.
+   * @return the scanner, or null if the scan must run on the request thread.
+   * @throws IOException if the scan can not be started.
+   */
+  private ParallelRowScanner startPipelinedScan(KijiTable kijiTable, KijiDataRequest dataRequest,
+      KijiScannerOptions scanOptions, int pipelineRows, ExecutorService scanExecutor)
+      throws IOException {
+    try {
+      return new ParallelRowScanner(kijiTable, dataRequest, scanOptions, 1, true, pipelineRows,
+          scanExecutor);
+    } catch (RejectedExecutionException ree) {
+      mUnpipelinedScans.inc();
+      return null;
+    }
+  }
+
+  /**
+   * Determines whether a GET reads rows given by entity id, rather than scanning rows.
+   *
+   * @param jsonEntityId is the eid parameter, or null.
+   * @param jsonEntityIds is the eids parameter, or null.
+   * @param layout of the table.
+   * @return whether the request is a point GET.
+   */
+  private static boolean isPointGet(String jsonEntityId, String jsonEntityIds,
+      KijiTableLayout layout) {
+    if (null != jsonEntityIds) {
+      return true;
+    } else if (null == jsonEntityId) {
+      return false;
+    }
+    try {
+      return !KijiRestEntityId.createFromUrl(jsonEntityId, layout).isWildcarded();
+    } catch (IOException ioe) {
+      // The request fails once admitted, as a point GET.
+      return true;
+    }
+  }
+
+  /**
+   * Determines the priority of a GET.
+   *
+   * @param priorityString is the priority parameter, or null to infer the priority.
+   * @param pointGet whether the request reads rows given by entity id.
+   * @param limit on the number of rows of a scan, or -1.
+   * @return the priority of the request.
+   * @throws WebApplicationException with status 400 if the priority is unknown.
+   */
+  private Priority getPriority(String priorityString, boolean pointGet, int limit) {
+    if (null != priorityString) {
+      return Priority.parse(priorityString);
+    } else if (pointGet) {
+      return Priority.INTERACTIVE;
+    }
+    return (limit < 0 || limit > mRowsConfig.getBulkScanRows())
+        ? Priority.BULK : Priority.INTERACTIVE;
+  }
+
+  /**
+   * Validates the cursor parameter of a request paging through a range scan.
+   *
+   * @param cursorString is the cursor parameter, or null.
+   * @param jsonEntityId is the eid parameter, or null.
+   * @param jsonEntityIds is the eids parameter, or null.
+   * @param ordered whether rows are returned in row key order.
+   * @param headers of the request.
+   * @return the cursor to resume, or null for the first page or if no cursor is requested.
+   * @throws WebApplicationException with status 400 if the cursor is invalid or the request is
+   *         not a range scan streaming JSON rows in row key order.
+   */
+  private static ScanCursor getResumedCursor(String cursorString, String jsonEntityId,
+      String jsonEntityIds, boolean ordered, HttpHeaders headers) {
+    if (null == cursorString) {
+      return null;
+    }
+    if (null != jsonEntityId || null != jsonEntityIds) {
+      throw new WebApplicationException(new IllegalArgumentException(
+          "cursor only applies to range scans."), Status.BAD_REQUEST);
+    }
+    if (!ordered) {
+      throw new WebApplicationException(new IllegalArgumentException(
+          "cursor requires rows in row key order."), Status.BAD_REQUEST);
+    }
+    if (acceptsAvro(headers)) {
+      // Binary Avro responses have no room for a trailing cursor.
+      throw new WebApplicationException(new IllegalArgumentException(
+          "cursor requires JSON rows."), Status.BAD_REQUEST);
+    }
+    return cursorString.isEmpty() ? null : ScanCursor.decode(cursorString);
+  }
+
+  /**
+   * Returns the single pageable column of a request paging through a column.
+   *
+   * @param plan of the request.
+   * @return the plan of the column to page through.
+   * @throws WebApplicationException with status 400 if the request does not read a single
+   *         pageable column.
+   */
+  private static RequestPlan.ColumnPlan getPagedColumnPlan(RequestPlan plan) {
+    if (plan.getColumnPlans().size() != 1 || !plan.getColumnPlans().get(0).isPageable()) {
+      throw new WebApplicationException(new IllegalArgumentException(
+          "page_token requires a single column, which is not a counter."), Status.BAD_REQUEST);
+    }
+    return plan.getColumnPlans().get(0);
+  }
+
+  /**
+   * POSTs a JSON array of entity ids (or row keys) and streams back the corresponding rows,
+   * fetched with a single bulk get. This is the same as GETting rows with the eids parameter but
+   * is not bound by the maximum length of a URL.
+   *
+   * For example:
+   * [
+   *    [12345],
+   *    "hbase=hex:8c2d2fcc2c150efb49ce0817e1823d46"
+   * ]
+   *
+   * @param instance is the instance where the table resides.
+   * @param table is the table where the rows from which the rows will be streamed
+   * @param columns is a comma separated list of columns (either family or family:qualifier) to
+   *        fetch
+   * @param maxVersionsString is the max versions per column to return.
+   *        Can be "all" for all versions.
+   * @param timeRange is the time range of cells to return (specified by min..max where min/max is
+   *        the ms since UNIX epoch. min and max are both optional; however, if something is
+   *        specified, at least one of min/max must be present.)
+   * @param freshen determines whether freshening should be done as part of the request.
+   * @param timeout amount of time in ms to wait for freshening to finish before returning the
+   *        old/stale/previous value of the column(s).
+   * @param uriInfo contains all the query parameters.
+   * @param headers of the request, used to choose between JSON and binary Avro rows.
+   * @param closer releases the resources of the request once it is done.
+   * @param jsonEntityIds POST-ed JSON array of entity ids.
+   * @return the Response object containing the rows requested in JSON or binary Avro, in the
+   *         order requested.
+   */
+  @POST
+  @Path(BATCH_GET_ENDPOINT)
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces({
+      MediaType.APPLICATION_JSON,
+      AvroRowCodec.AVRO_BINARY,
+      AvroRowCodec.APPLICATION_AVRO })
+  @Timed
+  @ApiStability.Experimental
+  // CSOFF: ParameterNumberCheck - There are a bunch of query param options
+  public Response batchGetRows(@PathParam(INSTANCE_PARAMETER) String instance,
+      @PathParam(TABLE_PARAMETER) String table,
+      @QueryParam("cols") @DefaultValue(ALL_COLS) String columns,
+      @QueryParam("versions") @DefaultValue("1") String maxVersionsString,
+      @QueryParam("timerange") String timeRange,
+      @QueryParam("freshen") Boolean freshen,
+      @QueryParam("timeout") Long timeout,
+      @Context UriInfo uriInfo,
+      @Context HttpHeaders headers,
+      @Context CloseableService closer,
+      final JsonNode jsonEntityIds) {
+    // CSON: ParameterNumberCheck - There are a bunch of query param options
+    if (null == jsonEntityIds || !jsonEntityIds.isArray()) {
+      throw new WebApplicationException(new IllegalArgumentException(
+          "Provide the entity ids as a JSON array."), Status.BAD_REQUEST);
+    }
+    return getRows(instance, table, null, jsonEntityIds.toString(), null, null, UNLIMITED_ROWS,
+        columns, maxVersionsString, timeRange, freshen, timeout, 1, true, null, null, null, null,
+        null, null, ROWS_MODE, null, uriInfo, headers, closer);
+  }
+
+  /**
+   * POSTs a JSON array of entity ids (or row keys) and returns whether each row exists, as a
+   * JSON array of booleans in the order requested. The rows are fetched with a single bulk get
+   * of the latest version of the requested columns, whose cells are not decoded.
+   *
+   * @param instance is the instance where the table resides.
+   * @param table is the table where the rows reside.
+   * @param columns is a comma separated list of columns (either family or family:qualifier). A
+   *        row exists if it holds a cell in any of them.
+   * @param timeRange is the time range of the cells to consider (min..max), or null.
+   * @param jsonEntityIds POST-ed JSON array of entity ids.
+   * @return whether each row exists, in the order requested.
+   */
+  @POST
+  @Path(EXISTS_ENDPOINT)
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  @Timed
+  @ApiStability.Experimental
+  public List<Boolean> checkRowsExist(@PathParam(INSTANCE_PARAMETER) String instance,
+      @PathParam(TABLE_PARAMETER) String table,
+      @QueryParam("cols") @DefaultValue(ALL_COLS) String columns,
+      @QueryParam("timerange") String timeRange,
+      final JsonNode jsonEntityIds) {
+    if (null == jsonEntityIds || !jsonEntityIds.isArray()) {
+      throw new WebApplicationException(new IllegalArgumentException(
+          "Provide the entity ids as a JSON array."), Status.BAD_REQUEST);
+    }
+    final KijiTable kijiTable = mKijiClient.getKijiTable(instance, table);
+    final KijiTableLayout layout = kijiTable.getLayout();
+    final RequestPlan plan = mRequestPlans.get(layout, columns, "1", timeRange);
+    final AdmissionController.Permit permit = mAdmission.admit(instance, table, RequestClass.GET);
+    final PriorityLanes.Lane lane = mLanes.enter(Priority.INTERACTIVE);
+    try {
+      final List<EntityId> eids = Lists.newArrayList();
+      for (KijiRestEntityId kijiRestEntityId
+          : KijiRestEntityId.createListFromUrl(jsonEntityIds.toString(), layout)) {
+        if (kijiRestEntityId.isWildcarded()) {
+          throw new WebApplicationException(new IllegalArgumentException(
+              "Wildcards are not supported in jsonEntityIds: " + kijiRestEntityId),
+              Status.BAD_REQUEST);
+        }
+        eids.add(kijiRestEntityId.resolve(layout));
+      }
+      final List<KijiRowData> rows = RowResourceUtil.getKijiRowDatas(
+          mKijiClient.getKijiTableReaderPool(instance, table), eids, plan.getDataRequest());
+      final List<Boolean> exist = Lists.newArrayListWithCapacity(rows.size());
+      for (KijiRowData row : rows) {
+        exist.add(hasAnyColumn(row, plan.getColumns()));
+      }
+      return exist;
+    } catch (KijiIOException kioe) {
+      mKijiClient.invalidateTable(instance, table);
+      throw new WebApplicationException(kioe, Status.BAD_REQUEST);
+    } catch (JsonProcessingException jpe) {
+      throw new WebApplicationException(jpe, Status.BAD_REQUEST);
+    } catch (WebApplicationException wae) {
+      throw wae;
+    } catch (Exception e) {
+      throw new WebApplicationException(e, Status.INTERNAL_SERVER_ERROR);
+    } finally {
+      permit.release();
+      lane.leave();
+    }
+  }
+
+  /**
+   * Determines whether a row holds a cell in any of the given columns, without decoding cells.
+   *
+   * @param row to inspect.
+   * @param columns requested.
+   * @return whether the row holds any of the columns.
+   */
+  private static boolean hasAnyColumn(KijiRowData row, List<KijiColumnName> columns) {
+    for (KijiColumnName column : columns) {
+      final boolean hasColumn = column.isFullyQualified()
+          ? row.containsColumn(column.getFamily(), column.getQualifier())
+          : row.containsColumn(column.getFamily());
+      if (hasColumn) {
+        return true;
+      }
     }
-    KijiSchemaTable schemaTable = mKijiClient.getKijiSchemaTable(instance);
-    return Response.ok(new RowStreamer(scanner, kijiTable, limit, requestedColumns,
-        schemaTable)).build();
+    return false;
   }
 
   /**
@@ -422,6 +1761,7 @@ public class RowsResource {
    * @param freshen is true iff we prefer to freshen.
    * @param timeout at which the freshener returns preexisting data.
    * @param fresheningParameters is the map of strings to strings of freshening parameters.
+   * @param fresheningSkipped is set if the request did not wait for freshening.
    * @return row data.
    * @throws IOException in case the data can not be fetched.
    */
@@ -431,7 +1771,8 @@ public class RowsResource {
       final KijiDataRequest request,
       final boolean freshen,
       final long timeout,
-      final Map<String, String> fresheningParameters) throws IOException {
+      final Map<String, String> fresheningParameters,
+      final AtomicBoolean fresheningSkipped) throws IOException {
     KijiRowData rowData;
     // TODO: add FreshRequestOptions to disable freshening and simplify below - WDSCORE-75
     if (freshen) {
@@ -439,19 +1780,157 @@ public class RowsResource {
       FreshKijiTableReader reader = mKijiClient.getFreshKijiTableReader(
           table.getURI().getInstance(),
           table.getURI().getTable());
-      FreshKijiTableReader.FreshRequestOptions freshOpts =
-          FreshKijiTableReader.FreshRequestOptions.Builder.create()
-              .withTimeout(timeout)
-              .withParameters(fresheningParameters)
-              .build();
-      rowData = reader.get(eid, request, freshOpts);
+      final boolean waits = startFresheningWait();
+      if (!waits) {
+        fresheningSkipped.set(true);
+      }
+      try {
+        FreshKijiTableReader.FreshRequestOptions freshOpts =
+            FreshKijiTableReader.FreshRequestOptions.Builder.create()
+                .withTimeout(waits ? timeout : 0)
+                .withParameters(fresheningParameters)
+                .build();
+        rowData = reader.get(eid, request, freshOpts);
+      } finally {
+        endFresheningWait(waits);
+      }
     } else {
       // Don't freshen
-      rowData = RowResourceUtil.getKijiRowData(table, eid, request);
+      rowData = RowResourceUtil.getKijiRowData(
+          mKijiClient.getKijiTableReaderPool(
+              table.getURI().getInstance(),
+              table.getURI().getTable()),
+          eid,
+          request);
     }
     return rowData;
   }
 
+  /**
+   * Reserves the wait of a request for freshening. Waiting requests hold a worker thread, so
+   * beyond max-waiting requests, freshening is triggered without waiting for it, and the
+   * response holds the current, possibly stale, data.
+   *
+   * @return whether the request may wait for freshening. If so, endFresheningWait must be called
+   *         once it is done.
+   */
+  private boolean startFresheningWait() {
+    final int maxWaiting = mFreshenConfig.getMaxWaiting();
+    if (maxWaiting <= 0) {
+      return true;
+    }
+    if (mFresheningWaits.incrementAndGet() > maxWaiting) {
+      mFresheningWaits.decrementAndGet();
+      mSkippedFresheningWaits.inc();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Releases the wait of a request for freshening.
+   *
+   * @param waited whether startFresheningWait allowed the request to wait.
+   */
+  private void endFresheningWait(boolean waited) {
+    if (waited && mFreshenConfig.getMaxWaiting() > 0) {
+      mFresheningWaits.decrementAndGet();
+    }
+  }
+
+  /**
+   * Gets the JSON response of a point GET from the response cache, or fetches and serializes the
+   * row and caches its response.
+   *
+   * @param kijiTable to query from.
+   * @param eid of the row to query.
+   * @param plan of the request.
+   * @return the response containing the row.
+   * @throws IOException in case the row can not be fetched.
+   */
+  private Response getCachedRow(
+      final KijiTable kijiTable,
+      final EntityId eid,
+      final RequestPlan plan) throws IOException {
+    final KijiDataRequest request = plan.getDataRequest();
+    final String instance = kijiTable.getURI().getInstance();
+    final String table = kijiTable.getURI().getTable();
+    final String layoutId = kijiTable.getLayout().getDesc().getLayoutId();
+    byte[] response = mRowCache.get(instance, table, layoutId, eid, request);
+    if (null == response) {
+      final long generation = mRowCache.getGeneration();
+      final KijiRowData rowData = getKijiRowData(kijiTable, eid, request, false, 0,
+          Collections.<String, String>emptyMap(), new AtomicBoolean(false));
+      final ByteArrayOutputStream os = new ByteArrayOutputStream();
+      new JsonRowStreamer(ImmutableList.of(rowData), kijiTable, 1, plan,
+          mKijiClient.getSchemaIdCache(instance)).write(os);
+      response = os.toByteArray();
+      mRowCache.put(instance, table, layoutId, eid, request, generation, response);
+    }
+    return Response.ok(response, MediaType.APPLICATION_JSON_TYPE).build();
+  }
+
+  /**
+   * Discards the cached responses of rows written through this resource.
+   *
+   * @param instance in which the table resides.
+   * @param table in which the rows reside.
+   * @param entityIds of the rows written.
+   */
+  private void invalidateRows(
+      final String instance,
+      final String table,
+      final Iterable<EntityId> entityIds) {
+    if (null != mRowCache) {
+      mRowCache.invalidate(instance, table, entityIds);
+    }
+  }
+
+  /**
+   * Get potentially fresh rows with a single bulk get.
+   *
+   * @param table to query from.
+   * @param eids of the rows to query.
+   * @param request for data.
+   * @param freshen is true iff we prefer to freshen.
+   * @param timeout at which the freshener returns preexisting data.
+   * @param fresheningParameters is the map of strings to strings of freshening parameters.
+   * @param fresheningSkipped is set if the request did not wait for freshening.
+   * @return row data, in the order of the entity ids.
+   * @throws IOException in case the data can not be fetched.
+   */
+  private List<KijiRowData> getKijiRowDatas(
+      final KijiTable table,
+      final List<EntityId> eids,
+      final KijiDataRequest request,
+      final boolean freshen,
+      final long timeout,
+      final Map<String, String> fresheningParameters,
+      final AtomicBoolean fresheningSkipped) throws IOException {
+    final String instance = table.getURI().getInstance();
+    final String tableName = table.getURI().getTable();
+    if (freshen) {
+      FreshKijiTableReader reader = mKijiClient.getFreshKijiTableReader(instance, tableName);
+      final boolean waits = startFresheningWait();
+      if (!waits) {
+        fresheningSkipped.set(true);
+      }
+      try {
+        FreshKijiTableReader.FreshRequestOptions freshOpts =
+            FreshKijiTableReader.FreshRequestOptions.Builder.create()
+                .withTimeout(waits ? timeout : 0)
+                .withParameters(fresheningParameters)
+                .build();
+        return reader.bulkGet(eids, request, freshOpts);
+      } finally {
+        endFresheningWait(waits);
+      }
+    } else {
+      return RowResourceUtil.getKijiRowDatas(
+          mKijiClient.getKijiTableReaderPool(instance, tableName), eids, request);
+    }
+  }
+
   /**
    * Commits a KijiRestRow representation to the kiji table: performs create and update.
    * Note that the user-formatted entityId is required.
@@ -460,12 +1939,16 @@ public class RowsResource {
    * @param instance in which the table resides
    * @param table in which the row resides
    * @param kijiRestRow POST-ed json data
+   * @param writer to write the row with. Cells may remain buffered until the writer is flushed.
+   * @param writtenIds collects the entity id of the row, to invalidate its cached responses.
    * @return a message containing the rowkey of interest
    * @throws IOException when post fails
    */
-  private Map<String, String> postRow(final String instance,
+  private Map<String, Object> postRow(final String instance,
       final String table,
-      final KijiRestRow kijiRestRow)
+      final KijiRestRow kijiRestRow,
+      final KijiRestRowWriter writer,
+      final List<EntityId> writtenIds)
       throws IOException {
     final KijiTable kijiTable = mKijiClient.getKijiTable(instance, table);
 
@@ -477,12 +1960,11 @@ public class RowsResource {
           new IllegalArgumentException("EntityId was not specified."), Status.BAD_REQUEST);
     }
 
-    // Open writer and write.
-    RowResourceUtil.writeRow(kijiTable, entityId, kijiRestRow,
-        mKijiClient.getKijiSchemaTable(instance));
+    writtenIds.add(entityId);
+    writer.write(entityId, kijiRestRow);
 
     // Better output?
-    Map<String, String> returnedTarget = Maps.newHashMap();
+    Map<String, Object> returnedTarget = Maps.newHashMap();
 
     URI targetResource = UriBuilder.fromResource(RowsResource.class).build(instance, table);
     String eidString = URLEncoder.encode(kijiRestRow.getEntityId().toString(), "UTF-8");
@@ -493,6 +1975,20 @@ public class RowsResource {
 
   }
 
+  /**
+   * Builds the result of a POST-ed row which could not be written.
+   *
+   * @param status of the failure.
+   * @param cause of the failure, may be null.
+   * @return a message containing the error.
+   */
+  private static Map<String, Object> rowError(final int status, final Throwable cause) {
+    final Map<String, Object> returnedError = Maps.newHashMap();
+    returnedError.put("status", status);
+    returnedError.put("error", (null != cause) ? cause.getMessage() : null);
+    return returnedError;
+  }
+
   /**
    * POSTs JSON body to row(s): performs create and update.
    * The input JSON blob can either represent a single KijiRestRow or a list of KijiRestRows.
@@ -553,6 +2049,16 @@ public class RowsResource {
    * Note that the user-formatted entityId is required.
    * Also note that writer schema is not considered as of the latest version.
    *
+   * Rows are written through a single buffered writer, whose buffer size and flush interval are
+   * set in the 'rows' configuration. When a list of rows is POST-ed, the response also contains
+   * a "results" list with, for each row in order, either its "target" or the "status" and "error"
+   * explaining why the row was rejected. Rejected rows do not prevent the other rows from being
+   * written. If a row of the list fails to be written, it gets a 500 "status", the rows accepted
+   * before it are still written, and the rows after it are neither written nor listed. The
+   * buffered writer can not discard its buffer, so the rows are only known to be written when
+   * the response succeeds: errors while flushing the buffer fail the whole request. Cached
+   * responses of the rows are invalidated once the rows are written.
+   *
    * @param instance in which the table resides
    * @param table in which the row resides
    * @param kijiRestRows POST-ed json data
@@ -562,31 +2068,194 @@ public class RowsResource {
   @POST
   @Consumes(MediaType.APPLICATION_JSON)
   @ApiStability.Experimental
-  public Map<String, List<String>> postRows(@PathParam(INSTANCE_PARAMETER) final String instance,
+  public Map<String, Object> postRows(@PathParam(INSTANCE_PARAMETER) final String instance,
       @PathParam(TABLE_PARAMETER) final String table,
       final JsonNode kijiRestRows)
       throws IOException {
     // We intend to return a JSON blob listing the row keys we are putting to.
     // i.e. {targets : [..., ..., ...]}
     final List<String> results = Lists.newLinkedList();
+    final Map<String, Object> returnedResults = Maps.newHashMap();
+    final List<EntityId> writtenIds = Lists.newArrayList();
+    final KijiTable kijiTable = mKijiClient.getKijiTable(instance, table);
 
-    final Iterator<JsonNode> rowIterator;
-    if (kijiRestRows.isArray()) {
-      rowIterator = kijiRestRows.elements();
-    } else {
-      rowIterator = Iterators.singletonIterator(kijiRestRows);
+    final AdmissionController.Permit permit =
+        mAdmission.admit(instance, table, RequestClass.WRITE);
+    // Lists of rows are bulk requests.
+    final PriorityLanes.Lane lane =
+        mLanes.enter(kijiRestRows.isArray() ? Priority.BULK : Priority.INTERACTIVE);
+    try {
+      final KijiRestRowWriter writer = new KijiRestRowWriter(
+          kijiTable,
+          mKijiClient.getKijiSchemaTable(instance),
+          mKijiClient.getJsonDecoderCache(instance),
+          mRowsConfig.getWriteBufferSize(),
+          mRowsConfig.getWriteFlushRows());
+      try {
+        try {
+          if (kijiRestRows.isArray()) {
+            // Put each row, collecting the result of each.
+            final List<Map<String, Object>> rowResults = Lists.newArrayList();
+            final Iterator<JsonNode> rowIterator = kijiRestRows.elements();
+            boolean failed = false;
+            while (!failed && rowIterator.hasNext()) {
+              Map<String, Object> rowResult;
+              try {
+                final KijiRestRow kijiRestRow = mJsonObjectMapper
+                    .treeToValue(rowIterator.next(), KijiRestRow.class);
+                rowResult = postRow(instance, table, kijiRestRow, writer, writtenIds);
+                results.add((String) rowResult.get("target"));
+              } catch (JsonProcessingException jpe) {
+                rowResult = rowError(Status.BAD_REQUEST.getStatusCode(), jpe);
+              } catch (WebApplicationException wae) {
+                rowResult = rowError(wae.getResponse().getStatus(), wae.getCause());
+              } catch (IOException ioe) {
+                // The rows accepted so far are still written, and the remaining rows are not.
+                rowResult = rowError(Status.INTERNAL_SERVER_ERROR.getStatusCode(), ioe);
+                failed = true;
+              } catch (RuntimeException re) {
+                rowResult = rowError(Status.INTERNAL_SERVER_ERROR.getStatusCode(), re);
+                failed = true;
+              }
+              rowResults.add(rowResult);
+              lane.rowDone();
+            }
+            returnedResults.put("results", rowResults);
+          } else {
+            final KijiRestRow kijiRestRow = mJsonObjectMapper
+                .treeToValue(kijiRestRows, KijiRestRow.class);
+            results.add((String) postRow(instance, table, kijiRestRow, writer, writtenIds)
+                .get("target"));
+          }
+        } catch (IOException ioe) {
+          ResourceUtils.closeOrLog(writer);
+          throw ioe;
+        } catch (RuntimeException re) {
+          ResourceUtils.closeOrLog(writer);
+          throw re;
+        }
+        // Flushes the remaining buffered rows.
+        writer.close();
+      } finally {
+        invalidateRows(instance, table, writtenIds);
+      }
+    } finally {
+      permit.release();
+      lane.leave();
     }
 
-    // Put each row.
-    while (rowIterator.hasNext()) {
-      final KijiRestRow kijiRestRow = mJsonObjectMapper
-          .treeToValue(rowIterator.next(), KijiRestRow.class);
-      final Map<String, String> result = postRow(instance, table, kijiRestRow);
-      results.add(result.get("target"));
+    returnedResults.put("targets", results);
+    return returnedResults;
+  }
+
+  /**
+   * POSTs rows encoded as binary Avro (see {@link AvroRowCodec}): performs create and update.
+   * Cell values are decoded with the writer schema designated by their UID and written without
+   * going through JSON. Cells of counter columns must be longs; they set the counter.
+   *
+   * The response lists the "targets" of the rows written and, for each row in order, its
+   * "target" or the "status" and "error" explaining why the row was rejected, as when a JSON
+   * list of rows is POST-ed. If the body can not be read past a row, the last result has a 400
+   * "status", and the rows accepted before it are still written.
+   *
+   * @param instance in which the table resides
+   * @param table in which the row resides
+   * @param avroRows POST-ed binary Avro rows
+   * @return a message containing the rowkeys of interest
+   * @throws IOException when post fails
+   */
+  @POST
+  @Consumes({ AvroRowCodec.AVRO_BINARY, AvroRowCodec.APPLICATION_AVRO })
+  @ApiStability.Experimental
+  public Map<String, Object> postAvroRows(@PathParam(INSTANCE_PARAMETER) final String instance,
+      @PathParam(TABLE_PARAMETER) final String table,
+      final InputStream avroRows)
+      throws IOException {
+    final List<String> results = Lists.newLinkedList();
+    final List<Map<String, Object>> rowResults = Lists.newArrayList();
+    final KijiTable kijiTable = mKijiClient.getKijiTable(instance, table);
+    final KijiTableLayout layout = kijiTable.getLayout();
+    final AvroRowCodec codec = new AvroRowCodec(mKijiClient.getSchemaIdCache(instance));
+    final BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(avroRows, null);
+    final URI targetResource = UriBuilder.fromResource(RowsResource.class).build(instance, table);
+    final List<EntityId> writtenIds = Lists.newArrayList();
+
+    final AdmissionController.Permit permit =
+        mAdmission.admit(instance, table, RequestClass.WRITE);
+    final PriorityLanes.Lane lane = mLanes.enter(Priority.BULK);
+    try {
+      final KijiRestRowWriter writer = new KijiRestRowWriter(
+          kijiTable,
+          mKijiClient.getKijiSchemaTable(instance),
+          mKijiClient.getJsonDecoderCache(instance),
+          mRowsConfig.getWriteBufferSize(),
+          mRowsConfig.getWriteFlushRows());
+      try {
+        try {
+          boolean failed = false;
+          while (!failed && !decoder.isEnd()) {
+            final AvroRowCodec.AvroRow avroRow;
+            try {
+              avroRow = codec.read(decoder);
+            } catch (IOException ioe) {
+              // The rows accepted so far are still written, and the remaining rows are not.
+              rowResults.add(rowError(Status.BAD_REQUEST.getStatusCode(), ioe));
+              break;
+            } catch (AvroRuntimeException are) {
+              rowResults.add(rowError(Status.BAD_REQUEST.getStatusCode(), are));
+              break;
+            }
+            Map<String, Object> rowResult;
+            if (null != avroRow.getError()) {
+              rowResult = rowError(Status.BAD_REQUEST.getStatusCode(),
+                  new IllegalArgumentException(avroRow.getError()));
+            } else {
+              try {
+                final KijiRestEntityId kijiRestEntityId =
+                    KijiRestEntityId.createFromUrl(avroRow.getEntityId(), layout);
+                final EntityId entityId = kijiRestEntityId.resolve(layout);
+                writtenIds.add(entityId);
+                writer.writeCells(entityId, avroRow.getCells());
+                final String target = targetResource.toString() + "?eid="
+                    + URLEncoder.encode(kijiRestEntityId.toString(), "UTF-8");
+                results.add(target);
+                rowResult = Maps.newHashMap();
+                rowResult.put("target", target);
+              } catch (JsonProcessingException jpe) {
+                rowResult = rowError(Status.BAD_REQUEST.getStatusCode(), jpe);
+              } catch (WebApplicationException wae) {
+                rowResult = rowError(wae.getResponse().getStatus(), wae.getCause());
+              } catch (IOException ioe) {
+                rowResult = rowError(Status.INTERNAL_SERVER_ERROR.getStatusCode(), ioe);
+                failed = true;
+              } catch (RuntimeException re) {
+                rowResult = rowError(Status.INTERNAL_SERVER_ERROR.getStatusCode(), re);
+                failed = true;
+              }
+            }
+            rowResults.add(rowResult);
+            lane.rowDone();
+          }
+        } catch (IOException ioe) {
+          ResourceUtils.closeOrLog(writer);
+          throw ioe;
+        } catch (RuntimeException re) {
+          ResourceUtils.closeOrLog(writer);
+          throw re;
+        }
+        // Flushes the remaining buffered rows.
+        writer.close();
+      } finally {
+        invalidateRows(instance, table, writtenIds);
+      }
+    } finally {
+      permit.release();
+      lane.leave();
     }
 
-    final Map<String, List<String>> returnedResults = Maps.newHashMap();
+    final Map<String, Object> returnedResults = Maps.newHashMap();
     returnedResults.put("targets", results);
+    returnedResults.put("results", rowResults);
     return returnedResults;
   }
 
@@ -626,6 +2295,9 @@ public class RowsResource {
           + "Specified neither jsonEntityId or jsonEntityIds."), Status.BAD_REQUEST);
     }
 
+    final AdmissionController.Permit permit =
+        mAdmission.admit(instance, table, RequestClass.WRITE);
+    final PriorityLanes.Lane lane = mLanes.enter(Priority.INTERACTIVE);
     try {
       List<KijiRestEntityId> kijiRestEntityIds = Lists.newArrayList();
 
@@ -660,10 +2332,17 @@ public class RowsResource {
         }
       }
 
-      writer.flush();
-      writer.close();
+      try {
+        writer.flush();
+        writer.close();
+      } finally {
+        invalidateRows(instance, table, entityIds);
+      }
     } catch (IOException ioe) {
       throw new WebApplicationException(ioe, Status.BAD_REQUEST);
+    } finally {
+      permit.release();
+      lane.leave();
     }
     return true;
   }
@@ -0,0 +1,425 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest.serializers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.generic.GenericContainer;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.IndexedRecord;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificRecord;
+
+/**
+ * Writes Avro data directly into a Jackson JsonGenerator, following the Avro
+ * <a href="http://avro.apache.org/docs/current/spec.html#json_encoding">JSON encoding</a>.
+ * The output is the same as encoding the datum with Avro's JsonEncoder and copying the result
+ * into the generator, without encoding, decoding and parsing the datum in between.
+ *
+ * <p>An AvroJsonWriter is compiled once per schema and cached, so that serializing many values
+ * of the same schema only walks the datum.</p>
+ */
+public abstract class AvroJsonWriter {
+
+  /** Avro encodes bytes and fixed values as strings with one char per byte. */
+  private static final Charset BYTES_CHARSET = Charset.forName("ISO-8859-1");
+
+  /** Maximum number of compiled schemas to hold. */
+  private static final long MAX_SCHEMAS = 1000;
+
+  /** Compiled writers keyed by schema identity. */
+  private static final LoadingCache<Schema, AvroJsonWriter> WRITERS =
+      CacheBuilder.newBuilder()
+          .weakKeys()
+          .maximumSize(MAX_SCHEMAS)
+          .build(
+              new CacheLoader<Schema, AvroJsonWriter>() {
+                @Override
+                public AvroJsonWriter load(Schema schema) {
+                  return compile(schema, new IdentityHashMap<Schema, RecordWriter>());
+                }
+              }
+          );
+
+  /**
+   * Writes the JSON encoding of an Avro container into a generator.
+   *
+   * @param record to write.
+   * @param generator to write the record into.
+   * @throws IOException if the generator fails.
+   */
+  public static void write(GenericContainer record, JsonGenerator generator) throws IOException {
+    final GenericData data = (record instanceof SpecificRecord)
+        ? SpecificData.get()
+        : GenericData.get();
+    forSchema(record.getSchema()).write(record, generator, data);
+  }
+
+  /**
+   * Returns the compiled writer for a schema.
+   *
+   * @param schema to get the writer for.
+   * @return the writer for values of the schema.
+   */
+  public static AvroJsonWriter forSchema(Schema schema) {
+    try {
+      return WRITERS.getUnchecked(schema);
+    } catch (UncheckedExecutionException uee) {
+      if (uee.getCause() instanceof AvroRuntimeException) {
+        throw (AvroRuntimeException) uee.getCause();
+      }
+      throw uee;
+    }
+  }
+
+  /**
+   * Writes a datum of the schema of this writer into a generator.
+   *
+   * @param datum to write.
+   * @param generator to write the datum into.
+   * @param data model used to resolve unions.
+   * @throws IOException if the generator fails.
+   */
+  public abstract void write(Object datum, JsonGenerator generator, GenericData data)
+      throws IOException;
+
+  /**
+   * Compiles the writer for a schema.
+   *
+   * @param schema to compile.
+   * @param records compiled so far, to support recursive schemas.
+   * @return the writer for values of the schema.
+   */
+  private static AvroJsonWriter compile(Schema schema, Map<Schema, RecordWriter> records) {
+    switch (schema.getType()) {
+    case RECORD:
+      RecordWriter recordWriter = records.get(schema);
+      if (null == recordWriter) {
+        recordWriter = new RecordWriter();
+        records.put(schema, recordWriter);
+        recordWriter.init(schema, records);
+      }
+      return recordWriter;
+    case UNION:
+      return new UnionWriter(schema, records);
+    case ARRAY:
+      return new ArrayWriter(compile(schema.getElementType(), records));
+    case MAP:
+      return new MapWriter(compile(schema.getValueType(), records));
+    case ENUM:
+      return new EnumWriter(schema);
+    case FIXED:
+      return FIXED_WRITER;
+    case BYTES:
+      return BYTES_WRITER;
+    case STRING:
+      return STRING_WRITER;
+    case INT:
+      return INT_WRITER;
+    case LONG:
+      return LONG_WRITER;
+    case FLOAT:
+      return FLOAT_WRITER;
+    case DOUBLE:
+      return DOUBLE_WRITER;
+    case BOOLEAN:
+      return BOOLEAN_WRITER;
+    case NULL:
+      return NULL_WRITER;
+    default:
+      throw new AvroRuntimeException("Unknown schema type: " + schema.getType());
+    }
+  }
+
+  /**
+   * Writes bytes the way Avro's JsonEncoder does.
+   *
+   * @param bytes to write.
+   * @param offset of the first byte.
+   * @param length of the bytes.
+   * @param generator to write the bytes into.
+   * @throws IOException if the generator fails.
+   */
+  private static void writeBytes(byte[] bytes, int offset, int length, JsonGenerator generator)
+      throws IOException {
+    generator.writeString(new String(bytes, offset, length, BYTES_CHARSET));
+  }
+
+  /** Writes records as objects with one field per record field, in schema order. */
+  private static final class RecordWriter extends AvroJsonWriter {
+    private SerializableString[] mNames;
+    private AvroJsonWriter[] mWriters;
+    private int[] mPositions;
+
+    /**
+     * Compiles the fields of the record. This happens after construction so that fields may
+     * refer back to the record.
+     *
+     * @param schema of the record.
+     * @param records compiled so far.
+     */
+    private void init(Schema schema, Map<Schema, RecordWriter> records) {
+      final List<Field> fields = schema.getFields();
+      final SerializableString[] names = new SerializableString[fields.size()];
+      final AvroJsonWriter[] writers = new AvroJsonWriter[fields.size()];
+      final int[] positions = new int[fields.size()];
+      for (int i = 0; i < fields.size(); i++) {
+        final Field field = fields.get(i);
+        names[i] = new SerializedString(field.name());
+        writers[i] = compile(field.schema(), records);
+        positions[i] = field.pos();
+      }
+      mNames = names;
+      mWriters = writers;
+      mPositions = positions;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(Object datum, JsonGenerator generator, GenericData data)
+        throws IOException {
+      final IndexedRecord record = (IndexedRecord) datum;
+      generator.writeStartObject();
+      for (int i = 0; i < mWriters.length; i++) {
+        generator.writeFieldName(mNames[i]);
+        mWriters[i].write(record.get(mPositions[i]), generator, data);
+      }
+      generator.writeEndObject();
+    }
+  }
+
+  /** Writes unions as null or as an object keyed by the full name of the branch. */
+  private static final class UnionWriter extends AvroJsonWriter {
+    private final Schema mSchema;
+    private final SerializableString[] mLabels;
+    private final AvroJsonWriter[] mWriters;
+
+    /**
+     * Compiles the branches of a union.
+     *
+     * @param schema of the union.
+     * @param records compiled so far.
+     */
+    private UnionWriter(Schema schema, Map<Schema, RecordWriter> records) {
+      mSchema = schema;
+      final List<Schema> branches = schema.getTypes();
+      mLabels = new SerializableString[branches.size()];
+      mWriters = new AvroJsonWriter[branches.size()];
+      for (int i = 0; i < branches.size(); i++) {
+        final Schema branch = branches.get(i);
+        mLabels[i] = (branch.getType() == Schema.Type.NULL)
+            ? null
+            : new SerializedString(branch.getFullName());
+        mWriters[i] = compile(branch, records);
+      }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(Object datum, JsonGenerator generator, GenericData data)
+        throws IOException {
+      final int index = data.resolveUnion(mSchema, datum);
+      if (null == mLabels[index]) {
+        generator.writeNull();
+      } else {
+        generator.writeStartObject();
+        generator.writeFieldName(mLabels[index]);
+        mWriters[index].write(datum, generator, data);
+        generator.writeEndObject();
+      }
+    }
+  }
+
+  /** Writes arrays as JSON arrays. */
+  private static final class ArrayWriter extends AvroJsonWriter {
+    private final AvroJsonWriter mElementWriter;
+
+    /**
+     * Create a writer for arrays.
+     *
+     * @param elementWriter to write the elements of the array.
+     */
+    private ArrayWriter(AvroJsonWriter elementWriter) {
+      mElementWriter = elementWriter;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(Object datum, JsonGenerator generator, GenericData data)
+        throws IOException {
+      generator.writeStartArray();
+      for (Object element : (Collection<?>) datum) {
+        mElementWriter.write(element, generator, data);
+      }
+      generator.writeEndArray();
+    }
+  }
+
+  /** Writes maps as JSON objects. */
+  private static final class MapWriter extends AvroJsonWriter {
+    private final AvroJsonWriter mValueWriter;
+
+    /**
+     * Create a writer for maps.
+     *
+     * @param valueWriter to write the values of the map.
+     */
+    private MapWriter(AvroJsonWriter valueWriter) {
+      mValueWriter = valueWriter;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(Object datum, JsonGenerator generator, GenericData data)
+        throws IOException {
+      generator.writeStartObject();
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) datum).entrySet()) {
+        generator.writeFieldName(entry.getKey().toString());
+        mValueWriter.write(entry.getValue(), generator, data);
+      }
+      generator.writeEndObject();
+    }
+  }
+
+  /** Writes enums as their symbol. */
+  private static final class EnumWriter extends AvroJsonWriter {
+    private final List<String> mSymbols;
+
+    /**
+     * Create a writer for enums.
+     *
+     * @param schema of the enum.
+     */
+    private EnumWriter(Schema schema) {
+      mSymbols = schema.getEnumSymbols();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(Object datum, JsonGenerator generator, GenericData data)
+        throws IOException {
+      if (datum instanceof Enum) {
+        // Specific enums are written by ordinal, like the SpecificDatumWriter does.
+        generator.writeString(mSymbols.get(((Enum<?>) datum).ordinal()));
+      } else {
+        generator.writeString(datum.toString());
+      }
+    }
+  }
+
+  private static final AvroJsonWriter FIXED_WRITER = new AvroJsonWriter() {
+    @Override
+    public void write(Object datum, JsonGenerator generator, GenericData data)
+        throws IOException {
+      final byte[] bytes = ((GenericFixed) datum).bytes();
+      writeBytes(bytes, 0, bytes.length, generator);
+    }
+  };
+
+  private static final AvroJsonWriter BYTES_WRITER = new AvroJsonWriter() {
+    @Override
+    public void write(Object datum, JsonGenerator generator, GenericData data)
+        throws IOException {
+      final ByteBuffer buffer = (ByteBuffer) datum;
+      if (buffer.hasArray()) {
+        writeBytes(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(),
+            generator);
+      } else {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        writeBytes(bytes, 0, bytes.length, generator);
+      }
+    }
+  };
+
+  private static final AvroJsonWriter STRING_WRITER = new AvroJsonWriter() {
+    @Override
+    public void write(Object datum, JsonGenerator generator, GenericData data)
+        throws IOException {
+      generator.writeString(datum.toString());
+    }
+  };
+
+  private static final AvroJsonWriter INT_WRITER = new AvroJsonWriter() {
+    @Override
+    public void write(Object datum, JsonGenerator generator, GenericData data)
+        throws IOException {
+      generator.writeNumber(((Number) datum).intValue());
+    }
+  };
+
+  private static final AvroJsonWriter LONG_WRITER = new AvroJsonWriter() {
+    @Override
+    public void write(Object datum, JsonGenerator generator, GenericData data)
+        throws IOException {
+      generator.writeNumber(((Number) datum).longValue());
+    }
+  };
+
+  private static final AvroJsonWriter FLOAT_WRITER = new AvroJsonWriter() {
+    @Override
+    public void write(Object datum, JsonGenerator generator, GenericData data)
+        throws IOException {
+      generator.writeNumber(((Number) datum).floatValue());
+    }
+  };
+
+  private static final AvroJsonWriter DOUBLE_WRITER = new AvroJsonWriter() {
+    @Override
+    public void write(Object datum, JsonGenerator generator, GenericData data)
+        throws IOException {
+      generator.writeNumber(((Number) datum).doubleValue());
+    }
+  };
+
+  private static final AvroJsonWriter BOOLEAN_WRITER = new AvroJsonWriter() {
+    @Override
+    public void write(Object datum, JsonGenerator generator, GenericData data)
+        throws IOException {
+      generator.writeBoolean((Boolean) datum);
+    }
+  };
+
+  private static final AvroJsonWriter NULL_WRITER = new AvroJsonWriter() {
+    @Override
+    public void write(Object datum, JsonGenerator generator, GenericData data)
+        throws IOException {
+      generator.writeNull();
+    }
+  };
+}
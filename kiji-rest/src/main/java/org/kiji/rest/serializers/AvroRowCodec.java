@@ -0,0 +1,361 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest.serializers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import javax.ws.rs.core.MediaType;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Lists;
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumWriter;
+
+import org.kiji.rest.representations.KijiRestEntityId;
+import org.kiji.rest.representations.KijiRestRowBuffer;
+import org.kiji.rest.util.SchemaIdCache;
+import org.kiji.schema.DecodedCell;
+import org.kiji.schema.KijiCell;
+
+/**
+ * Encodes rows as binary Avro, an alternative to JSON for service-to-service clients which
+ * already speak Avro. A request or response body is a sequence of binary encoded datums of
+ * {@link #ROW_SCHEMA}, one per row, without any container or header:
+ *
+ * <pre>
+ * record AvroRow {
+ *   string entity_id;          // the entity id, as it is written in JSON.
+ *   array&lt;record AvroCell {
+ *     string family;
+ *     string qualifier;
+ *     long timestamp;
+ *     long writer_schema;      // UID of the schema of the value in the schema table.
+ *     bytes value;             // the value, binary encoded with that schema.
+ *   }&gt; cells;
+ * }
+ * </pre>
+ *
+ * <p>Cell values are written with the schema they were read with, i.e. the reader schema of
+ * their column if it has one, and POST-ed values are read with the schema they were written
+ * with. Cells which could not be read are written with a writer schema of -1 and an Avro string
+ * describing the error as value. Writers and readers of cell values are cached per schema.</p>
+ *
+ * <p>A codec holds scratch buffers and must not be shared between threads.</p>
+ */
+public class AvroRowCodec {
+
+  /** Media type of binary Avro rows. */
+  public static final String AVRO_BINARY = "avro/binary";
+
+  /** Alternative media type of binary Avro rows. */
+  public static final String APPLICATION_AVRO = "application/avro";
+
+  /** Media type of binary Avro rows. */
+  public static final MediaType AVRO_BINARY_TYPE = MediaType.valueOf(AVRO_BINARY);
+
+  /** Alternative media type of binary Avro rows. */
+  public static final MediaType APPLICATION_AVRO_TYPE = MediaType.valueOf(APPLICATION_AVRO);
+
+  /** Schema of each row. */
+  public static final Schema ROW_SCHEMA = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"AvroRow\",\"namespace\":\"org.kiji.rest.avro\","
+      + "\"fields\":["
+      + "{\"name\":\"entity_id\",\"type\":\"string\"},"
+      + "{\"name\":\"cells\",\"type\":{\"type\":\"array\",\"items\":"
+      + "{\"type\":\"record\",\"name\":\"AvroCell\",\"fields\":["
+      + "{\"name\":\"family\",\"type\":\"string\"},"
+      + "{\"name\":\"qualifier\",\"type\":\"string\"},"
+      + "{\"name\":\"timestamp\",\"type\":\"long\"},"
+      + "{\"name\":\"writer_schema\",\"type\":\"long\"},"
+      + "{\"name\":\"value\",\"type\":\"bytes\"}"
+      + "]}}}"
+      + "]}");
+
+  /** UID written for cells which could not be read. */
+  private static final long ERROR_SCHEMA_ID = -1L;
+
+  private static final Schema ERROR_SCHEMA = Schema.create(Schema.Type.STRING);
+
+  /** Maximum number of schemas to hold value writers and readers for. */
+  private static final long MAX_SCHEMAS = 1000;
+
+  /** Writers of cell values keyed by schema identity. */
+  private static final LoadingCache<Schema, DatumWriter<Object>> WRITERS =
+      CacheBuilder.newBuilder()
+          .weakKeys()
+          .maximumSize(MAX_SCHEMAS)
+          .build(
+              new CacheLoader<Schema, DatumWriter<Object>>() {
+                @Override
+                public DatumWriter<Object> load(Schema schema) {
+                  // Specific writers also handle generic data.
+                  return new SpecificDatumWriter<Object>(schema);
+                }
+              }
+          );
+
+  /** Readers of cell values keyed by schema identity. */
+  private static final LoadingCache<Schema, DatumReader<Object>> READERS =
+      CacheBuilder.newBuilder()
+          .weakKeys()
+          .maximumSize(MAX_SCHEMAS)
+          .build(
+              new CacheLoader<Schema, DatumReader<Object>>() {
+                @Override
+                public DatumReader<Object> load(Schema schema) {
+                  return new GenericDatumReader<Object>(schema);
+                }
+              }
+          );
+
+  private final SchemaIdCache mSchemaIds;
+
+  /** Scratch buffer holding the encoding of a cell value. */
+  private final ByteArrayOutputStream mValueBuffer = new ByteArrayOutputStream();
+  private BinaryEncoder mValueEncoder = null;
+  private BinaryDecoder mValueDecoder = null;
+  private ByteBuffer mValueBytes = null;
+
+  /**
+   * Create a new codec.
+   *
+   * @param schemaIds used to resolve writer schemas to and from UIDs.
+   */
+  public AvroRowCodec(SchemaIdCache schemaIds) {
+    mSchemaIds = schemaIds;
+  }
+
+  /**
+   * Determines whether a media type designates binary Avro rows.
+   *
+   * @param type to check.
+   * @return whether the type is one of the binary Avro media types.
+   */
+  public static boolean isAvro(MediaType type) {
+    return type.isCompatible(AVRO_BINARY_TYPE) || type.isCompatible(APPLICATION_AVRO_TYPE);
+  }
+
+  /**
+   * A row decoded from binary Avro.
+   */
+  public static final class AvroRow {
+    private final String mEntityId;
+    private final List<KijiCell<Object>> mCells;
+    private final String mError;
+
+    /**
+     * Create a decoded row.
+     *
+     * @param entityId of the row, as it is written in JSON.
+     * @param cells of the row.
+     * @param error describing why the cells of the row could not be decoded, or null.
+     */
+    private AvroRow(String entityId, List<KijiCell<Object>> cells, String error) {
+      mEntityId = entityId;
+      mCells = cells;
+      mError = error;
+    }
+
+    /**
+     * Returns why the cells of the row could not be decoded.
+     *
+     * @return the error of the row, or null if all of its cells were decoded.
+     */
+    public String getError() {
+      return mError;
+    }
+
+    /**
+     * Returns the entity id of the row, as it is written in JSON.
+     *
+     * @return the entity id of the row.
+     */
+    public String getEntityId() {
+      return mEntityId;
+    }
+
+    /**
+     * Returns the cells of the row, decoded with their writer schemas.
+     *
+     * @return the cells of the row.
+     */
+    public List<KijiCell<Object>> getCells() {
+      return mCells;
+    }
+  }
+
+  /**
+   * Encodes a row.
+   *
+   * @param row to encode.
+   * @param encoder to write the row into.
+   * @throws IOException if the row can not be encoded.
+   */
+  public void write(KijiRestRowBuffer row, Encoder encoder) throws IOException {
+    startRow(row.getEntityId(), encoder);
+    writeCells(row, encoder);
+    endRow(encoder);
+  }
+
+  /**
+   * Starts encoding a row whose cells are encoded incrementally, see
+   * {@link #writeCells(KijiRestRowBuffer, Encoder)}.
+   *
+   * @param entityId of the row.
+   * @param encoder to write the row into.
+   * @throws IOException if the row can not be encoded.
+   */
+  public void startRow(KijiRestEntityId entityId, Encoder encoder) throws IOException {
+    encoder.writeString(entityId.toString());
+    encoder.writeArrayStart();
+  }
+
+  /**
+   * Encodes cells of the row being written, as one block of the array of cells.
+   *
+   * @param cells to encode.
+   * @param encoder to write the cells into.
+   * @throws IOException if the cells can not be encoded.
+   */
+  public void writeCells(KijiRestRowBuffer cells, Encoder encoder) throws IOException {
+    if (0 == cells.size()) {
+      // An empty block would end the array.
+      return;
+    }
+    encoder.setItemCount(cells.size());
+    for (int i = 0; i < cells.size(); i++) {
+      encoder.startItem();
+      encoder.writeString(cells.getFamily(i));
+      encoder.writeString(cells.getQualifier(i));
+      encoder.writeLong(cells.getTimestamp(i));
+      writeValue(cells.getSchemaId(i), cells.getValueSchema(i), cells.getValue(i), encoder);
+    }
+  }
+
+  /**
+   * Ends the row being written.
+   *
+   * @param encoder to write the row into.
+   * @throws IOException if the row can not be encoded.
+   */
+  public void endRow(Encoder encoder) throws IOException {
+    encoder.writeArrayEnd();
+  }
+
+  /**
+   * Encodes the value of a cell and the UID of the schema it is encoded with.
+   *
+   * @param cellSchemaId UID of the writer schema of the cell, -1 if the cell could not be read.
+   * @param valueSchema the value was read with, or null if it is the writer schema.
+   * @param cellValue to encode.
+   * @param encoder to write the cell into.
+   * @throws IOException if the value can not be encoded.
+   */
+  private void writeValue(long cellSchemaId, Schema valueSchema, Object cellValue,
+      Encoder encoder) throws IOException {
+    long schemaId = cellSchemaId;
+    Schema schema = null;
+    if (schemaId >= 0 && null != valueSchema) {
+      // The value no longer conforms to its writer schema once read with a reader schema.
+      schema = valueSchema;
+      schemaId = mSchemaIds.getOrCreateSchemaId(valueSchema);
+    } else if (schemaId >= 0) {
+      schema = mSchemaIds.getSchema(schemaId);
+    }
+    Object value = cellValue;
+    Schema valueSchema = schema;
+    if (null == schema) {
+      schemaId = ERROR_SCHEMA_ID;
+      valueSchema = ERROR_SCHEMA;
+      value = String.valueOf(value);
+    }
+
+    mValueBuffer.reset();
+    mValueEncoder = EncoderFactory.get().directBinaryEncoder(mValueBuffer, mValueEncoder);
+    WRITERS.getUnchecked(valueSchema).write(value, mValueEncoder);
+    mValueEncoder.flush();
+
+    encoder.writeLong(schemaId);
+    encoder.writeBytes(mValueBuffer.toByteArray());
+  }
+
+  /**
+   * Decodes the next row.
+   *
+   * @param decoder to read the row from.
+   * @return the decoded row, which carries an error if any of its cells is invalid.
+   * @throws IOException if the row can not be read from the decoder.
+   */
+  public AvroRow read(Decoder decoder) throws IOException {
+    final String entityId = decoder.readString();
+    final List<KijiCell<Object>> cells = Lists.newArrayList();
+    // Invalid cells are only reported once the whole row is read, so that the following rows
+    // can still be decoded.
+    String error = null;
+    for (long count = decoder.readArrayStart(); count != 0; count = decoder.arrayNext()) {
+      for (long i = 0; i < count; i++) {
+        final String family = decoder.readString();
+        final String qualifier = decoder.readString();
+        final long timestamp = decoder.readLong();
+        final long schemaId = decoder.readLong();
+        mValueBytes = decoder.readBytes(mValueBytes);
+        if (null != error) {
+          continue;
+        }
+        final Schema schema = mSchemaIds.getSchema(schemaId);
+        if (null == schema) {
+          error = "Unknown writer schema UID " + schemaId + " for column "
+              + family + ":" + qualifier + ".";
+          continue;
+        }
+        mValueDecoder = DecoderFactory.get().binaryDecoder(mValueBytes.array(),
+            mValueBytes.arrayOffset() + mValueBytes.position(), mValueBytes.remaining(),
+            mValueDecoder);
+        try {
+          final Object value = READERS.getUnchecked(schema).read(null, mValueDecoder);
+          cells.add(new KijiCell<Object>(family, qualifier, timestamp,
+              new DecodedCell<Object>(schema, value)));
+        } catch (IOException ioe) {
+          error = "Value of column " + family + ":" + qualifier
+              + " could not be decoded: " + ioe.getMessage();
+        } catch (AvroRuntimeException are) {
+          error = "Value of column " + family + ":" + qualifier
+              + " could not be decoded: " + are.getMessage();
+        }
+      }
+    }
+    return new AvroRow(entityId, cells, error);
+  }
+}
@@ -19,9 +19,8 @@
 
 package org.kiji.rest.serializers;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.io.StringWriter;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -31,12 +30,6 @@ import com.fasterxml.jackson.databind.SerializerProvider;
 
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.generic.GenericContainer;
-import org.apache.avro.generic.GenericDatumWriter;
-import org.apache.avro.io.DatumWriter;
-import org.apache.avro.io.EncoderFactory;
-import org.apache.avro.io.JsonEncoder;
-import org.apache.avro.specific.SpecificDatumWriter;
-import org.apache.avro.specific.SpecificRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,11 +38,16 @@ import org.slf4j.LoggerFactory;
  * the necessary hook to convert an Avro SpecificRecordBase to a Json string literal meant to
  * be embedded in another JSON object sent back to the client.
  *
+ * <p>Records are written token by token into the generator of the enclosing response by
+ * {@link AvroJsonWriter}, using the JSON encoding of Avro.</p>
  */
 public class AvroToJsonStringSerializer extends JsonSerializer<GenericContainer> {
 
   private static final Logger LOG = LoggerFactory.getLogger(AvroToJsonStringSerializer.class);
 
+  /** Shared mapper used to parse JSON strings into JSON nodes. */
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
   /**
    * {@inheritDoc}
    */
@@ -57,7 +55,7 @@ public class AvroToJsonStringSerializer extends JsonSerializer<GenericContainer>
   public void serialize(GenericContainer record, JsonGenerator generator,
       SerializerProvider provider) throws IOException {
     try {
-      generator.writeObject(getJsonNode(record));
+      AvroJsonWriter.write(record, generator);
     } catch (AvroRuntimeException are) {
       LOG.error("Error writing Avro record ", are);
       throw are;
@@ -73,19 +71,14 @@ public class AvroToJsonStringSerializer extends JsonSerializer<GenericContainer>
    * @throws IOException if there is an error.
    */
   public static String getJsonString(GenericContainer record) throws IOException {
-    ByteArrayOutputStream os = new ByteArrayOutputStream();
-    JsonEncoder encoder = EncoderFactory.get().jsonEncoder(record.getSchema(), os);
-    DatumWriter<GenericContainer> writer = new GenericDatumWriter<GenericContainer>();
-    if (record instanceof SpecificRecord) {
-      writer = new SpecificDatumWriter<GenericContainer>();
+    final StringWriter writer = new StringWriter();
+    final JsonGenerator generator = MAPPER.getJsonFactory().createJsonGenerator(writer);
+    try {
+      AvroJsonWriter.write(record, generator);
+    } finally {
+      generator.close();
     }
-
-    writer.setSchema(record.getSchema());
-    writer.write(record, encoder);
-    encoder.flush();
-    String jsonString = new String(os.toByteArray(), Charset.forName("UTF-8"));
-    os.close();
-    return jsonString;
+    return writer.toString();
   }
 
   /**
@@ -97,8 +90,7 @@ public class AvroToJsonStringSerializer extends JsonSerializer<GenericContainer>
    * @throws IOException if there is an error.
    */
   public static JsonNode getJsonNode(GenericContainer record) throws IOException {
-    ObjectMapper mapper = new ObjectMapper();
-    return mapper.readTree(getJsonString(record));
+    return MAPPER.readTree(getJsonString(record));
   }
 
   /**
@@ -0,0 +1,257 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest.util;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
+import com.yammer.metrics.core.Timer;
+
+/**
+ * Bounds the number of requests running concurrently per request class, per instance and per
+ * table, so that a burst of expensive requests, such as unlimited scans, can not starve the
+ * others.
+ *
+ * <p>A request over a limit waits for a permit among at most max-queued waiting requests, for
+ * at most max-wait milliseconds. Requests which can not wait fail with status 503 and a
+ * Retry-After header. A limit of 0 disables the limit. The wait of admitted requests and the
+ * number of rejected requests of each class are exported as metrics.</p>
+ *
+ * <p>Permits are acquired in a fixed order, class then instance then table, and waits are
+ * bounded, so that requests waiting for each other's permits eventually give up.</p>
+ */
+public class AdmissionController {
+
+  /** Name of the header telling rejected clients when to retry. */
+  public static final String RETRY_AFTER_HEADER = "Retry-After";
+
+  /** Classes of requests, with separate limits. */
+  public static enum RequestClass {
+    /** Point GETs of rows given by entity id. */
+    GET,
+    /** Range and wildcard scans. */
+    SCAN,
+    /** Writes and deletes of rows. */
+    WRITE
+  }
+
+  /** Permit of an admitted request. */
+  public static final class Permit {
+    private final List<Semaphore> mSemaphores;
+    private final AtomicBoolean mReleased = new AtomicBoolean(false);
+
+    /**
+     * Create a permit.
+     *
+     * @param semaphores whose permits are held.
+     */
+    private Permit(List<Semaphore> semaphores) {
+      mSemaphores = semaphores;
+    }
+
+    /** Releases the permit. Only the first call releases it. */
+    public void release() {
+      if (mReleased.compareAndSet(false, true)) {
+        for (Semaphore semaphore : mSemaphores) {
+          semaphore.release();
+        }
+      }
+    }
+  }
+
+  /** Limit per request class. */
+  private final Map<RequestClass, Semaphore> mClassSemaphores =
+      new EnumMap<RequestClass, Semaphore>(RequestClass.class);
+  private final int mInstanceLimit;
+  private final ConcurrentMap<String, Semaphore> mInstanceSemaphores = Maps.newConcurrentMap();
+  private final int mTableLimit;
+  private final ConcurrentMap<String, Semaphore> mTableSemaphores = Maps.newConcurrentMap();
+
+  private final int mMaxQueued;
+  private final long mMaxWaitNanos;
+  private final int mRetryAfterSeconds;
+
+  /** Number of requests waiting for a permit. */
+  private final AtomicInteger mQueued = new AtomicInteger(0);
+
+  private final Map<RequestClass, Timer> mWaits =
+      new EnumMap<RequestClass, Timer>(RequestClass.class);
+  private final Map<RequestClass, Counter> mRejections =
+      new EnumMap<RequestClass, Counter>(RequestClass.class);
+
+  /**
+   * Create an admission controller.
+   *
+   * @param classLimits maximum number of concurrent requests of each class. Classes which are
+   *        absent or map to 0 are not limited.
+   * @param instanceLimit maximum number of concurrent requests per instance, or 0.
+   * @param tableLimit maximum number of concurrent requests per table, or 0.
+   * @param maxQueued maximum number of requests waiting for a permit. 0 fails fast.
+   * @param maxWaitMillis maximum time in milliseconds a request waits for a permit.
+   * @param retryAfterSeconds sent to rejected clients in the Retry-After header.
+   */
+  public AdmissionController(Map<RequestClass, Integer> classLimits, int instanceLimit,
+      int tableLimit, int maxQueued, long maxWaitMillis, int retryAfterSeconds) {
+    Preconditions.checkArgument(instanceLimit >= 0 && tableLimit >= 0 && maxQueued >= 0
+        && maxWaitMillis >= 0 && retryAfterSeconds >= 0, "Invalid admission limits.");
+    for (RequestClass requestClass : RequestClass.values()) {
+      final Integer limit = classLimits.get(requestClass);
+      Preconditions.checkArgument(null == limit || limit >= 0,
+          "Invalid limit of %s requests: %s", requestClass, limit);
+      if (null != limit && limit > 0) {
+        mClassSemaphores.put(requestClass, new Semaphore(limit));
+      }
+      final String name = requestClass.name().toLowerCase();
+      mWaits.put(requestClass, Metrics.newTimer(AdmissionController.class,
+          name + "-admission-waits", TimeUnit.MILLISECONDS, TimeUnit.SECONDS));
+      mRejections.put(requestClass,
+          Metrics.newCounter(AdmissionController.class, name + "-rejections"));
+    }
+    mInstanceLimit = instanceLimit;
+    mTableLimit = tableLimit;
+    mMaxQueued = maxQueued;
+    mMaxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+    mRetryAfterSeconds = retryAfterSeconds;
+  }
+
+  /**
+   * Admits a request, waiting for a permit if needed. The permit must be released once the
+   * request is done, including its streamed response.
+   *
+   * @param instance targeted by the request.
+   * @param table targeted by the request.
+   * @param requestClass of the request.
+   * @return the permit of the request.
+   * @throws WebApplicationException with status 503 if the request is not admitted.
+   */
+  public Permit admit(String instance, String table, RequestClass requestClass) {
+    final List<Semaphore> semaphores = Lists.newArrayListWithCapacity(3);
+    if (mClassSemaphores.containsKey(requestClass)) {
+      semaphores.add(mClassSemaphores.get(requestClass));
+    }
+    if (mInstanceLimit > 0) {
+      semaphores.add(getSemaphore(mInstanceSemaphores, instance, mInstanceLimit));
+    }
+    if (mTableLimit > 0) {
+      semaphores.add(getSemaphore(mTableSemaphores, instance + "/" + table, mTableLimit));
+    }
+    if (semaphores.isEmpty()) {
+      return new Permit(semaphores);
+    }
+
+    final long start = System.nanoTime();
+    final List<Semaphore> acquired = Lists.newArrayListWithCapacity(semaphores.size());
+    boolean queued = false;
+    try {
+      for (Semaphore semaphore : semaphores) {
+        if (!semaphore.tryAcquire()) {
+          if (!queued) {
+            if (mQueued.incrementAndGet() > mMaxQueued) {
+              mQueued.decrementAndGet();
+              throw reject(instance, table, requestClass, acquired);
+            }
+            queued = true;
+          }
+          final long remainingNanos = start + mMaxWaitNanos - System.nanoTime();
+          if (remainingNanos <= 0
+              || !semaphore.tryAcquire(remainingNanos, TimeUnit.NANOSECONDS)) {
+            throw reject(instance, table, requestClass, acquired);
+          }
+        }
+        acquired.add(semaphore);
+      }
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw reject(instance, table, requestClass, acquired);
+    } finally {
+      if (queued) {
+        mQueued.decrementAndGet();
+      }
+    }
+    mWaits.get(requestClass).update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    return new Permit(acquired);
+  }
+
+  /**
+   * Returns the number of requests waiting for a permit.
+   *
+   * @return the number of queued requests.
+   */
+  public int getQueued() {
+    return mQueued.get();
+  }
+
+  /**
+   * Gets the semaphore of an instance or table, creating it if needed.
+   *
+   * @param semaphores by instance or table.
+   * @param key of the instance or table.
+   * @param limit of new semaphores.
+   * @return the semaphore.
+   */
+  private static Semaphore getSemaphore(ConcurrentMap<String, Semaphore> semaphores, String key,
+      int limit) {
+    final Semaphore semaphore = semaphores.get(key);
+    if (null != semaphore) {
+      return semaphore;
+    }
+    final Semaphore created = new Semaphore(limit);
+    final Semaphore existing = semaphores.putIfAbsent(key, created);
+    return (null != existing) ? existing : created;
+  }
+
+  /**
+   * Rejects a request, releasing the permits it acquired.
+   *
+   * @param instance targeted by the request.
+   * @param table targeted by the request.
+   * @param requestClass of the request.
+   * @param acquired semaphores whose permits are released.
+   * @return the exception to throw.
+   */
+  private WebApplicationException reject(String instance, String table,
+      RequestClass requestClass, List<Semaphore> acquired) {
+    for (Semaphore semaphore : acquired) {
+      semaphore.release();
+    }
+    mRejections.get(requestClass).inc();
+    return new WebApplicationException(
+        new IllegalStateException("Too many concurrent requests, rejected "
+            + requestClass.name().toLowerCase() + " of " + instance + "/" + table + "."),
+        Response.status(Status.SERVICE_UNAVAILABLE)
+            .header(RETRY_AFTER_HEADER, mRetryAfterSeconds)
+            .build());
+  }
+}
@@ -0,0 +1,186 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
+
+import com.google.common.io.BaseEncoding;
+
+import org.kiji.schema.KijiColumnName;
+import org.kiji.schema.KijiDataRequest;
+import org.kiji.schema.KijiDataRequestBuilder;
+import org.kiji.schema.KijiDataRequestBuilder.ColumnsDef;
+import org.kiji.schema.KijiInvalidNameException;
+import org.kiji.schema.KijiRowData;
+import org.kiji.schema.filter.KijiColumnRangeFilter;
+
+/**
+ * Position of a client paging through the cells of a single column of a row, one page per
+ * request. The position is the last qualifier returned for a map type family, or the timestamp of
+ * the oldest version returned for a fully qualified column. It is exchanged with clients as an
+ * opaque, URL safe token.
+ */
+public final class ColumnPageToken {
+
+  private static final BaseEncoding ENCODING = BaseEncoding.base64Url().omitPadding();
+
+  private final KijiColumnName mColumn;
+  private final String mLastQualifier;
+  private final long mLastTimestamp;
+
+  /**
+   * Create a token.
+   *
+   * @param column being paged through.
+   * @param lastQualifier returned, for a map type family.
+   * @param lastTimestamp returned, for a fully qualified column.
+   */
+  private ColumnPageToken(KijiColumnName column, String lastQualifier, long lastTimestamp) {
+    mColumn = column;
+    mLastQualifier = lastQualifier;
+    mLastTimestamp = lastTimestamp;
+  }
+
+  /**
+   * Returns the position after a page of a column.
+   *
+   * @param column being paged through.
+   * @param page of the column returned to the client.
+   * @param minTimestamp of the request; no version of a column is older.
+   * @return the token of the next page, or null if the page is known to be the last one.
+   * @throws IOException if the page can not be read.
+   */
+  public static ColumnPageToken after(KijiColumnName column, KijiRowData page, long minTimestamp)
+      throws IOException {
+    if (column.isFullyQualified()) {
+      if (!page.containsColumn(column.getFamily(), column.getQualifier())) {
+        return null;
+      }
+      final long lastTimestamp = Collections.min(
+          page.getTimestamps(column.getFamily(), column.getQualifier()));
+      // The next page would be empty.
+      return (lastTimestamp > minTimestamp)
+          ? new ColumnPageToken(column, null, lastTimestamp) : null;
+    } else {
+      if (!page.containsColumn(column.getFamily())) {
+        return null;
+      }
+      return new ColumnPageToken(column,
+          Collections.max(page.getQualifiers(column.getFamily())), 0);
+    }
+  }
+
+  /**
+   * Decodes a token sent by a client.
+   *
+   * @param token to decode.
+   * @return the decoded token.
+   * @throws WebApplicationException with status 400 if the token is invalid.
+   */
+  public static ColumnPageToken decode(String token) {
+    try {
+      final DataInputStream in =
+          new DataInputStream(new ByteArrayInputStream(ENCODING.decode(token)));
+      final KijiColumnName column = new KijiColumnName(in.readUTF());
+      if (column.isFullyQualified()) {
+        return new ColumnPageToken(column, null, in.readLong());
+      } else {
+        return new ColumnPageToken(column, in.readUTF(), 0);
+      }
+    } catch (IOException ioe) {
+      throw new WebApplicationException(new IllegalArgumentException(
+          "Invalid page_token: " + token), Status.BAD_REQUEST);
+    } catch (IllegalArgumentException iae) {
+      throw new WebApplicationException(new IllegalArgumentException(
+          "Invalid page_token: " + token), Status.BAD_REQUEST);
+    } catch (KijiInvalidNameException kine) {
+      throw new WebApplicationException(new IllegalArgumentException(
+          "Invalid page_token: " + token), Status.BAD_REQUEST);
+    }
+  }
+
+  /**
+   * Encodes this token to send it to a client.
+   *
+   * @return the encoded token.
+   */
+  public String encode() {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      out.writeUTF(mColumn.getName());
+      if (mColumn.isFullyQualified()) {
+        out.writeLong(mLastTimestamp);
+      } else {
+        out.writeUTF(mLastQualifier);
+      }
+      out.flush();
+    } catch (IOException ioe) {
+      // Writing to a byte array does not fail.
+      throw new IllegalStateException(ioe);
+    }
+    return ENCODING.encode(bytes.toByteArray());
+  }
+
+  /**
+   * Returns the column being paged through.
+   *
+   * @return the column being paged through.
+   */
+  public KijiColumnName getColumn() {
+    return mColumn;
+  }
+
+  /**
+   * Builds the data request of the page following this position.
+   *
+   * @param request of the first page, reading the column of this token only.
+   * @return the request of the next page.
+   */
+  public KijiDataRequest resume(KijiDataRequest request) {
+    final KijiDataRequestBuilder builder = KijiDataRequest.builder();
+    if (mColumn.isFullyQualified()) {
+      // Versions are returned newest first, and the max timestamp is exclusive.
+      builder.withTimeRange(request.getMinTimestamp(),
+          Math.min(request.getMaxTimestamp(), mLastTimestamp));
+    } else {
+      builder.withTimeRange(request.getMinTimestamp(), request.getMaxTimestamp());
+    }
+    for (KijiDataRequest.Column column : request.getColumns()) {
+      final ColumnsDef columnsDef = builder.newColumnsDef()
+          .withMaxVersions(column.getMaxVersions())
+          .withPageSize(column.getPageSize());
+      if (!mColumn.isFullyQualified()) {
+        // Qualifiers are returned in order.
+        columnsDef.withFilter(new KijiColumnRangeFilter(mLastQualifier, false, null, false));
+      }
+      columnsDef.add(column.getColumnName());
+    }
+    return builder.build();
+  }
+}
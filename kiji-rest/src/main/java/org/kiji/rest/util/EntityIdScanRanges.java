@@ -0,0 +1,174 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest.util;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import org.kiji.schema.EntityIdFactory;
+import org.kiji.schema.avro.HashSpec;
+import org.kiji.schema.avro.RowKeyEncoding;
+import org.kiji.schema.avro.RowKeyFormat2;
+import org.kiji.schema.layout.KijiTableLayout;
+
+/**
+ * Derives the key ranges to scan for a wildcarded formatted entity id from its fixed leading
+ * components, so that wildcard scans do not have to visit the whole table.
+ *
+ * <p>Formatted row keys are the optional hash of the first range_scan_start_index components
+ * followed by the encoded components, so the rows matching fixed leading components share a key
+ * prefix. When all the hashed components are fixed the prefix includes the hash and a single range
+ * is scanned. Otherwise the prefix follows an unknown hash, and one range is scanned per salt
+ * bucket, up to a configured number of buckets.</p>
+ *
+ * <p>The encoded prefix is obtained from Kiji itself: the row keys of the entity ids completed
+ * with the lowest and highest values of the first wildcarded component differ right after it.</p>
+ */
+public final class EntityIdScanRanges {
+
+  /**
+   * Blank constructor.
+   */
+  private EntityIdScanRanges() {
+  }
+
+  /**
+   * Returns the key ranges containing all the rows which may match a wildcarded entity id.
+   *
+   * @param layout of the table.
+   * @param components of the entity id, null for wildcards.
+   * @param maxSaltBuckets maximum number of ranges to scan when the hash prefix is unknown.
+   * @return the start (inclusive) and stop (exclusive, empty for the end of the table) keys of
+   *         each range in key order, or null if the whole table must be scanned.
+   */
+  public static List<byte[][]> getRanges(KijiTableLayout layout, Object[] components,
+      int maxSaltBuckets) {
+    final RowKeyFormat2 format = (RowKeyFormat2) layout.getDesc().getKeysFormat();
+    final int numFixed = getNumFixedComponents(components);
+    if (format.getEncoding() != RowKeyEncoding.FORMATTED || 0 == numFixed) {
+      return null;
+    }
+    final HashSpec salt = format.getSalt();
+    final int hashSize = (null != salt) ? salt.getHashSize() : 0;
+    if (null != salt && salt.getSuppressKeyMaterialization()) {
+      // Row keys only hold the hash.
+      return null;
+    }
+
+    final EntityIdFactory factory = EntityIdFactory.getFactory(layout);
+    final byte[] lowKey = factory.getEntityId(complete(format, components, numFixed, true))
+        .getHBaseRowKey();
+    final byte[] highKey = factory.getEntityId(complete(format, components, numFixed, false))
+        .getHBaseRowKey();
+    int prefixLength = hashSize;
+    while (prefixLength < lowKey.length && prefixLength < highKey.length
+        && lowKey[prefixLength] == highKey[prefixLength]) {
+      prefixLength++;
+    }
+
+    final int numHashed = (null != salt) ? format.getRangeScanStartIndex() : 0;
+    if (numFixed >= numHashed) {
+      // The hash only depends on fixed components.
+      final byte[] start = Arrays.copyOf(lowKey, prefixLength);
+      return ImmutableList.of(new byte[][] {start, getStopKey(start)});
+    }
+
+    if (hashSize >= 4 || (1 << (8 * hashSize)) > maxSaltBuckets) {
+      return null;
+    }
+    final int numBuckets = 1 << (8 * hashSize);
+    final List<byte[][]> ranges = Lists.newArrayListWithCapacity(numBuckets);
+    for (int bucket = 0; bucket < numBuckets; bucket++) {
+      final byte[] start = Arrays.copyOf(lowKey, prefixLength);
+      for (int i = 0; i < hashSize; i++) {
+        start[i] = (byte) (bucket >>> (8 * (hashSize - 1 - i)));
+      }
+      ranges.add(new byte[][] {start, getStopKey(start)});
+    }
+    return ranges;
+  }
+
+  /**
+   * Returns the number of leading components which are not wildcarded.
+   *
+   * @param components of an entity id, null for wildcards.
+   * @return the number of fixed leading components.
+   */
+  public static int getNumFixedComponents(Object[] components) {
+    int numFixed = 0;
+    while (numFixed < components.length && null != components[numFixed]) {
+      numFixed++;
+    }
+    return numFixed;
+  }
+
+  /**
+   * Replaces the wildcards of an entity id with values of the types of the components.
+   *
+   * @param format of the row keys.
+   * @param components of the entity id, null for wildcards.
+   * @param numFixed number of fixed leading components.
+   * @param low whether to use the lowest or the highest value of the first wildcard.
+   * @return the completed components.
+   */
+  private static Object[] complete(RowKeyFormat2 format, Object[] components, int numFixed,
+      boolean low) {
+    final Object[] completed = Arrays.copyOf(components, format.getComponents().size());
+    for (int i = numFixed; i < completed.length; i++) {
+      if (null != completed[i]) {
+        continue;
+      }
+      // Only the first wildcard needs distinct values, whose encodings differ in their first byte.
+      final boolean lowest = low || i > numFixed;
+      switch (format.getComponents().get(i).getType()) {
+        case INTEGER:
+          completed[i] = lowest ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+          break;
+        case LONG:
+          completed[i] = lowest ? Long.MIN_VALUE : Long.MAX_VALUE;
+          break;
+        default:
+          completed[i] = lowest ? "\u0001" : "\u007f";
+          break;
+      }
+    }
+    return completed;
+  }
+
+  /**
+   * Returns the first key after all the keys starting with a prefix.
+   *
+   * @param prefix of the keys.
+   * @return the exclusive stop key of the prefix, empty if there is no such key.
+   */
+  private static byte[] getStopKey(byte[] prefix) {
+    for (int i = prefix.length - 1; i >= 0; i--) {
+      if (prefix[i] != (byte) 0xff) {
+        final byte[] stop = Arrays.copyOf(prefix, i + 1);
+        stop[i]++;
+        return stop;
+      }
+    }
+    return new byte[0];
+  }
+}
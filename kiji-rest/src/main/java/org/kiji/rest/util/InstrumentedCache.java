@@ -0,0 +1,264 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest.util;
+
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalListener;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Gauge;
+import com.yammer.metrics.core.MetricName;
+import com.yammer.metrics.core.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A loading cache configured by a Guava cache spec (see
+ * {@link com.google.common.cache.CacheBuilderSpec}), such as
+ * "maximumSize=100,expireAfterAccess=10m,refreshAfterWrite=1h", which records its statistics.
+ * The hits, misses, average load time, evictions and size of the cache are exported as metrics
+ * named after the cache, scoped by the owner of the cache, e.g. the instance of a table cache.
+ *
+ * <p>The spec of the cache may be changed while it serves requests. The cached values are moved
+ * to a new cache built with the new spec, which evicts the values beyond its bounds. Values are
+ * released by the removal listener when they are evicted, expire, are replaced by a refresh, or
+ * are invalidated, but not when they are moved. Values loaded into the previous cache while the
+ * values are moved are moved as well, since requests may be using them.</p>
+ *
+ * @param <K> type of the keys.
+ * @param <V> type of the cached values.
+ */
+public final class InstrumentedCache<K, V> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(InstrumentedCache.class);
+
+  private final String mName;
+  private final CacheLoader<K, V> mLoader;
+  private final RemovalListener<K, V> mRemovalListener;
+  private final Map<MetricName, Gauge<?>> mGauges = Maps.newHashMap();
+
+  /** Current spec of the cache. */
+  private volatile String mSpec;
+
+  /** Current cache, replaced when the spec changes. */
+  private volatile LoadingCache<K, V> mCache;
+
+  /** Statistics of the caches replaced by spec changes. Guarded by this. */
+  private CacheStats mRetiredStats = new CacheStats(0, 0, 0, 0, 0, 0);
+
+  /**
+   * Create a cache.
+   *
+   * @param owner class, under which the metrics of the cache are named.
+   * @param name of the cache, prefixing the names of its metrics.
+   * @param scope of the metrics of the cache, or null.
+   * @param spec of the cache.
+   * @param loader loading the values of the cache.
+   * @param removalListener releasing the values removed from the cache.
+   * @throws IllegalArgumentException if the spec is invalid.
+   */
+  public InstrumentedCache(Class<?> owner, String name, String scope, String spec,
+      CacheLoader<K, V> loader, RemovalListener<K, V> removalListener) {
+    mName = name;
+    mLoader = loader;
+    mRemovalListener = removalListener;
+    mSpec = spec;
+    mCache = build(spec);
+    addGauge(owner, "hits", scope, new Gauge<Long>() {
+      @Override
+      public Long value() {
+        return stats().hitCount();
+      }
+    });
+    addGauge(owner, "misses", scope, new Gauge<Long>() {
+      @Override
+      public Long value() {
+        return stats().missCount();
+      }
+    });
+    addGauge(owner, "load-time-ms", scope, new Gauge<Double>() {
+      @Override
+      public Double value() {
+        return stats().averageLoadPenalty() / 1000000.0;
+      }
+    });
+    addGauge(owner, "evictions", scope, new Gauge<Long>() {
+      @Override
+      public Long value() {
+        return stats().evictionCount();
+      }
+    });
+    addGauge(owner, "size", scope, new Gauge<Long>() {
+      @Override
+      public Long value() {
+        return size();
+      }
+    });
+  }
+
+  /**
+   * Builds a cache.
+   *
+   * @param spec of the cache.
+   * @return the cache.
+   * @throws IllegalArgumentException if the spec is invalid.
+   */
+  private LoadingCache<K, V> build(String spec) {
+    return CacheBuilder.from(spec)
+        .recordStats()
+        .removalListener(mRemovalListener)
+        .build(mLoader);
+  }
+
+  /**
+   * Registers a metric of the cache, replacing the metric of a previous cache of the same name
+   * and scope.
+   *
+   * @param owner class of the cache.
+   * @param metric name of the metric, prefixed by the name of the cache.
+   * @param scope of the metric, or null.
+   * @param gauge reading the metric.
+   */
+  private void addGauge(Class<?> owner, String metric, String scope, Gauge<?> gauge) {
+    final MetricName metricName = new MetricName(owner, mName + "-" + metric, scope);
+    Metrics.defaultRegistry().removeMetric(metricName);
+    mGauges.put(metricName, Metrics.newGauge(metricName, gauge));
+  }
+
+  /**
+   * Returns the name of the cache.
+   *
+   * @return the name of the cache.
+   */
+  public String getName() {
+    return mName;
+  }
+
+  /**
+   * Returns the spec of the cache.
+   *
+   * @return the spec of the cache.
+   */
+  public String getSpec() {
+    return mSpec;
+  }
+
+  /**
+   * Gets the value of a key, loading it if needed.
+   *
+   * @param key of the value.
+   * @return the value.
+   * @throws ExecutionException if the value can not be loaded.
+   */
+  public V get(K key) throws ExecutionException {
+    return mCache.get(key);
+  }
+
+  /**
+   * Returns a view of the cached values.
+   *
+   * @return the cached values, by key.
+   */
+  public Map<K, V> asMap() {
+    return mCache.asMap();
+  }
+
+  /**
+   * Returns the approximate number of cached values.
+   *
+   * @return the size of the cache.
+   */
+  public long size() {
+    return mCache.size();
+  }
+
+  /**
+   * Returns the statistics of the cache, since it was created.
+   *
+   * @return the statistics of the cache.
+   */
+  public synchronized CacheStats stats() {
+    return mRetiredStats.plus(mCache.stats());
+  }
+
+  /**
+   * Invalidates a cached value.
+   *
+   * @param key of the value.
+   */
+  public void invalidate(K key) {
+    mCache.invalidate(key);
+  }
+
+  /** Invalidates all cached values and releases them. */
+  public void invalidateAll() {
+    mCache.invalidateAll();
+    mCache.cleanUp();
+  }
+
+  /**
+   * Replaces the spec of the cache, keeping the cached values within its new bounds.
+   *
+   * @param spec of the cache.
+   * @throws IllegalArgumentException if the spec is invalid.
+   */
+  public synchronized void setSpec(String spec) {
+    final LoadingCache<K, V> cache = build(spec);
+    final LoadingCache<K, V> retired = mCache;
+    final Map<K, V> moved = ImmutableMap.copyOf(retired.asMap());
+    // Evicts the values beyond the bounds of the new cache.
+    cache.putAll(moved);
+    mCache = cache;
+    mSpec = spec;
+    // Moves the values loaded into the retired cache while the values were moved. Requests may
+    // be using them, so they are not released.
+    for (Map.Entry<K, V> entry : retired.asMap().entrySet()) {
+      if (moved.get(entry.getKey()) != entry.getValue()) {
+        final V existing = cache.asMap().putIfAbsent(entry.getKey(), entry.getValue());
+        if (null != existing && existing != entry.getValue()) {
+          // Loaded again since the swap: left to the retired cache, which is not released.
+          LOG.warn("Not releasing {} of {} loaded while cache {} was changed.",
+              entry.getValue(), entry.getKey(), mName);
+        }
+      }
+    }
+    mRetiredStats = mRetiredStats.plus(retired.stats());
+  }
+
+  /**
+   * Unregisters the metrics of the cache, unless they were replaced by those of a newer cache of
+   * the same name and scope.
+   */
+  public void removeMetrics() {
+    final MetricsRegistry registry = Metrics.defaultRegistry();
+    for (Map.Entry<MetricName, Gauge<?>> gauge : mGauges.entrySet()) {
+      if (registry.allMetrics().get(gauge.getKey()) == gauge.getValue()) {
+        registry.removeMetric(gauge.getKey());
+      }
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest.util;
+
+import java.io.IOException;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.JsonDecoder;
+
+/**
+ * Decodes the JSON values of POST-ed cells into Avro data, keeping a ready-to-use datum reader
+ * for each schema instead of resolving the schema for every cell. Each thread also reuses its
+ * own JsonDecoder per schema, reconfigured with the value to decode.
+ *
+ * <p>The cache is bounded, and held by the KijiInstanceCache of an instance so that it is
+ * discarded along with the other resources of the instance.</p>
+ */
+public class JsonDecoderCache {
+
+  /** Maximum number of schemas to hold decoders for. */
+  private static final long MAX_SCHEMAS = 1000;
+
+  private final LoadingCache<Schema, SchemaDecoder> mDecoders =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_SCHEMAS)
+          .build(
+              new CacheLoader<Schema, SchemaDecoder>() {
+                @Override
+                public SchemaDecoder load(Schema schema) {
+                  return new SchemaDecoder(schema);
+                }
+              }
+          );
+
+  /**
+   * Decodes the JSON value of a cell. Strings are not JSON-decoded: clients post them unquoted,
+   * matching what GET returns.
+   *
+   * @param jsonValue to decode.
+   * @param schema of the value.
+   * @return the decoded datum.
+   * @throws IOException if the value can not be decoded with the schema.
+   */
+  public Object decode(String jsonValue, Schema schema) throws IOException {
+    Preconditions.checkNotNull(schema);
+    if (schema.getType() == Schema.Type.STRING) {
+      return jsonValue;
+    }
+    return mDecoders.getUnchecked(schema).decode(jsonValue);
+  }
+
+  /**
+   * Discards all decoders held by this cache.
+   */
+  public void invalidateAll() {
+    mDecoders.invalidateAll();
+    mDecoders.cleanUp();
+  }
+
+  /** The datum reader of a schema, and the JsonDecoder of each thread for that schema. */
+  private static final class SchemaDecoder {
+    private final Schema mSchema;
+    private final GenericDatumReader<Object> mReader;
+    private final ThreadLocal<JsonDecoder> mDecoder = new ThreadLocal<JsonDecoder>();
+
+    /**
+     * Create the decoder of a schema.
+     *
+     * @param schema to decode values of.
+     */
+    private SchemaDecoder(Schema schema) {
+      mSchema = schema;
+      mReader = new GenericDatumReader<Object>(schema);
+    }
+
+    /**
+     * Decodes a JSON value.
+     *
+     * @param jsonValue to decode.
+     * @return the decoded datum.
+     * @throws IOException if the value can not be decoded.
+     */
+    private Object decode(String jsonValue) throws IOException {
+      JsonDecoder decoder = mDecoder.get();
+      if (null == decoder) {
+        decoder = DecoderFactory.get().jsonDecoder(mSchema, jsonValue);
+        mDecoder.set(decoder);
+      } else {
+        decoder.configure(jsonValue);
+      }
+      return mReader.read(null, decoder);
+    }
+  }
+}
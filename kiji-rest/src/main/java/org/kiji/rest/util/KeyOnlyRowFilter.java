@@ -0,0 +1,108 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest.util;
+
+import java.io.IOException;
+
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.node.JsonNodeFactory;
+
+import org.kiji.schema.KijiDataRequest;
+import org.kiji.schema.filter.KijiRowFilter;
+import org.kiji.schema.filter.KijiRowFilterDeserializer;
+
+/**
+ * Row filter for scans which only read the row keys. Region servers return the cells without
+ * their values, with HBase's {@link KeyOnlyFilter}, and optionally only the first cell of each
+ * row, with HBase's {@link FirstKeyOnlyFilter}.
+ *
+ * <p>Only returning the first cell of a row hides the other cells from the filters evaluated
+ * along with this one, so it may only be requested when rows are not filtered on their cells.
+ * Within a conjunction of filters, this filter must come after the filters reading values.</p>
+ */
+public final class KeyOnlyRowFilter extends KijiRowFilter {
+
+  private final boolean mFirstKeyOnly;
+
+  /**
+   * Create a key only filter.
+   *
+   * @param firstKeyOnly whether to only return the first cell of each row.
+   */
+  public KeyOnlyRowFilter(boolean firstKeyOnly) {
+    mFirstKeyOnly = firstKeyOnly;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public KijiDataRequest getDataRequest() {
+    return KijiDataRequest.builder().build();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Filter toHBaseFilter(Context context) throws IOException {
+    if (!mFirstKeyOnly) {
+      return new KeyOnlyFilter();
+    }
+    final FilterList filters = new FilterList(FilterList.Operator.MUST_PASS_ALL);
+    filters.addFilter(new FirstKeyOnlyFilter());
+    filters.addFilter(new KeyOnlyFilter());
+    return filters;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected JsonNode toJsonNode() {
+    return JsonNodeFactory.instance.booleanNode(mFirstKeyOnly);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected Class<? extends KijiRowFilterDeserializer> getDeserializerClass() {
+    return KeyOnlyRowFilterDeserializer.class;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean equals(Object other) {
+    return (other instanceof KeyOnlyRowFilter)
+        && ((KeyOnlyRowFilter) other).mFirstKeyOnly == mFirstKeyOnly;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int hashCode() {
+    return mFirstKeyOnly ? 1 : 0;
+  }
+
+  /** Deserializes {@link KeyOnlyRowFilter}. */
+  public static final class KeyOnlyRowFilterDeserializer implements KijiRowFilterDeserializer {
+    /** {@inheritDoc} */
+    @Override
+    public KijiRowFilter createFromJson(JsonNode root) {
+      return new KeyOnlyRowFilter(root.getBooleanValue());
+    }
+  }
+}
@@ -21,16 +21,15 @@ package org.kiji.rest.util;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
 
 import com.google.common.base.Preconditions;
-import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,8 +41,12 @@ import org.kiji.schema.KijiURI;
 import org.kiji.scoring.FreshKijiTableReader;
 
 /**
- * A cache object containing all Kiji, KijiTable, and FreshKijiTableReader objects for a Kiji
- * instance. Handles the creation and lifecycle of instances.
+ * A cache object containing all Kiji, KijiTable, KijiTableReaderPool and FreshKijiTableReader
+ * objects for a Kiji instance. Handles the creation and lifecycle of instances.
+ *
+ * <p>KijiTables, FreshKijiTableReaders and KijiTableReaderPools are held by
+ * {@link InstrumentedCache}s, whose specs are configurable and may be changed while the instance
+ * is served.</p>
  */
 public class KijiInstanceCache {
 
@@ -51,93 +54,168 @@ public class KijiInstanceCache {
 
   private static final long TEN_MINUTES = 10 * 60 * 1000;
 
+  /** Name of the cache of KijiTables. */
+  public static final String TABLES = "tables";
+
+  /** Name of the cache of FreshKijiTableReaders. */
+  public static final String FRESH_READERS = "fresh-readers";
+
+  /** Name of the cache of KijiTableReaderPools. */
+  public static final String READER_POOLS = "reader-pools";
+
+  /** Spec of the caches which are not configured. */
+  public static final String DEFAULT_SPEC = "expireAfterAccess=10m";
+
+  /** Maximum number of idle KijiTableReaders kept open per table. */
+  private static final int MAX_IDLE_READERS = 16;
+
   /** Determines whether new values can be loaded into the contained caches. */
   private volatile boolean mIsOpen = true;
 
   private final Kiji mKiji;
 
-  private final LoadingCache<String, KijiTable> mTables =
-      CacheBuilder.newBuilder()
-          // Expire table if it has not been used in 10 minutes
-          // TODO (REST-133): Make this value configurable
-          .expireAfterAccess(10, TimeUnit.MINUTES)
-          .removalListener(
-              new RemovalListener<String, KijiTable>() {
-                @Override
-                public void onRemoval(RemovalNotification<String, KijiTable> notification) {
-                  try {
-                    notification.getValue().release(); // strong cache; should not be null
-                  } catch (IOException e) {
-                    LOG.warn("Unable to release KijiTable {} with name {}.",
-                        notification.getValue(), notification.getValue());
-                  }
-                }
-              }
-          )
-          .build(
-              new CacheLoader<String, KijiTable>() {
-                @Override
-                public KijiTable load(String table) throws IOException {
-                  Preconditions.checkState(mIsOpen, "Cannot open KijiTable in closed cache.");
-                  return mKiji.openTable(table);
-                }
-              }
-          );
-
-  private final LoadingCache<String, FreshKijiTableReader> mFreshReaders =
-      CacheBuilder.newBuilder()
-          // Expire fresh reader if it has not been used in 10 minutes
-          // TODO (REST-133): Make this value configurable
-          .expireAfterAccess(10, TimeUnit.MINUTES)
-          .removalListener(
-              new RemovalListener<String, FreshKijiTableReader>() {
-                @Override
-                public void onRemoval(
-                    RemovalNotification<String,
-                    FreshKijiTableReader> notification
-                ) {
-                  try {
-                    notification.getValue().close(); // strong cache; should not be null
-                  } catch (IOException e) {
-                    LOG.warn("Unable to close FreshKijiTableReader {} on table {}.",
-                        notification.getValue(), notification.getValue());
-                  }
-                }
-              }
-          )
-          .build(
-              new CacheLoader<String, FreshKijiTableReader>() {
-                @Override
-                public FreshKijiTableReader load(String table) throws IOException {
-                  try {
-                    Preconditions.checkState(mIsOpen,
-                        "Cannot open FreshKijiTableReader in closed cache.");
-                    return FreshKijiTableReader.Builder.create()
-                        .withTable(mTables.get(table))
-                        .withAutomaticReread(TEN_MINUTES)
-                        .withPartialFreshening(false)
-                        .build();
-                  } catch (ExecutionException e) {
-                    // Unwrap (if possible) and rethrow. Will be caught by #getFreshKijiTableReader.
-                    if (e.getCause() instanceof IOException) {
-                      throw (IOException) e.getCause();
-                    } else {
-                      throw new IOException(e.getCause());
-                    }
-                  }
-                }
-              }
-          );
+  private final SchemaIdCache mSchemaIds;
+
+  private final JsonDecoderCache mJsonDecoders = new JsonDecoderCache();
+
+  private final InstrumentedCache<String, KijiTable> mTables;
+
+  private final InstrumentedCache<String, FreshKijiTableReader> mFreshReaders;
+
+  private final InstrumentedCache<String, KijiTableReaderPool> mReaderPools;
 
   /**
+   * Create a new KijiInstanceCache which caches the instance at the provided URI, with the
+   * default specs of its caches.
    *
+   * @param uri of instance to cache access to.
+   * @throws IOException if error while opening kiji.
+   */
+  public KijiInstanceCache(KijiURI uri) throws IOException {
+    this(uri, ImmutableMap.<String, String>of());
+  }
+
+  /**
    * Create a new KijiInstanceCache which caches the instance at the provided URI.
    *
    * @param uri of instance to cache access to.
+   * @param specs of the caches of tables, fresh readers and reader pools, by cache name (see
+   *        {@link #TABLES}, {@link #FRESH_READERS} and {@link #READER_POOLS}). Caches without a
+   *        spec expire their entries after 10 minutes without access.
    * @throws IOException if error while opening kiji.
    */
-  public KijiInstanceCache(KijiURI uri) throws IOException {
+  public KijiInstanceCache(KijiURI uri, Map<String, String> specs) throws IOException {
     mKiji = Kiji.Factory.open(uri);
+    mSchemaIds = new SchemaIdCache(mKiji.getSchemaTable(), uri.getInstance());
+    final String instance = uri.getInstance();
+    mTables = new InstrumentedCache<String, KijiTable>(
+        KijiInstanceCache.class, TABLES, instance, getSpec(specs, TABLES),
+        new CacheLoader<String, KijiTable>() {
+          @Override
+          public KijiTable load(String table) throws IOException {
+            Preconditions.checkState(mIsOpen, "Cannot open KijiTable in closed cache.");
+            return mKiji.openTable(table);
+          }
+        },
+        new RemovalListener<String, KijiTable>() {
+          @Override
+          public void onRemoval(RemovalNotification<String, KijiTable> notification) {
+            try {
+              notification.getValue().release(); // strong cache; should not be null
+            } catch (IOException e) {
+              LOG.warn("Unable to release KijiTable {} with name {}.",
+                  notification.getValue(), notification.getValue());
+            }
+          }
+        });
+    mFreshReaders = new InstrumentedCache<String, FreshKijiTableReader>(
+        KijiInstanceCache.class, FRESH_READERS, instance, getSpec(specs, FRESH_READERS),
+        new CacheLoader<String, FreshKijiTableReader>() {
+          @Override
+          public FreshKijiTableReader load(String table) throws IOException {
+            try {
+              Preconditions.checkState(mIsOpen,
+                  "Cannot open FreshKijiTableReader in closed cache.");
+              return FreshKijiTableReader.Builder.create()
+                  .withTable(mTables.get(table))
+                  .withAutomaticReread(TEN_MINUTES)
+                  .withPartialFreshening(false)
+                  .build();
+            } catch (ExecutionException e) {
+              // Unwrap (if possible) and rethrow. Will be caught by #getFreshKijiTableReader.
+              if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+              } else {
+                throw new IOException(e.getCause());
+              }
+            }
+          }
+        },
+        new RemovalListener<String, FreshKijiTableReader>() {
+          @Override
+          public void onRemoval(
+              RemovalNotification<String,
+              FreshKijiTableReader> notification
+          ) {
+            try {
+              notification.getValue().close(); // strong cache; should not be null
+            } catch (IOException e) {
+              LOG.warn("Unable to close FreshKijiTableReader {} on table {}.",
+                  notification.getValue(), notification.getValue());
+            }
+          }
+        });
+    mReaderPools = new InstrumentedCache<String, KijiTableReaderPool>(
+        KijiInstanceCache.class, READER_POOLS, instance, getSpec(specs, READER_POOLS),
+        new CacheLoader<String, KijiTableReaderPool>() {
+          @Override
+          public KijiTableReaderPool load(String table) throws IOException {
+            try {
+              Preconditions.checkState(mIsOpen,
+                  "Cannot open KijiTableReaderPool in closed cache.");
+              return new KijiTableReaderPool(mTables.get(table), MAX_IDLE_READERS);
+            } catch (ExecutionException e) {
+              // Unwrap (if possible) and rethrow. Will be caught by #getKijiTableReaderPool.
+              if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+              } else {
+                throw new IOException(e.getCause());
+              }
+            }
+          }
+        },
+        new RemovalListener<String, KijiTableReaderPool>() {
+          @Override
+          public void onRemoval(
+              RemovalNotification<String, KijiTableReaderPool> notification
+          ) {
+            notification.getValue().close(); // strong cache; should not be null
+          }
+        });
+  }
+
+  /**
+   * Returns the spec of a cache.
+   *
+   * @param specs of the caches, by name.
+   * @param name of the cache.
+   * @return the spec of the cache, or the default spec if none is given.
+   */
+  private static String getSpec(Map<String, String> specs, String name) {
+    final String spec = specs.get(name);
+    return (null != spec) ? spec : DEFAULT_SPEC;
+  }
+
+  /**
+   * Returns the caches of tables, fresh readers and reader pools held by this cache, by name.
+   *
+   * @return the caches of this instance.
+   */
+  public Map<String, InstrumentedCache<String, ?>> getCaches() {
+    return ImmutableMap.<String, InstrumentedCache<String, ?>>of(
+        TABLES, mTables,
+        FRESH_READERS, mFreshReaders,
+        READER_POOLS, mReaderPools);
   }
 
   /**
@@ -149,6 +227,26 @@ public class KijiInstanceCache {
     return mKiji;
   }
 
+  /**
+   * Returns the schema id cache in front of the schema table of the Kiji instance held by this
+   * cache.
+   *
+   * @return the SchemaIdCache of the Kiji instance.
+   */
+  public SchemaIdCache getSchemaIdCache() {
+    return mSchemaIds;
+  }
+
+  /**
+   * Returns the cache of decoders for the JSON values of cells written to the Kiji instance held
+   * by this cache.
+   *
+   * @return the JsonDecoderCache of the Kiji instance.
+   */
+  public JsonDecoderCache getJsonDecoderCache() {
+    return mJsonDecoders;
+  }
+
   /**
    * Returns the KijiTable instance for the table name held by this cache.  This KijiTable instance
    * should *NOT* be released.
@@ -174,11 +272,25 @@ public class KijiInstanceCache {
   }
 
   /**
-   * Invalidates cached KijiTable and KijiFreshTableReader instances for a table.
+   * Returns the pool of KijiTableReaders for the table held by this cache.  Readers borrowed from
+   * the pool must be returned to it and should *NOT* be closed.
+   *
+   * @param table name.
+   * @return the KijiTableReaderPool for the table.
+   * @throws ExecutionException if a KijiTableReaderPool cannot be created for the table.
+   */
+  public KijiTableReaderPool getKijiTableReaderPool(String table) throws ExecutionException {
+    return mReaderPools.get(table);
+  }
+
+  /**
+   * Invalidates cached KijiTable, KijiTableReaderPool and KijiFreshTableReader instances for a
+   * table.
    *
    * @param table name to be invalidated.
    */
   public void invalidateTable(String table) {
+    mReaderPools.invalidate(table);
     mTables.invalidate(table);
     mFreshReaders.invalidate(table);
   }
@@ -191,9 +303,12 @@ public class KijiInstanceCache {
   public void stop() throws IOException {
     mIsOpen = false; // Stop caches from loading more entries
     mFreshReaders.invalidateAll();
-    mFreshReaders.cleanUp();
+    mReaderPools.invalidateAll();
     mTables.invalidateAll();
-    mTables.cleanUp();
+    for (InstrumentedCache<String, ?> cache : getCaches().values()) {
+      cache.removeMetrics();
+    }
+    mJsonDecoders.invalidateAll();
     mKiji.release();
   }
 
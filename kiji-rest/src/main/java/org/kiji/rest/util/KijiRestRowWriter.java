@@ -0,0 +1,356 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+
+import org.kiji.rest.representations.KijiRestCell;
+import org.kiji.rest.representations.KijiRestRow;
+import org.kiji.schema.EntityId;
+import org.kiji.schema.KijiBufferedWriter;
+import org.kiji.schema.KijiCell;
+import org.kiji.schema.KijiColumnName;
+import org.kiji.schema.KijiSchemaTable;
+import org.kiji.schema.KijiTable;
+import org.kiji.schema.KijiTableWriter;
+import org.kiji.schema.avro.SchemaType;
+import org.kiji.schema.util.ResourceUtils;
+
+/**
+ * Writes KijiRestRows to a Kiji table through a single KijiBufferedWriter, so that posting many
+ * rows batches puts instead of sending them one cell at a time.
+ *
+ * <p>Each row is fully decoded and validated before any of its cells is written, so that a row
+ * which is rejected leaves nothing behind in the buffer. Counter cells are not supported by the
+ * buffered writer and are written through a KijiTableWriter, opened on first use, after flushing
+ * the buffer to preserve the order of writes.</p>
+ *
+ * <p>The writer is flushed every <code>flushRows</code> rows, if positive, and on
+ * {@link #flush()} or {@link #close()}.</p>
+ */
+public class KijiRestRowWriter implements Closeable {
+
+  private static final ObjectMapper BASIC_MAPPER = new ObjectMapper();
+  private static final String COUNTER_INCREMENT_KEY = "incr";
+
+  private final KijiTable mTable;
+  private final KijiSchemaTable mSchemaTable;
+  private final JsonDecoderCache mJsonDecoders;
+  private final KijiBufferedWriter mBufferedWriter;
+  private final int mFlushRows;
+
+  /** Writer for counter cells, opened on first use. */
+  private KijiTableWriter mCounterWriter = null;
+
+  /** Number of rows written since the last flush. */
+  private int mUnflushedRows = 0;
+
+  /**
+   * Opens a new row writer on a table.
+   *
+   * @param table to write rows into.
+   * @param schemaTable used to resolve the writer schemas of cells specified as UIDs.
+   * @param jsonDecoders used to decode the values of cells.
+   * @param bufferSize in bytes of the write buffer, or 0 to use the default size.
+   * @param flushRows number of rows between flushes, or 0 to only flush when asked to.
+   * @throws IOException if the writer can not be opened.
+   */
+  public KijiRestRowWriter(KijiTable table, KijiSchemaTable schemaTable,
+      JsonDecoderCache jsonDecoders, long bufferSize, int flushRows) throws IOException {
+    mTable = table;
+    mSchemaTable = schemaTable;
+    mJsonDecoders = jsonDecoders;
+    mFlushRows = flushRows;
+    mBufferedWriter = table.getWriterFactory().openBufferedWriter();
+    if (bufferSize > 0) {
+      try {
+        mBufferedWriter.setBufferSize(bufferSize);
+      } catch (IOException ioe) {
+        ResourceUtils.closeOrLog(mBufferedWriter);
+        throw ioe;
+      }
+    }
+  }
+
+  /**
+   * Writes a row. Cells are buffered unless they belong to counter columns.
+   *
+   * @param entityId of the row to write.
+   * @param kijiRestRow containing the cells to write.
+   * @throws WebApplicationException if the row is not valid, in which case nothing is written.
+   * @throws IOException if writing to the table fails.
+   */
+  public void write(EntityId entityId, KijiRestRow kijiRestRow) throws IOException {
+    apply(entityId, prepare(kijiRestRow));
+  }
+
+  /**
+   * Writes a row of cells which are already decoded. Cells of counter columns must hold a long
+   * value to set the counter to.
+   *
+   * @param entityId of the row to write.
+   * @param kijiCells to write.
+   * @throws WebApplicationException if the row is not valid, in which case nothing is written.
+   * @throws IOException if writing to the table fails.
+   */
+  public void writeCells(EntityId entityId, List<KijiCell<Object>> kijiCells) throws IOException {
+    final List<PendingCell> cells = Lists.newArrayListWithCapacity(kijiCells.size());
+    for (KijiCell<Object> kijiCell : kijiCells) {
+      final KijiColumnName column =
+          new KijiColumnName(kijiCell.getFamily(), kijiCell.getQualifier());
+      if (!mTable.getLayout().exists(column)) {
+        throw new WebApplicationException(new IllegalArgumentException(
+            "Specified column does not exist: " + column), Response.Status.BAD_REQUEST);
+      }
+      if (SchemaType.COUNTER == mTable.getLayout().getCellSchema(column).getType()) {
+        if (!(kijiCell.getData() instanceof Long)) {
+          throw new WebApplicationException(
+              new IllegalArgumentException("Counter value could not be parsed as long: "
+                  + kijiCell.getData() + ". Provide a long value to set the counter."),
+              Response.Status.BAD_REQUEST);
+        }
+        cells.add(new PendingCell(column, kijiCell.getTimestamp(), kijiCell.getData(), true,
+            false));
+      } else {
+        cells.add(new PendingCell(column, kijiCell.getTimestamp(), kijiCell.getData(), false,
+            false));
+      }
+    }
+    apply(entityId, cells);
+  }
+
+  /**
+   * Writes the decoded cells of a row.
+   *
+   * @param entityId of the row to write.
+   * @param cells to write.
+   * @throws IOException if writing to the table fails.
+   */
+  private void apply(EntityId entityId, List<PendingCell> cells) throws IOException {
+    for (PendingCell cell : cells) {
+      final KijiColumnName column = cell.mColumn;
+      if (cell.mIsIncrement) {
+        getCounterWriter().increment(entityId, column.getFamily(), column.getQualifier(),
+            (Long) cell.mValue);
+      } else if (cell.mIsCounter) {
+        getCounterWriter().put(entityId, column.getFamily(), column.getQualifier(),
+            cell.mTimestamp, (Long) cell.mValue);
+      } else {
+        mBufferedWriter.put(entityId, column.getFamily(), column.getQualifier(),
+            cell.mTimestamp, cell.mValue);
+      }
+    }
+    mUnflushedRows++;
+    if (mFlushRows > 0 && mUnflushedRows >= mFlushRows) {
+      flush();
+    }
+  }
+
+  /**
+   * Sends all buffered cells to the table.
+   *
+   * @throws IOException if writing to the table fails.
+   */
+  public void flush() throws IOException {
+    mBufferedWriter.flush();
+    mUnflushedRows = 0;
+  }
+
+  /**
+   * Flushes and closes the underlying writers.
+   *
+   * @throws IOException if the buffered cells can not be written.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      mBufferedWriter.close();
+    } finally {
+      if (null != mCounterWriter) {
+        ResourceUtils.closeOrLog(mCounterWriter);
+      }
+    }
+  }
+
+  /**
+   * Returns the writer for counter cells, flushing buffered cells first so that counter writes
+   * are applied after the cells written before them.
+   *
+   * @return the writer for counter cells.
+   * @throws IOException if the writer can not be opened or the buffer can not be flushed.
+   */
+  private KijiTableWriter getCounterWriter() throws IOException {
+    mBufferedWriter.flush();
+    if (null == mCounterWriter) {
+      mCounterWriter = mTable.openTableWriter();
+    }
+    return mCounterWriter;
+  }
+
+  /**
+   * Decodes and validates all cells of a row.
+   *
+   * @param kijiRestRow to decode.
+   * @return the cells to write.
+   * @throws WebApplicationException if any cell is not valid.
+   * @throws IOException if the schema table can not be reached.
+   */
+  private List<PendingCell> prepare(KijiRestRow kijiRestRow) throws IOException {
+    // Default global timestamp.
+    final long globalTimestamp = System.currentTimeMillis();
+    final List<PendingCell> cells = Lists.newArrayList();
+
+    for (Entry<String, NavigableMap<String, List<KijiRestCell>>> familyEntry : kijiRestRow
+        .getCells().entrySet()) {
+      String columnFamily = familyEntry.getKey();
+      NavigableMap<String, List<KijiRestCell>> qualifiedCells = familyEntry.getValue();
+      for (Entry<String, List<KijiRestCell>> qualifiedCell : qualifiedCells.entrySet()) {
+        final KijiColumnName column = new KijiColumnName(columnFamily, qualifiedCell.getKey());
+        if (!mTable.getLayout().exists(column)) {
+          throw new WebApplicationException(new IllegalArgumentException(
+              "Specified column does not exist: " + column), Response.Status.BAD_REQUEST);
+        }
+        final boolean isCounter =
+            SchemaType.COUNTER == mTable.getLayout().getCellSchema(column).getType();
+
+        for (KijiRestCell restCell : qualifiedCell.getValue()) {
+          final long timestamp;
+          if (null != restCell.getTimestamp()) {
+            timestamp = restCell.getTimestamp();
+          } else {
+            timestamp = globalTimestamp;
+          }
+          if (timestamp < 0) {
+            continue;
+          }
+          if (isCounter) {
+            cells.add(prepareCounter(column, timestamp, restCell));
+          } else {
+            // TODO: This is ugly. Converting from Map to JSON to String.
+            String jsonValue = restCell.getValue().toString();
+            if (restCell.getValue() instanceof Map<?, ?>) {
+              JsonNode node = BASIC_MAPPER.valueToTree(restCell.getValue());
+              jsonValue = node.toString();
+            }
+            Schema actualWriter = restCell.getWriterSchema(mSchemaTable);
+            if (actualWriter == null) {
+              throw new WebApplicationException(new IllegalArgumentException(
+                  "Unrecognized schema " + restCell.getValue()), Response.Status.BAD_REQUEST);
+            }
+            final Object datum;
+            try {
+              datum = mJsonDecoders.decode(jsonValue, actualWriter);
+            } catch (IOException ioe) {
+              throw new WebApplicationException(ioe, Response.Status.BAD_REQUEST);
+            } catch (AvroRuntimeException are) {
+              throw new WebApplicationException(are, Response.Status.BAD_REQUEST);
+            }
+            cells.add(new PendingCell(column, timestamp, datum, false, false));
+          }
+        }
+      }
+    }
+    return cells;
+  }
+
+  /**
+   * Decodes a cell of a counter column, which is either a long value to set the counter to or
+   * an increment of the form {"incr" : 123}.
+   *
+   * @param column of the cell.
+   * @param timestamp of the cell.
+   * @param restCell to decode.
+   * @return the cell to write.
+   */
+  private static PendingCell prepareCounter(KijiColumnName column, long timestamp,
+      KijiRestCell restCell) {
+    JsonNode parsedCounterValue = BASIC_MAPPER.valueToTree(restCell.getValue());
+    if (parsedCounterValue.isIntegralNumber()) {
+      return new PendingCell(column, timestamp, parsedCounterValue.asLong(), true, false);
+    } else if (parsedCounterValue.isContainerNode()) {
+      if (null != parsedCounterValue.get(COUNTER_INCREMENT_KEY)
+          && parsedCounterValue.get(COUNTER_INCREMENT_KEY).isIntegralNumber()) {
+        // Counter incrementation does not support timestamp.
+        if (null != restCell.getTimestamp()) {
+          throw new WebApplicationException(
+              new IllegalArgumentException("Counter incrementation does not support "
+                  + "timestamp. Do not specify timestamp in request."));
+        }
+        return new PendingCell(column, timestamp,
+            parsedCounterValue.get(COUNTER_INCREMENT_KEY).asLong(), true, true);
+      } else {
+        throw new WebApplicationException(
+            new IllegalArgumentException("Counter increment could not be parsed "
+                + "as long: "
+                + parsedCounterValue
+                + ". Provide a json node such as {\"incr\" : 123}."),
+            Response.Status.BAD_REQUEST);
+      }
+    } else {
+      // Could not parse parameter to a long.
+      throw new WebApplicationException(
+          new IllegalArgumentException("Counter value could not be parsed as long: "
+              + parsedCounterValue
+              + ". Provide a long value to set the counter."),
+          Response.Status.BAD_REQUEST);
+    }
+  }
+
+  /** A decoded cell waiting to be written. */
+  private static final class PendingCell {
+    private final KijiColumnName mColumn;
+    private final long mTimestamp;
+    private final Object mValue;
+    private final boolean mIsCounter;
+    private final boolean mIsIncrement;
+
+    /**
+     * Create a decoded cell.
+     *
+     * @param column of the cell.
+     * @param timestamp of the cell.
+     * @param value of the cell, or the amount to increment a counter by.
+     * @param isCounter whether the cell belongs to a counter column.
+     * @param isIncrement whether the value is an increment of a counter.
+     */
+    private PendingCell(KijiColumnName column, long timestamp, Object value, boolean isCounter,
+        boolean isIncrement) {
+      mColumn = column;
+      mTimestamp = timestamp;
+      mValue = value;
+      mIsCounter = isCounter;
+      mIsIncrement = isIncrement;
+    }
+  }
+}
@@ -0,0 +1,196 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Preconditions;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Gauge;
+import com.yammer.metrics.core.MetricName;
+import com.yammer.metrics.core.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.kiji.schema.KijiTable;
+import org.kiji.schema.KijiTableReader;
+import org.kiji.schema.util.ResourceUtils;
+
+/**
+ * A bounded pool of KijiTableReaders for a single table. Readers are borrowed for the duration of
+ * a request and returned afterwards, so that point lookups do not pay the cost of opening a new
+ * reader each time. At most <code>maxIdle</code> readers are retained between requests; readers
+ * returned to a full pool are closed.
+ *
+ * <p>The number of idle and borrowed readers is exported as gauges scoped by table URI.</p>
+ */
+public class KijiTableReaderPool implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(KijiTableReaderPool.class);
+
+  private final KijiTable mTable;
+
+  /** Readers which are open and not currently borrowed. */
+  private final BlockingQueue<KijiTableReader> mIdleReaders;
+
+  /** Number of readers currently borrowed. */
+  private final AtomicInteger mBorrowed = new AtomicInteger(0);
+
+  /** Determines whether readers may be borrowed from this pool. */
+  private volatile boolean mIsOpen = true;
+
+  private final MetricName mIdleMetric;
+  private final MetricName mBorrowedMetric;
+  private final Gauge<Integer> mIdleGauge;
+  private final Gauge<Integer> mBorrowedGauge;
+
+  /**
+   * Create a new pool of readers for a table. The table must stay open as long as this pool is.
+   *
+   * @param table to open readers on.
+   * @param maxIdle maximum number of readers to keep open while not borrowed.
+   */
+  public KijiTableReaderPool(KijiTable table, int maxIdle) {
+    Preconditions.checkArgument(maxIdle > 0, "Reader pool size must be positive: %s", maxIdle);
+    mTable = table;
+    mIdleReaders = new LinkedBlockingQueue<KijiTableReader>(maxIdle);
+
+    final String scope = table.getURI().getInstance() + "." + table.getURI().getTable();
+    mIdleMetric = new MetricName(KijiTableReaderPool.class, "idle-readers", scope);
+    mBorrowedMetric = new MetricName(KijiTableReaderPool.class, "borrowed-readers", scope);
+    mIdleGauge = registerGauge(mIdleMetric, new Gauge<Integer>() {
+      @Override
+      public Integer value() {
+        return getIdleCount();
+      }
+    });
+    mBorrowedGauge = registerGauge(mBorrowedMetric, new Gauge<Integer>() {
+      @Override
+      public Integer value() {
+        return getBorrowedCount();
+      }
+    });
+  }
+
+  /**
+   * Borrows a reader from this pool, opening a new one if none is idle. The reader must be given
+   * back with {@link #returnReader(KijiTableReader)} and should *NOT* be closed by the caller.
+   *
+   * @return a KijiTableReader for the table of this pool.
+   * @throws IOException if a new reader can not be opened.
+   */
+  public KijiTableReader borrowReader() throws IOException {
+    Preconditions.checkState(mIsOpen, "Cannot borrow KijiTableReader from closed pool.");
+    KijiTableReader reader = mIdleReaders.poll();
+    if (null == reader) {
+      reader = mTable.openTableReader();
+    }
+    mBorrowed.incrementAndGet();
+    return reader;
+  }
+
+  /**
+   * Gives a reader back to this pool. The reader is closed if the pool is closed or already holds
+   * the maximum number of idle readers.
+   *
+   * @param reader previously obtained from {@link #borrowReader()}.
+   */
+  public void returnReader(KijiTableReader reader) {
+    mBorrowed.decrementAndGet();
+    if (!mIsOpen || !mIdleReaders.offer(reader)) {
+      ResourceUtils.closeOrLog(reader);
+    }
+  }
+
+  /**
+   * Discards a borrowed reader which may no longer be usable, for instance because it threw
+   * while reading. The reader is closed instead of being made available to other requests.
+   *
+   * @param reader previously obtained from {@link #borrowReader()}.
+   */
+  public void invalidateReader(KijiTableReader reader) {
+    mBorrowed.decrementAndGet();
+    ResourceUtils.closeOrLog(reader);
+  }
+
+  /**
+   * Returns the number of readers held open while not borrowed.
+   *
+   * @return the number of idle readers.
+   */
+  public int getIdleCount() {
+    return mIdleReaders.size();
+  }
+
+  /**
+   * Returns the number of readers currently borrowed from this pool.
+   *
+   * @return the number of borrowed readers.
+   */
+  public int getBorrowedCount() {
+    return mBorrowed.get();
+  }
+
+  /**
+   * Closes all idle readers. Readers borrowed at the time of closing are closed when returned.
+   */
+  @Override
+  public void close() {
+    mIsOpen = false;
+    removeMetric(mIdleMetric, mIdleGauge);
+    removeMetric(mBorrowedMetric, mBorrowedGauge);
+    KijiTableReader reader = mIdleReaders.poll();
+    while (null != reader) {
+      ResourceUtils.closeOrLog(reader);
+      reader = mIdleReaders.poll();
+    }
+    LOG.debug("Closed KijiTableReader pool for table {}.", mTable.getURI());
+  }
+
+  /**
+   * Registers a gauge of this pool, replacing the gauge of any previous pool for the same table.
+   *
+   * @param name of the metric.
+   * @param gauge to register.
+   * @return the registered gauge.
+   */
+  private static Gauge<Integer> registerGauge(MetricName name, Gauge<Integer> gauge) {
+    Metrics.defaultRegistry().removeMetric(name);
+    return Metrics.newGauge(name, gauge);
+  }
+
+  /**
+   * Unregisters a gauge of this pool, unless a newer pool for the same table has already
+   * registered its own gauge under the same name.
+   *
+   * @param name of the metric.
+   * @param gauge registered by this pool.
+   */
+  private static void removeMetric(MetricName name, Gauge<Integer> gauge) {
+    final MetricsRegistry registry = Metrics.defaultRegistry();
+    if (registry.allMetrics().get(name) == gauge) {
+      registry.removeMetric(name);
+    }
+  }
+}
@@ -0,0 +1,132 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest.util;
+
+import java.io.IOException;
+
+import com.google.common.base.Preconditions;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.PageFilter;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.node.JsonNodeFactory;
+
+import org.kiji.schema.KijiDataRequest;
+import org.kiji.schema.filter.Filters;
+import org.kiji.schema.filter.KijiRowFilter;
+import org.kiji.schema.filter.KijiRowFilterDeserializer;
+
+/**
+ * Row filter bounding the number of rows each region server returns to a scan, with an HBase
+ * {@link PageFilter}. Region servers stop scanning a region once the page is full instead of
+ * shipping rows the client will not read. The limit applies per region, so clients still stop
+ * reading once they have enough rows.
+ *
+ * <p>Within a conjunction of filters, the page filter must come last to only count the rows
+ * accepted by the other filters. Region servers reject a page filter in scans fetching rows in
+ * batches of cells, since it filters whole rows; {@link #limitRows} leaves such scans
+ * unbounded.</p>
+ */
+public final class PageRowFilter extends KijiRowFilter {
+
+  private final long mPageSize;
+
+  /**
+   * Create a page filter.
+   *
+   * @param pageSize maximum number of rows returned per region.
+   */
+  public PageRowFilter(long pageSize) {
+    Preconditions.checkArgument(pageSize >= 0, "Invalid page size: %s", pageSize);
+    mPageSize = pageSize;
+  }
+
+  /**
+   * Bounds the rows each region server returns to a scan, unless the scan fetches its rows in
+   * batches of cells.
+   *
+   * @param filter of the rows of the scan, or null.
+   * @param limit maximum number of rows read by the scan, or a negative number if unlimited.
+   * @param scannerBatch number of cells per row fetched per scanner RPC, or 0 if not batched.
+   * @return the row filter of the scan, or null if rows are neither filtered nor limited.
+   */
+  public static KijiRowFilter limitRows(KijiRowFilter filter, long limit, int scannerBatch) {
+    if (limit < 0 || scannerBatch > 0) {
+      return filter;
+    }
+    final KijiRowFilter pageFilter = new PageRowFilter(limit);
+    // The page filter comes last to only count the rows accepted by the filter.
+    return (null != filter) ? Filters.and(filter, pageFilter) : pageFilter;
+  }
+
+  /**
+   * Returns the maximum number of rows returned per region.
+   *
+   * @return the page size.
+   */
+  public long getPageSize() {
+    return mPageSize;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public KijiDataRequest getDataRequest() {
+    return KijiDataRequest.builder().build();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Filter toHBaseFilter(Context context) throws IOException {
+    return new PageFilter(mPageSize);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected JsonNode toJsonNode() {
+    return JsonNodeFactory.instance.numberNode(mPageSize);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected Class<? extends KijiRowFilterDeserializer> getDeserializerClass() {
+    return PageRowFilterDeserializer.class;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean equals(Object other) {
+    return (other instanceof PageRowFilter)
+        && ((PageRowFilter) other).mPageSize == mPageSize;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int hashCode() {
+    return (int) (mPageSize ^ (mPageSize >>> 32));
+  }
+
+  /** Deserializes {@link PageRowFilter}. */
+  public static final class PageRowFilterDeserializer implements KijiRowFilterDeserializer {
+    /** {@inheritDoc} */
+    @Override
+    public KijiRowFilter createFromJson(JsonNode root) {
+      return new PageRowFilter(root.getLongValue());
+    }
+  }
+}
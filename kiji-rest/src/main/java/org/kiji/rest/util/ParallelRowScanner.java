@@ -0,0 +1,428 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.kiji.schema.HBaseEntityId;
+import org.kiji.schema.KijiDataRequest;
+import org.kiji.schema.KijiIOException;
+import org.kiji.schema.KijiRegion;
+import org.kiji.schema.KijiRowData;
+import org.kiji.schema.KijiRowScanner;
+import org.kiji.schema.KijiTable;
+import org.kiji.schema.KijiTableReader;
+import org.kiji.schema.KijiTableReader.KijiScannerOptions;
+import org.kiji.schema.util.ResourceUtils;
+
+/**
+ * Scans a range of rows with several scanners running concurrently on an executor. The range is
+ * split on region boundaries into at most <code>parallelism</code> contiguous sub-ranges, each
+ * covering consecutive regions, and each sub-range is scanned by its own KijiRowScanner.
+ *
+ * <p>A scanner may also be given a list of disjoint key ranges, such as the prefixes of a wildcard
+ * scan; the ranges are then grouped into at most <code>parallelism</code> groups of consecutive
+ * ranges, each group being scanned range after range by its own sub-scanner.</p>
+ *
+ * <p>Rows are either returned in row key order, or as soon as any scanner produces them. Since
+ * sub-ranges are disjoint and ordered, ordered results are the concatenation of the results of
+ * each sub-range; later sub-ranges are scanned ahead into a bounded buffer in the meantime.</p>
+ *
+ * <p>With a parallelism of 1, a single sub-scanner reads the rows ahead of the client into its
+ * buffer, so that fetching rows from HBase overlaps with streaming the previous ones. It blocks
+ * when the buffer is full, and stops when the scanner is closed.</p>
+ *
+ * <p>Sub-scanners are submitted to the executor when the scanner is created. If the executor
+ * rejects any of them, the submitted ones are stopped and the RejectedExecutionException is thrown,
+ * so that executors without a queue fail scans instead of leaving them waiting for a thread.</p>
+ *
+ * <p>The scanner must be closed, which stops all sub-scanners. It may only be iterated once.</p>
+ */
+public class ParallelRowScanner implements Iterable<KijiRowData>, Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ParallelRowScanner.class);
+
+  /** Interval at which blocked sub-scanners check whether the scan was closed. */
+  private static final long POLL_INTERVAL_MS = 100;
+
+  /** Marks the end of the rows of a sub-scanner in its buffer. */
+  private static final Object END_OF_SPLIT = new Object();
+
+  private final KijiTable mTable;
+  private final KijiDataRequest mRequest;
+  private final KijiScannerOptions mOptions;
+  private final boolean mOrdered;
+
+  /** Buffers of the sub-scanners. Unordered scans share a single buffer. */
+  private final List<BlockingQueue<Object>> mBuffers = Lists.newArrayList();
+  private final List<Future<?>> mFutures = Lists.newArrayList();
+
+  /** Number of sub-scanners still running, only used by unordered scans. */
+  private final AtomicInteger mRunning = new AtomicInteger(0);
+
+  private volatile boolean mIsOpen = true;
+  private boolean mIterated = false;
+
+  /**
+   * Starts scanning a range of rows.
+   *
+   * @param table to scan.
+   * @param request of the data to scan.
+   * @param options of the scan. The start and stop rows bound the range to split, and the row
+   *        filter and HBase scan options apply to every sub-scanner.
+   * @param parallelism maximum number of sub-scanners.
+   * @param ordered whether rows must be returned in row key order.
+   * @param bufferRows maximum number of rows scanned ahead by each sub-scanner.
+   * @param executor to run the sub-scanners on.
+   * @throws IOException if the regions of the table can not be listed.
+   * @throws RejectedExecutionException if the executor rejects a sub-scanner.
+   */
+  public ParallelRowScanner(KijiTable table, KijiDataRequest request, KijiScannerOptions options,
+      int parallelism, boolean ordered, int bufferRows, ExecutorService executor)
+      throws IOException {
+    this(table, request, options, group(split(table, options, checkParallelism(parallelism)),
+        parallelism), ordered, bufferRows, executor);
+  }
+
+  /**
+   * Starts scanning a list of key ranges.
+   *
+   * @param table to scan.
+   * @param request of the data to scan.
+   * @param options of the scan. The row filter and HBase scan options apply to every range, the
+   *        start and stop rows are ignored.
+   * @param ranges to scan: the start (inclusive) and stop (exclusive, empty for the end of the
+   *        table) keys of each range, in key order.
+   * @param parallelism maximum number of sub-scanners.
+   * @param ordered whether rows must be returned in row key order.
+   * @param bufferRows maximum number of rows scanned ahead by each sub-scanner.
+   * @param executor to run the sub-scanners on.
+   * @throws RejectedExecutionException if the executor rejects a sub-scanner.
+   */
+  public ParallelRowScanner(KijiTable table, KijiDataRequest request, KijiScannerOptions options,
+      List<byte[][]> ranges, int parallelism, boolean ordered, int bufferRows,
+      ExecutorService executor) {
+    this(table, request, options, group(ranges, checkParallelism(parallelism)), ordered,
+        bufferRows, executor);
+  }
+
+  /**
+   * Starts scanning groups of key ranges, with one sub-scanner per group.
+   *
+   * @param table to scan.
+   * @param request of the data to scan.
+   * @param options of the scan, whose row filter and HBase scan options apply to every range.
+   * @param splits groups of consecutive key ranges, in key order.
+   * @param ordered whether rows must be returned in row key order.
+   * @param bufferRows maximum number of rows scanned ahead by each sub-scanner.
+   * @param executor to run the sub-scanners on.
+   * @throws RejectedExecutionException if the executor rejects a sub-scanner.
+   */
+  private ParallelRowScanner(KijiTable table, KijiDataRequest request, KijiScannerOptions options,
+      List<List<byte[][]>> splits, boolean ordered, int bufferRows, ExecutorService executor) {
+    mTable = table;
+    mRequest = request;
+    mOptions = options;
+    mOrdered = ordered;
+    LOG.debug("Scanning table {} with {} sub-scanners.", table.getURI(), splits.size());
+
+    if (!ordered) {
+      mBuffers.add(new LinkedBlockingQueue<Object>(bufferRows * splits.size()));
+    }
+    mRunning.set(splits.size());
+    for (List<byte[][]> split : splits) {
+      final BlockingQueue<Object> buffer;
+      if (ordered) {
+        buffer = new LinkedBlockingQueue<Object>(bufferRows);
+        mBuffers.add(buffer);
+      } else {
+        buffer = mBuffers.get(0);
+      }
+      try {
+        mFutures.add(executor.submit(new SplitScanner(split, buffer)));
+      } catch (RejectedExecutionException ree) {
+        close();
+        throw ree;
+      }
+    }
+  }
+
+  /**
+   * Validates the parallelism of a scan.
+   *
+   * @param parallelism maximum number of sub-scanners.
+   * @return the parallelism.
+   */
+  private static int checkParallelism(int parallelism) {
+    Preconditions.checkArgument(parallelism > 0, "Parallelism must be positive: %s", parallelism);
+    return parallelism;
+  }
+
+  /**
+   * Groups key ranges into at most <code>parallelism</code> groups of consecutive ranges of about
+   * the same size.
+   *
+   * @param ranges in key order.
+   * @param parallelism maximum number of groups.
+   * @return the groups of ranges, in key order.
+   */
+  private static List<List<byte[][]>> group(List<byte[][]> ranges, int parallelism) {
+    final int numGroups = Math.max(1, Math.min(parallelism, ranges.size()));
+    final List<List<byte[][]>> groups = Lists.newArrayListWithCapacity(numGroups);
+    for (int i = 0; i < numGroups; i++) {
+      groups.add(ranges.subList(i * ranges.size() / numGroups,
+          (i + 1) * ranges.size() / numGroups));
+    }
+    return groups;
+  }
+
+  /**
+   * Splits the key range of a scan on region boundaries.
+   *
+   * @param table to scan.
+   * @param options of the scan, whose start and stop rows bound the range.
+   * @param parallelism maximum number of sub-ranges.
+   * @return the start and stop keys of each sub-range, in key order.
+   * @throws IOException if the regions of the table can not be listed.
+   */
+  private static List<byte[][]> split(KijiTable table, KijiScannerOptions options,
+      int parallelism) throws IOException {
+    final byte[] startKey =
+        (null != options.getStartRow()) ? options.getStartRow().getHBaseRowKey() : new byte[0];
+    final byte[] stopKey =
+        (null != options.getStopRow()) ? options.getStopRow().getHBaseRowKey() : new byte[0];
+    if (1 == parallelism) {
+      // A single sub-scanner, reading ahead of the client, does not need the regions.
+      return Collections.singletonList(new byte[][] {startKey, stopKey});
+    }
+    return split(table.getRegions(), startKey, stopKey, parallelism);
+  }
+
+  /**
+   * Splits a key range on region boundaries into at most <code>parallelism</code> contiguous
+   * sub-ranges of about the same number of regions.
+   *
+   * @param regions of the table, in key order.
+   * @param startKey of the range, inclusive. Empty for the first row of the table.
+   * @param stopKey of the range, exclusive. Empty for the end of the table.
+   * @param parallelism maximum number of sub-ranges.
+   * @return the start and stop keys of each sub-range, in key order.
+   */
+  private static List<byte[][]> split(List<KijiRegion> regions, byte[] startKey, byte[] stopKey,
+      int parallelism) {
+    // Boundaries between the regions which intersect the range.
+    final List<byte[]> boundaries = Lists.newArrayList();
+    for (KijiRegion region : regions) {
+      final byte[] regionStart = region.getStartKey();
+      if (regionStart.length == 0) {
+        continue;
+      }
+      final boolean afterStart = Bytes.compareTo(regionStart, startKey) > 0;
+      final boolean beforeStop = stopKey.length == 0 || Bytes.compareTo(regionStart, stopKey) < 0;
+      if (afterStart && beforeStop) {
+        boundaries.add(regionStart);
+      }
+    }
+    final int numSplits = Math.min(parallelism, boundaries.size() + 1);
+    final List<byte[][]> splits = Lists.newArrayListWithCapacity(numSplits);
+    byte[] splitStart = startKey;
+    for (int i = 1; i < numSplits; i++) {
+      final byte[] splitStop = boundaries.get(i * (boundaries.size() + 1) / numSplits - 1);
+      splits.add(new byte[][] {splitStart, splitStop});
+      splitStart = splitStop;
+    }
+    splits.add(new byte[][] {splitStart, stopKey});
+    return splits;
+  }
+
+  /**
+   * Puts an element into a buffer, waiting for space as long as the scan is open.
+   *
+   * @param buffer to put the element into.
+   * @param element to put.
+   * @return whether the element was put, false if the scan was closed.
+   * @throws InterruptedException if interrupted while waiting.
+   */
+  private boolean put(BlockingQueue<Object> buffer, Object element) throws InterruptedException {
+    while (mIsOpen) {
+      if (buffer.offer(element, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Scans consecutive sub-ranges of rows into a buffer. */
+  private final class SplitScanner implements Runnable {
+    private final List<byte[][]> mRanges;
+    private final BlockingQueue<Object> mBuffer;
+
+    /**
+     * Create a scanner of sub-ranges.
+     *
+     * @param ranges to scan in order: the start key of each sub-range, inclusive and empty for
+     *        the first row of the table, and its stop key, exclusive and empty for the end of the
+     *        table.
+     * @param buffer to put the rows into.
+     */
+    private SplitScanner(List<byte[][]> ranges, BlockingQueue<Object> buffer) {
+      mRanges = ranges;
+      mBuffer = buffer;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void run() {
+      Object end = END_OF_SPLIT;
+      KijiTableReader reader = null;
+      KijiRowScanner scanner = null;
+      try {
+        reader = mTable.openTableReader();
+        for (byte[][] range : mRanges) {
+          final KijiScannerOptions options = new KijiScannerOptions();
+          if (range[0].length > 0) {
+            options.setStartRow(HBaseEntityId.fromHBaseRowKey(range[0]));
+          }
+          if (range[1].length > 0) {
+            options.setStopRow(HBaseEntityId.fromHBaseRowKey(range[1]));
+          }
+          options.setKijiRowFilter(mOptions.getKijiRowFilter());
+          options.setHBaseScanOptions(mOptions.getHBaseScanOptions());
+          scanner = reader.getScanner(mRequest, options);
+          for (KijiRowData row : scanner) {
+            if (!put(mBuffer, row)) {
+              return;
+            }
+          }
+          ResourceUtils.closeOrLog(scanner);
+          scanner = null;
+        }
+      } catch (Throwable t) {
+        // Interruptions included: the client waits for the end of every sub-scanner.
+        end = t;
+      } finally {
+        if (null != scanner) {
+          ResourceUtils.closeOrLog(scanner);
+        }
+        if (null != reader) {
+          ResourceUtils.closeOrLog(reader);
+        }
+      }
+      boolean interrupted = Thread.interrupted();
+      try {
+        put(mBuffer, end);
+      } catch (InterruptedException ie) {
+        interrupted = true;
+      } finally {
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns an iterator over the scanned rows. IOExceptions of the sub-scanners are thrown as
+   * KijiIOExceptions, and their other errors are propagated.
+   *
+   * @return an iterator over the scanned rows.
+   */
+  @Override
+  public Iterator<KijiRowData> iterator() {
+    Preconditions.checkState(!mIterated, "ParallelRowScanner may only be iterated once.");
+    mIterated = true;
+    return new Iterator<KijiRowData>() {
+      private int mSplit = 0;
+      private KijiRowData mNext = null;
+
+      @Override
+      public boolean hasNext() {
+        while (null == mNext && mSplit < mBuffers.size()) {
+          final Object element;
+          try {
+            element = mBuffers.get(mSplit).take();
+          } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new KijiIOException(ie);
+          }
+          if (element instanceof KijiRowData) {
+            mNext = (KijiRowData) element;
+          } else if (element instanceof IOException) {
+            throw new KijiIOException((IOException) element);
+          } else if (element instanceof Throwable) {
+            throw Throwables.propagate((Throwable) element);
+          } else if (mOrdered || 0 == mRunning.decrementAndGet()) {
+            // End of the current sub-range, or of all sub-ranges of an unordered scan.
+            mSplit++;
+          }
+        }
+        return null != mNext;
+      }
+
+      @Override
+      public KijiRowData next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        final KijiRowData row = mNext;
+        mNext = null;
+        return row;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  /**
+   * Stops all sub-scanners.
+   */
+  @Override
+  public void close() {
+    mIsOpen = false;
+    for (Future<?> future : mFutures) {
+      future.cancel(true);
+    }
+    for (BlockingQueue<Object> buffer : mBuffers) {
+      buffer.clear();
+    }
+  }
+}
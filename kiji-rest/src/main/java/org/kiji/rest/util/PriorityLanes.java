@@ -0,0 +1,181 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
+
+import com.google.common.base.Preconditions;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
+
+/**
+ * Schedules bulk requests, such as unlimited scans or large POSTs, behind interactive requests,
+ * such as point GETs. Bulk requests process their rows in chunks and, between chunks, pause
+ * while interactive requests are in flight, for at most max-yield milliseconds per chunk. Bulk
+ * requests thus slow down, rather than stop, under a steady interactive load.
+ *
+ * <p>Each request enters a lane, which it leaves once done, including its streamed
+ * response.</p>
+ */
+public class PriorityLanes {
+
+  /** Priority of a request. */
+  public static enum Priority {
+    /** Latency sensitive requests, such as point GETs. */
+    INTERACTIVE,
+    /** Throughput oriented requests, such as exports, which yield to interactive requests. */
+    BULK;
+
+    /**
+     * Parses the priority parameter of a request.
+     *
+     * @param priority "interactive" or "bulk".
+     * @return the priority.
+     * @throws WebApplicationException with status 400 if the priority is unknown.
+     */
+    public static Priority parse(String priority) {
+      for (Priority value : values()) {
+        if (value.name().equalsIgnoreCase(priority)) {
+          return value;
+        }
+      }
+      throw new WebApplicationException(new IllegalArgumentException(
+          "priority must be interactive or bulk: " + priority), Status.BAD_REQUEST);
+    }
+  }
+
+  /** A request in its lane. */
+  public final class Lane {
+    private final Priority mPriority;
+    private final AtomicBoolean mLeft = new AtomicBoolean(false);
+    private int mChunkRows = 0;
+
+    /**
+     * Create a lane.
+     *
+     * @param priority of the request.
+     */
+    private Lane(Priority priority) {
+      mPriority = priority;
+    }
+
+    /**
+     * Returns the priority of the request.
+     *
+     * @return the priority.
+     */
+    public Priority getPriority() {
+      return mPriority;
+    }
+
+    /**
+     * Records that the request processed a row. A bulk request pauses at the end of each chunk
+     * of rows while interactive requests are in flight. Not thread safe.
+     */
+    public void rowDone() {
+      if (mPriority == Priority.BULK && mMaxYieldNanos > 0 && ++mChunkRows >= mChunkSize) {
+        mChunkRows = 0;
+        yieldToInteractive();
+      }
+    }
+
+    /** Leaves the lane. Only the first call leaves it. */
+    public void leave() {
+      if (mLeft.compareAndSet(false, true) && mPriority == Priority.INTERACTIVE
+          && mInteractive.decrementAndGet() == 0) {
+        synchronized (mMonitor) {
+          mMonitor.notifyAll();
+        }
+      }
+    }
+  }
+
+  private final int mChunkSize;
+  private final long mMaxYieldNanos;
+
+  /** Number of interactive requests in flight. */
+  private final AtomicInteger mInteractive = new AtomicInteger(0);
+
+  /** Notified when no interactive request is left in flight. */
+  private final Object mMonitor = new Object();
+
+  private final Counter mYields = Metrics.newCounter(PriorityLanes.class, "bulk-yields");
+
+  /**
+   * Create priority lanes.
+   *
+   * @param chunkSize number of rows bulk requests process between pauses.
+   * @param maxYieldMillis maximum time in milliseconds a bulk request pauses per chunk. 0 never
+   *        pauses bulk requests.
+   */
+  public PriorityLanes(int chunkSize, long maxYieldMillis) {
+    Preconditions.checkArgument(chunkSize > 0, "Invalid chunk size: %s", chunkSize);
+    Preconditions.checkArgument(maxYieldMillis >= 0, "Invalid yield: %s", maxYieldMillis);
+    mChunkSize = chunkSize;
+    mMaxYieldNanos = TimeUnit.MILLISECONDS.toNanos(maxYieldMillis);
+  }
+
+  /**
+   * Enters the lane of a request. The lane must be left once the request is done.
+   *
+   * @param priority of the request.
+   * @return the lane of the request.
+   */
+  public Lane enter(Priority priority) {
+    if (priority == Priority.INTERACTIVE) {
+      mInteractive.incrementAndGet();
+    }
+    return new Lane(priority);
+  }
+
+  /**
+   * Returns the number of interactive requests in flight.
+   *
+   * @return the number of interactive requests which did not leave their lane.
+   */
+  public int getInteractive() {
+    return mInteractive.get();
+  }
+
+  /** Pauses while interactive requests are in flight, for at most max-yield. */
+  private void yieldToInteractive() {
+    if (mInteractive.get() == 0) {
+      return;
+    }
+    mYields.inc();
+    final long deadline = System.nanoTime() + mMaxYieldNanos;
+    synchronized (mMonitor) {
+      long remainingNanos = mMaxYieldNanos;
+      try {
+        while (mInteractive.get() > 0 && remainingNanos > 0) {
+          TimeUnit.NANOSECONDS.timedWait(mMonitor, remainingNanos);
+          remainingNanos = deadline - System.nanoTime();
+        }
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
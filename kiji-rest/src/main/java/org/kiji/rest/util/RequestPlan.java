@@ -0,0 +1,381 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest.util;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.avro.Schema;
+import org.apache.hadoop.hbase.HConstants;
+
+import org.kiji.schema.KijiColumnName;
+import org.kiji.schema.KijiDataRequest;
+import org.kiji.schema.KijiDataRequestBuilder;
+import org.kiji.schema.KijiDataRequestBuilder.ColumnsDef;
+import org.kiji.schema.layout.CellSpec;
+import org.kiji.schema.layout.KijiTableLayout;
+import org.kiji.schema.layout.KijiTableLayout.LocalityGroupLayout.FamilyLayout;
+import org.kiji.schema.layout.SchemaClassNotFoundException;
+
+/**
+ * The compiled form of the cols, versions and timerange parameters of a GET against a table
+ * layout: the data request to send to Kiji, the columns to return and their cell specs, and how
+ * each column is read from a row. Plans are immutable, so that they can be cached by
+ * {@link RequestPlanCache} and shared between requests.
+ *
+ * <p>A plan with a page size reads the cells of its columns with Kiji pagers, a page of
+ * qualifiers of map type families or of versions of fully qualified columns at a time. Counters
+ * are never paged: only their most recent cells are returned.</p>
+ */
+public final class RequestPlan {
+
+  /** Value of the versions parameter requesting all versions. */
+  public static final String ALL_VERSIONS = "all";
+
+  private final KijiDataRequest mDataRequest;
+  private final List<KijiColumnName> mColumns;
+  private final Map<KijiColumnName, CellSpec> mCellSpecs;
+  private final List<ColumnPlan> mColumnPlans;
+  private final boolean mHasCounters;
+  private final int mPageSize;
+
+  /** How the cells of a column are read from a row. */
+  public enum ColumnKind {
+    /** The cells of a fully qualified column. */
+    CELLS,
+    /** The cells of all qualifiers of a map type family. */
+    FAMILY_CELLS,
+    /** The most recent cell of a fully qualified counter. */
+    COUNTER,
+    /** The most recent cell of each counter of a map type family. */
+    FAMILY_COUNTERS,
+    /** A column whose cells can not be decoded; an error cell is returned instead. */
+    UNREADABLE,
+    /** A column which yields no cells. */
+    NONE
+  }
+
+  /** How a column is read from a row. */
+  public static final class ColumnPlan {
+    private final KijiColumnName mColumn;
+    private final ColumnKind mKind;
+    private final String mError;
+    private final Schema mReaderSchema;
+
+    /**
+     * Create the plan of a column.
+     *
+     * @param column to read.
+     * @param kind of the column.
+     * @param error why the column is unreadable, or null.
+     * @param readerSchema the cells of the column are decoded with, or null.
+     */
+    private ColumnPlan(KijiColumnName column, ColumnKind kind, String error,
+        Schema readerSchema) {
+      mColumn = column;
+      mKind = kind;
+      mError = error;
+      mReaderSchema = readerSchema;
+    }
+
+    /**
+     * Returns the column to read.
+     *
+     * @return the column to read.
+     */
+    public KijiColumnName getColumn() {
+      return mColumn;
+    }
+
+    /**
+     * Returns how the column is read.
+     *
+     * @return the kind of the column.
+     */
+    public ColumnKind getKind() {
+      return mKind;
+    }
+
+    /**
+     * Returns why the column is unreadable.
+     *
+     * @return the error of an UNREADABLE column, or null.
+     */
+    public String getError() {
+      return mError;
+    }
+
+    /**
+     * Returns the schema the cells of the column are decoded with.
+     *
+     * @return the reader schema of the column, or null if cells are decoded with their writer
+     *         schema.
+     */
+    public Schema getReaderSchema() {
+      return mReaderSchema;
+    }
+
+    /**
+     * Returns whether the cells of the column are read in pages when the plan is paged.
+     *
+     * @return whether the column is pageable.
+     */
+    public boolean isPageable() {
+      return mKind == ColumnKind.CELLS || mKind == ColumnKind.FAMILY_CELLS;
+    }
+  }
+
+  /**
+   * Create a plan.
+   *
+   * @param dataRequest to send to Kiji.
+   * @param columns to return, sorted.
+   * @param cellSpecs of the columns.
+   * @param columnPlans of the columns, in the order of columns.
+   * @param pageSize of paged columns, 0 if columns are not paged.
+   */
+  private RequestPlan(KijiDataRequest dataRequest, List<KijiColumnName> columns,
+      Map<KijiColumnName, CellSpec> cellSpecs, List<ColumnPlan> columnPlans, int pageSize) {
+    mDataRequest = dataRequest;
+    mColumns = columns;
+    mCellSpecs = cellSpecs;
+    mColumnPlans = columnPlans;
+    mPageSize = pageSize;
+    boolean hasCounters = false;
+    for (ColumnPlan columnPlan : columnPlans) {
+      hasCounters |= (columnPlan.getKind() == ColumnKind.COUNTER);
+    }
+    mHasCounters = hasCounters;
+  }
+
+  /**
+   * Compiles the parameters of a GET.
+   *
+   * @param layout of the table.
+   * @param columns is a comma separated list of columns (either family or family:qualifier).
+   * @param maxVersions is the max versions per column to return, or "all".
+   * @param timeRange is the time range of cells to return (min..max), or null.
+   * @return the plan of the request.
+   * @throws WebApplicationException with status 400 if the parameters are invalid.
+   */
+  public static RequestPlan create(KijiTableLayout layout, String columns, String maxVersions,
+      String timeRange) {
+    return create(layout, columns, maxVersions, timeRange, 0);
+  }
+
+  /**
+   * Compiles the parameters of a GET.
+   *
+   * @param layout of the table.
+   * @param columns is a comma separated list of columns (either family or family:qualifier).
+   * @param maxVersions is the max versions per column to return, or "all".
+   * @param timeRange is the time range of cells to return (min..max), or null.
+   * @param pageSize is the number of qualifiers or versions to read per page, 0 to read whole
+   *        columns.
+   * @return the plan of the request.
+   * @throws WebApplicationException with status 400 if the parameters are invalid.
+   */
+  public static RequestPlan create(KijiTableLayout layout, String columns, String maxVersions,
+      String timeRange, int pageSize) {
+    if (pageSize < 0) {
+      throw new WebApplicationException(new IllegalArgumentException(
+          "page_size must not be negative: " + pageSize), Status.BAD_REQUEST);
+    }
+    final KijiDataRequestBuilder dataBuilder = KijiDataRequest.builder();
+    if (null != timeRange) {
+      final long[] timeRanges = RowResourceUtil.getTimestamps(timeRange);
+      dataBuilder.withTimeRange(timeRanges[0], timeRanges[1]);
+    }
+    final int versions;
+    try {
+      if (ALL_VERSIONS.equalsIgnoreCase(maxVersions)) {
+        versions = HConstants.ALL_VERSIONS;
+      } else {
+        versions = Integer.parseInt(maxVersions);
+      }
+    } catch (NumberFormatException nfe) {
+      throw new WebApplicationException(nfe, Status.BAD_REQUEST);
+    }
+    // Paged and unpaged columns need separate definitions, added once the columns are known.
+    final ColumnsDef columnsDef = (pageSize > 0)
+        ? KijiDataRequest.builder().newColumnsDef()
+        : dataBuilder.newColumnsDef().withMaxVersions(versions);
+    final List<KijiColumnName> requestedColumns =
+        Lists.newArrayList(RowResourceUtil.addColumnDefs(layout, columnsDef, columns));
+    // Rows are returned with their columns sorted, as HBase would return them.
+    Collections.sort(requestedColumns);
+
+    final Map<KijiColumnName, CellSpec> cellSpecs = Maps.newHashMap();
+    final List<ColumnPlan> columnPlans;
+    try {
+      columnPlans = planColumns(layout, requestedColumns, cellSpecs);
+    } catch (IOException ioe) {
+      throw new WebApplicationException(ioe, Status.BAD_REQUEST);
+    }
+    if (pageSize > 0) {
+      ColumnsDef pagedDef = null;
+      ColumnsDef unpagedDef = null;
+      for (ColumnPlan columnPlan : columnPlans) {
+        if (columnPlan.isPageable()) {
+          if (null == pagedDef) {
+            pagedDef = dataBuilder.newColumnsDef().withMaxVersions(versions)
+                .withPageSize(pageSize);
+          }
+          pagedDef.add(columnPlan.getColumn());
+        } else {
+          if (null == unpagedDef) {
+            unpagedDef = dataBuilder.newColumnsDef().withMaxVersions(versions);
+          }
+          unpagedDef.add(columnPlan.getColumn());
+        }
+      }
+    }
+    return new RequestPlan(dataBuilder.build(), ImmutableList.copyOf(requestedColumns),
+        ImmutableMap.copyOf(cellSpecs), columnPlans, pageSize);
+  }
+
+  /**
+   * Returns a copy of this plan which reads whole columns, to read the pages returned by a Kiji
+   * pager.
+   *
+   * @return this plan without paging.
+   */
+  public RequestPlan withoutPaging() {
+    if (!isPaged()) {
+      return this;
+    }
+    return new RequestPlan(mDataRequest, mColumns, mCellSpecs, mColumnPlans, 0);
+  }
+
+  /**
+   * Determines how each column is read from a row.
+   *
+   * @param layout of the table.
+   * @param columns to read.
+   * @param cellSpecs collects the cell spec of each readable column.
+   * @return the plan of each column, in the order of columns.
+   * @throws IOException if a column does not exist in the layout.
+   */
+  static List<ColumnPlan> planColumns(KijiTableLayout layout, List<KijiColumnName> columns,
+      Map<KijiColumnName, CellSpec> cellSpecs) throws IOException {
+    final Map<String, FamilyLayout> familyLayouts = layout.getFamilyMap();
+    final ImmutableList.Builder<ColumnPlan> columnPlans = ImmutableList.builder();
+    for (KijiColumnName column : columns) {
+      final CellSpec spec;
+      final Schema readerSchema;
+      try {
+        spec = layout.getCellSpec(column);
+        readerSchema = spec.isAvro() ? spec.getAvroSchema() : null;
+      } catch (SchemaClassNotFoundException scnfe) {
+        // If the user is requesting a column whose class is not on the classpath, each row
+        // carries an error cell for the column.
+        columnPlans.add(new ColumnPlan(column, ColumnKind.UNREADABLE, scnfe.getMessage(),
+            null));
+        continue;
+      }
+      cellSpecs.put(column, spec);
+      final boolean isMapType = familyLayouts.get(column.getFamily()).isMapType();
+      final ColumnKind kind;
+      if (column.isFullyQualified()) {
+        kind = spec.isCounter() ? ColumnKind.COUNTER : ColumnKind.CELLS;
+      } else if (isMapType) {
+        kind = spec.isCounter() ? ColumnKind.FAMILY_COUNTERS : ColumnKind.FAMILY_CELLS;
+      } else {
+        kind = ColumnKind.NONE;
+      }
+      columnPlans.add(new ColumnPlan(column, kind, null, readerSchema));
+    }
+    return columnPlans.build();
+  }
+
+  /**
+   * Returns the data request to send to Kiji.
+   *
+   * @return the data request.
+   */
+  public KijiDataRequest getDataRequest() {
+    return mDataRequest;
+  }
+
+  /**
+   * Returns the columns to return to the client, sorted.
+   *
+   * @return an immutable list of the columns to return.
+   */
+  public List<KijiColumnName> getColumns() {
+    return mColumns;
+  }
+
+  /**
+   * Returns the cell spec of a column.
+   *
+   * @param column to look up.
+   * @return the cell spec of the column, or null if it could not be loaded.
+   */
+  public CellSpec getCellSpec(KijiColumnName column) {
+    return mCellSpecs.get(column);
+  }
+
+  /**
+   * Returns how each column is read from a row.
+   *
+   * @return the plan of each column, in the order of {@link #getColumns()}.
+   */
+  public List<ColumnPlan> getColumnPlans() {
+    return mColumnPlans;
+  }
+
+  /**
+   * Returns whether any fully qualified counter is requested, whose cells are returned with the
+   * schema UID of counters.
+   *
+   * @return whether the plan reads fully qualified counters.
+   */
+  public boolean hasCounters() {
+    return mHasCounters;
+  }
+
+  /**
+   * Returns the number of qualifiers or versions read per page of pageable columns.
+   *
+   * @return the page size, 0 if columns are read whole.
+   */
+  public int getPageSize() {
+    return mPageSize;
+  }
+
+  /**
+   * Returns whether pageable columns are read with Kiji pagers.
+   *
+   * @return whether the plan is paged.
+   */
+  public boolean isPaged() {
+    return mPageSize > 0;
+  }
+}
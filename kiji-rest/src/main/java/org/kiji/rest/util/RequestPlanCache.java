@@ -0,0 +1,98 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest.util;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import org.kiji.schema.layout.KijiTableLayout;
+
+/**
+ * Caches the {@link RequestPlan}s of GETs per table layout and query shape, so that the
+ * parameters of a recurring query are only parsed and validated once.
+ *
+ * <p>Plans are held per layout object, with weak keys: when the layout of a table changes, the
+ * table is reopened with a new layout object and the plans of the previous layout are discarded
+ * along with it. Invalid parameters are not cached.</p>
+ */
+public class RequestPlanCache {
+
+  /** Maximum number of query shapes to hold plans for, per layout. */
+  private static final long MAX_PLANS = 1000;
+
+  private final LoadingCache<KijiTableLayout, Cache<List<String>, RequestPlan>> mPlans =
+      CacheBuilder.newBuilder()
+          .weakKeys()
+          .build(
+              new CacheLoader<KijiTableLayout, Cache<List<String>, RequestPlan>>() {
+                @Override
+                public Cache<List<String>, RequestPlan> load(KijiTableLayout layout) {
+                  return CacheBuilder.newBuilder()
+                      .maximumSize(MAX_PLANS)
+                      .build();
+                }
+              }
+          );
+
+  /**
+   * Returns the plan of a GET, compiling it if necessary.
+   *
+   * @param layout of the table.
+   * @param columns is a comma separated list of columns (either family or family:qualifier).
+   * @param maxVersions is the max versions per column to return, or "all".
+   * @param timeRange is the time range of cells to return (min..max), or null.
+   * @return the plan of the request.
+   * @throws javax.ws.rs.WebApplicationException with status 400 if the parameters are invalid.
+   */
+  public RequestPlan get(KijiTableLayout layout, String columns, String maxVersions,
+      String timeRange) {
+    return get(layout, columns, maxVersions, timeRange, 0);
+  }
+
+  /**
+   * Returns the plan of a GET, compiling it if necessary.
+   *
+   * @param layout of the table.
+   * @param columns is a comma separated list of columns (either family or family:qualifier).
+   * @param maxVersions is the max versions per column to return, or "all".
+   * @param timeRange is the time range of cells to return (min..max), or null.
+   * @param pageSize is the number of qualifiers or versions to read per page, 0 to read whole
+   *        columns.
+   * @return the plan of the request.
+   * @throws javax.ws.rs.WebApplicationException with status 400 if the parameters are invalid.
+   */
+  public RequestPlan get(KijiTableLayout layout, String columns, String maxVersions,
+      String timeRange, int pageSize) {
+    final Cache<List<String>, RequestPlan> plans = mPlans.getUnchecked(layout);
+    final List<String> shape =
+        Arrays.asList(columns, maxVersions, timeRange, Integer.toString(pageSize));
+    RequestPlan plan = plans.getIfPresent(shape);
+    if (null == plan) {
+      plan = RequestPlan.create(layout, columns, maxVersions, timeRange, pageSize);
+      plans.put(shape, plan);
+    }
+    return plan;
+  }
+}
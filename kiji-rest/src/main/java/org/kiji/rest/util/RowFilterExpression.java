@@ -0,0 +1,314 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest.util;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+
+import org.kiji.schema.DecodedCell;
+import org.kiji.schema.KijiColumnName;
+import org.kiji.schema.KijiDataRequest;
+import org.kiji.schema.KijiDataRequestBuilder;
+import org.kiji.schema.KijiDataRequestBuilder.ColumnsDef;
+import org.kiji.schema.KijiInvalidNameException;
+import org.kiji.schema.filter.ColumnValueEqualsRowFilter;
+import org.kiji.schema.filter.Filters;
+import org.kiji.schema.filter.HasColumnDataRowFilter;
+import org.kiji.schema.filter.KijiColumnFilter;
+import org.kiji.schema.filter.KijiColumnRangeFilter;
+import org.kiji.schema.filter.KijiRowFilter;
+import org.kiji.schema.filter.RegexQualifierColumnFilter;
+import org.kiji.schema.layout.CellSpec;
+import org.kiji.schema.layout.KijiTableLayout;
+
+/**
+ * A filter expression of GET /rows, compiled into a Kiji row filter for the scanner and Kiji
+ * column filters for the data request, so that rows and cells are filtered by the region servers.
+ *
+ * <p>An expression is a JSON object, one of:</p>
+ * <ul>
+ *   <li><code>{"column": "family:qualifier", "equals": value}</code> accepts the rows whose
+ *       latest cell of the column is value, in the Avro JSON encoding used to POST cells. The
+ *       value is encoded with the reader schema of the column, unless a "writer_schema" is
+ *       given.</li>
+ *   <li><code>{"column": "family:qualifier", "exists": true}</code> accepts the rows with a cell
+ *       in the column.</li>
+ *   <li><code>{"and": [expressions]}</code> and <code>{"or": [expressions]}</code> combine row
+ *       filters.</li>
+ *   <li><code>{"column": "family", "qualifier_regex": regex}</code> and
+ *       <code>{"column": "family", "qualifier_range": [min, max]}</code> only return the
+ *       qualifiers of a requested family matching the regex, or between min (inclusive) and max
+ *       (exclusive), either of which may be null. These filter cells rather than rows, so they may
+ *       only appear at the top level or within a top level "and".</li>
+ * </ul>
+ */
+public final class RowFilterExpression {
+
+  private static final ObjectMapper BASIC_MAPPER = new ObjectMapper();
+
+  private final KijiRowFilter mRowFilter;
+  private final Map<String, KijiColumnFilter> mColumnFilters;
+
+  /**
+   * Create an expression.
+   *
+   * @param rowFilter compiled, or null if rows are not filtered.
+   * @param columnFilters of qualifiers, by family.
+   */
+  private RowFilterExpression(KijiRowFilter rowFilter,
+      Map<String, KijiColumnFilter> columnFilters) {
+    mRowFilter = rowFilter;
+    mColumnFilters = columnFilters;
+  }
+
+  /**
+   * Compiles a filter expression.
+   *
+   * @param expression to compile, as JSON.
+   * @param layout of the table.
+   * @param jsonDecoders decoding the values of cells.
+   * @return the compiled expression.
+   * @throws WebApplicationException with status 400 if the expression is invalid.
+   */
+  public static RowFilterExpression parse(String expression, KijiTableLayout layout,
+      JsonDecoderCache jsonDecoders) {
+    final JsonNode root;
+    try {
+      root = BASIC_MAPPER.readTree(expression);
+    } catch (IOException ioe) {
+      throw invalid("Invalid filter: " + expression);
+    }
+    final Map<String, KijiColumnFilter> columnFilters = Maps.newHashMap();
+    final KijiRowFilter rowFilter =
+        compile(root, true, layout, jsonDecoders, columnFilters);
+    return new RowFilterExpression(rowFilter, ImmutableMap.copyOf(columnFilters));
+  }
+
+  /**
+   * Compiles a node of a filter expression.
+   *
+   * @param node to compile.
+   * @param topLevel whether the node is at the top level of the expression or of a top level
+   *        "and", where qualifier filters may appear.
+   * @param layout of the table.
+   * @param jsonDecoders decoding the values of cells.
+   * @param columnFilters collects the qualifier filters, by family.
+   * @return the row filter of the node, or null if it only filters qualifiers.
+   */
+  private static KijiRowFilter compile(JsonNode node, boolean topLevel, KijiTableLayout layout,
+      JsonDecoderCache jsonDecoders, Map<String, KijiColumnFilter> columnFilters) {
+    if (null == node || !node.isObject()) {
+      throw invalid("A filter must be a JSON object: " + node);
+    }
+    if (node.has("and") || node.has("or")) {
+      final boolean isAnd = node.has("and");
+      final JsonNode operands = node.get(isAnd ? "and" : "or");
+      if (node.size() != 1 || !operands.isArray() || operands.size() == 0) {
+        throw invalid("\"and\" and \"or\" take a non empty array of filters: " + node);
+      }
+      final List<KijiRowFilter> filters = Lists.newArrayList();
+      final Iterator<JsonNode> it = operands.elements();
+      while (it.hasNext()) {
+        final KijiRowFilter filter =
+            compile(it.next(), topLevel && isAnd, layout, jsonDecoders, columnFilters);
+        if (null != filter) {
+          filters.add(filter);
+        }
+      }
+      if (filters.isEmpty()) {
+        return null;
+      } else if (filters.size() == 1) {
+        return filters.get(0);
+      }
+      final KijiRowFilter[] filterArray = filters.toArray(new KijiRowFilter[filters.size()]);
+      return isAnd ? Filters.and(filterArray) : Filters.or(filterArray);
+    }
+
+    if (!node.has("column") || !node.get("column").isTextual()) {
+      throw invalid("A filter needs a column: " + node);
+    }
+    final KijiColumnName column;
+    try {
+      column = new KijiColumnName(node.get("column").asText());
+    } catch (KijiInvalidNameException kine) {
+      throw invalid("Invalid filtered column: " + node.get("column").asText());
+    }
+    if (!layout.exists(column)) {
+      throw invalid("Filtered column does not exist: " + column);
+    }
+    if (node.has("qualifier_regex") || node.has("qualifier_range")) {
+      if (!topLevel) {
+        throw invalid("Qualifier filters may not be nested in \"or\": " + node);
+      }
+      if (column.isFullyQualified()) {
+        throw invalid("Qualifier filters apply to families: " + node);
+      }
+      if (columnFilters.containsKey(column.getFamily())) {
+        throw invalid("Only one qualifier filter per family: " + column);
+      }
+      columnFilters.put(column.getFamily(), compileColumnFilter(node));
+      return null;
+    }
+
+    if (!column.isFullyQualified()) {
+      throw invalid("Row filters apply to fully qualified columns: " + node);
+    }
+    if (node.has("exists")) {
+      if (!node.get("exists").asBoolean()) {
+        throw invalid("Only \"exists\": true is supported: " + node);
+      }
+      return new HasColumnDataRowFilter(column.getFamily(), column.getQualifier());
+    }
+    if (node.has("equals")) {
+      return new ColumnValueEqualsRowFilter(column.getFamily(), column.getQualifier(),
+          decodeValue(column, node, layout, jsonDecoders));
+    }
+    throw invalid("Unknown filter: " + node);
+  }
+
+  /**
+   * Compiles a qualifier filter.
+   *
+   * @param node of the filter.
+   * @return the column filter.
+   */
+  private static KijiColumnFilter compileColumnFilter(JsonNode node) {
+    if (node.has("qualifier_regex")) {
+      if (!node.get("qualifier_regex").isTextual()) {
+        throw invalid("qualifier_regex must be a string: " + node);
+      }
+      return new RegexQualifierColumnFilter(node.get("qualifier_regex").asText());
+    }
+    final JsonNode range = node.get("qualifier_range");
+    if (!range.isArray() || range.size() != 2) {
+      throw invalid("qualifier_range must be an array of min and max: " + node);
+    }
+    final String min = range.get(0).isNull() ? null : range.get(0).asText();
+    final String max = range.get(1).isNull() ? null : range.get(1).asText();
+    return new KijiColumnRangeFilter(min, true, max, false);
+  }
+
+  /**
+   * Decodes the value compared to the cells of a column.
+   *
+   * @param column filtered.
+   * @param node of the filter.
+   * @param layout of the table.
+   * @param jsonDecoders decoding the values of cells.
+   * @return the value and its writer schema.
+   */
+  private static DecodedCell<Object> decodeValue(KijiColumnName column, JsonNode node,
+      KijiTableLayout layout, JsonDecoderCache jsonDecoders) {
+    try {
+      final CellSpec spec = layout.getCellSpec(column);
+      if (spec.isCounter()) {
+        throw invalid("Counters can not be compared: " + column);
+      }
+      final Schema schema = node.has("writer_schema")
+          ? new Schema.Parser().parse(node.get("writer_schema").toString())
+          : spec.getAvroSchema();
+      if (null == schema) {
+        throw invalid("Provide the writer_schema of " + column);
+      }
+      final JsonNode value = node.get("equals");
+      final String jsonValue = (schema.getType() == Schema.Type.STRING && value.isTextual())
+          ? value.asText()
+          : value.toString();
+      return new DecodedCell<Object>(schema, jsonDecoders.decode(jsonValue, schema));
+    } catch (IOException ioe) {
+      throw invalid("Invalid value of " + column + ": " + ioe.getMessage());
+    } catch (AvroRuntimeException are) {
+      throw invalid("Invalid value of " + column + ": " + are.getMessage());
+    }
+  }
+
+  /**
+   * Builds the exception of an invalid expression.
+   *
+   * @param message describing the error.
+   * @return the exception to throw.
+   */
+  private static WebApplicationException invalid(String message) {
+    return new WebApplicationException(new IllegalArgumentException(message),
+        Status.BAD_REQUEST);
+  }
+
+  /**
+   * Returns the row filter of the expression, to set on the scanner options.
+   *
+   * @return the row filter, or null if the expression only filters qualifiers.
+   */
+  public KijiRowFilter getRowFilter() {
+    return mRowFilter;
+  }
+
+  /**
+   * Returns whether the expression filters the qualifiers of any family.
+   *
+   * @return whether the expression holds qualifier filters.
+   */
+  public boolean hasColumnFilters() {
+    return !mColumnFilters.isEmpty();
+  }
+
+  /**
+   * Adds the qualifier filters of the expression to a data request.
+   *
+   * @param request reading whole columns, without column filters.
+   * @return the request with its families filtered.
+   * @throws WebApplicationException with status 400 if a filtered family is not requested.
+   */
+  public KijiDataRequest applyTo(KijiDataRequest request) {
+    if (mColumnFilters.isEmpty()) {
+      return request;
+    }
+    final KijiDataRequestBuilder builder = KijiDataRequest.builder()
+        .withTimeRange(request.getMinTimestamp(), request.getMaxTimestamp());
+    int numFiltered = 0;
+    for (KijiDataRequest.Column column : request.getColumns()) {
+      final ColumnsDef columnsDef = builder.newColumnsDef()
+          .withMaxVersions(column.getMaxVersions())
+          .withPageSize(column.getPageSize());
+      final KijiColumnName name = column.getColumnName();
+      if (!name.isFullyQualified() && mColumnFilters.containsKey(name.getFamily())) {
+        columnsDef.withFilter(mColumnFilters.get(name.getFamily()));
+        numFiltered++;
+      }
+      columnsDef.add(name);
+    }
+    if (numFiltered != mColumnFilters.size()) {
+      throw invalid("Qualifier filters apply to requested families: " + mColumnFilters.keySet());
+    }
+    return builder.build();
+  }
+}
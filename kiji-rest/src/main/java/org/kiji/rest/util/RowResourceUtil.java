@@ -30,26 +30,19 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.ws.rs.WebApplicationException;
-import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import org.apache.avro.Schema;
-import org.apache.avro.Schema.Type;
-import org.apache.avro.generic.GenericDatumReader;
-import org.apache.avro.io.DecoderFactory;
 
 import org.kiji.annotations.ApiAudience;
-import org.kiji.rest.representations.KijiRestCell;
 import org.kiji.rest.representations.KijiRestEntityId;
 import org.kiji.rest.representations.KijiRestRow;
-import org.kiji.rest.representations.SchemaOption;
-import org.kiji.schema.DecodedCell;
+import org.kiji.rest.representations.KijiRestRowBuffer;
 import org.kiji.schema.EntityId;
+import org.kiji.schema.HBaseScanOptions;
 import org.kiji.schema.KijiCell;
 import org.kiji.schema.KijiColumnName;
 import org.kiji.schema.KijiDataRequest;
@@ -59,13 +52,10 @@ import org.kiji.schema.KijiSchemaTable;
 import org.kiji.schema.KijiTable;
 import org.kiji.schema.KijiTableReader;
 import org.kiji.schema.KijiTableWriter;
-import org.kiji.schema.avro.SchemaType;
 import org.kiji.schema.layout.CellSpec;
 import org.kiji.schema.layout.KijiTableLayout;
 import org.kiji.schema.layout.KijiTableLayout.LocalityGroupLayout.FamilyLayout;
 import org.kiji.schema.layout.KijiTableLayout.LocalityGroupLayout.FamilyLayout.ColumnLayout;
-import org.kiji.schema.layout.SchemaClassNotFoundException;
-import org.kiji.schema.util.ResourceUtils;
 
 /**
  * Utility methods used for reading and writing REST row model objects to/from Kiji.
@@ -73,8 +63,13 @@ import org.kiji.schema.util.ResourceUtils;
 @ApiAudience.Framework
 public final class RowResourceUtil {
 
-  private static final ObjectMapper BASIC_MAPPER = new ObjectMapper();
-  private static final String COUNTER_INCREMENT_KEY = "incr";
+  private static final Schema COUNTER_SCHEMA = Schema.create(Schema.Type.LONG);
+
+  /** Metrics scope of the schema id caches built for callers passing a schema table. */
+  private static final String SCHEMA_TABLE_SCOPE = "schema-table";
+
+  /** Pattern of a time range: min..max, where both min and max are optional. */
+  private static final Pattern TIMESTAMP_PATTERN = Pattern.compile("([0-9]*)\\.\\.([0-9]*)");
 
   /**
    * Blank constructor.
@@ -94,8 +89,7 @@ public final class RowResourceUtil {
   public static long[] getTimestamps(String timeRange) {
 
     long[] lReturn = new long[] { 0, Long.MAX_VALUE };
-    final Pattern timestampPattern = Pattern.compile("([0-9]*)\\.\\.([0-9]*)");
-    final Matcher timestampMatcher = timestampPattern.matcher(timeRange);
+    final Matcher timestampMatcher = TIMESTAMP_PATTERN.matcher(timeRange);
 
     if (timestampMatcher.matches()) {
       final String leftEndpoint = timestampMatcher.group(1);
@@ -189,87 +183,193 @@ public final class RowResourceUtil {
    * @throws IOException when trying to request the specs of a column family that doesn't exist.
    *         Although this shouldn't happen as columns are assumed to have been validated before
    *         this method is invoked.
+   * @deprecated Schema UIDs are only cached for the row. Use
+   *         {@link #getKijiRestRow(KijiRowData, KijiTableLayout, List, SchemaIdCache)} with the
+   *         cache of the instance, see {@link org.kiji.rest.KijiClient#getSchemaIdCache(String)}.
    */
+  @Deprecated
   public static KijiRestRow getKijiRestRow(KijiRowData rowData, KijiTableLayout tableLayout,
       List<KijiColumnName> columnsRequested, KijiSchemaTable schemaTable) throws IOException {
-    // The entityId is materialized based on the row key format.
-    KijiRestRow returnRow = new KijiRestRow(
-        KijiRestEntityId.create(rowData.getEntityId(), tableLayout));
-    Map<String, FamilyLayout> familyLayoutMap = tableLayout.getFamilyMap();
+    return getKijiRestRow(rowData, tableLayout, columnsRequested,
+        new SchemaIdCache(schemaTable, SCHEMA_TABLE_SCOPE));
+  }
 
+  /**
+   * Reads the KijiRowData retrieved and returns the POJO representing the result sent to the
+   * client.
+   *
+   * @param rowData is the actual row data fetched from Kiji
+   * @param tableLayout the layout of the underlying Kiji table itself.
+   * @param columnsRequested is the list of columns requested by the client
+   * @param schemaIds is the cache in front of the schema table used to resolve the writer's
+   *        schema into the Kiji specific UID.
+   * @return The Kiji row data POJO to be sent to the client
+   * @throws IOException when trying to request the specs of a column family that doesn't exist.
+   *         Although this shouldn't happen as columns are assumed to have been validated before
+   *         this method is invoked.
+   */
+  public static KijiRestRow getKijiRestRow(KijiRowData rowData, KijiTableLayout tableLayout,
+      List<KijiColumnName> columnsRequested, SchemaIdCache schemaIds) throws IOException {
     // Let's sort this to keep the response consistent with what hbase would return.
     Collections.sort(columnsRequested);
+    final List<RequestPlan.ColumnPlan> columnPlans = RequestPlan.planColumns(
+        tableLayout, columnsRequested, Maps.<KijiColumnName, CellSpec>newHashMap());
+    long counterSchemaId = -1;
+    for (RequestPlan.ColumnPlan columnPlan : columnPlans) {
+      if (columnPlan.getKind() == RequestPlan.ColumnKind.COUNTER) {
+        counterSchemaId = getCounterSchemaId(schemaIds);
+        break;
+      }
+    }
+    final KijiRestRowBuffer buffer = new KijiRestRowBuffer();
+    fillRowBuffer(rowData, tableLayout, columnPlans, counterSchemaId, schemaIds, buffer);
+    return buffer.toKijiRestRow();
+  }
+
+  /**
+   * Returns the UID of the schema of counter cells.
+   *
+   * @param schemaIds is the cache in front of the schema table of the instance.
+   * @return the UID of the schema of counters.
+   * @throws IOException if the schema table can not be reached.
+   */
+  public static long getCounterSchemaId(SchemaIdCache schemaIds) throws IOException {
+    return schemaIds.getOrCreateSchemaId(COUNTER_SCHEMA);
+  }
+
+  /**
+   * Reads the KijiRowData retrieved into a row buffer, following the column plans compiled for
+   * the request. Streaming responses reuse a single buffer for all the rows they write.
+   *
+   * @param rowData is the actual row data fetched from Kiji
+   * @param tableLayout the layout of the underlying Kiji table itself.
+   * @param plan of the request, compiled against tableLayout.
+   * @param counterSchemaId is the UID of the schema of counters, see
+   *        {@link #getCounterSchemaId(SchemaIdCache)}. Unused if the plan has no counters.
+   * @param schemaIds is the cache in front of the schema table used to resolve the writer's
+   *        schema into the Kiji specific UID.
+   * @param buffer is reset to hold the row.
+   * @throws IOException if the cells can not be read.
+   */
+  public static void fillRowBuffer(KijiRowData rowData, KijiTableLayout tableLayout,
+      RequestPlan plan, long counterSchemaId, SchemaIdCache schemaIds, KijiRestRowBuffer buffer)
+      throws IOException {
+    fillRowBuffer(rowData, tableLayout, plan.getColumnPlans(), counterSchemaId, schemaIds,
+        buffer);
+  }
 
-    for (KijiColumnName col : columnsRequested) {
-      FamilyLayout familyInfo = familyLayoutMap.get(col.getFamily());
-      CellSpec spec = null;
-      try {
-        spec = tableLayout.getCellSpec(col);
-      } catch (SchemaClassNotFoundException e) {
-        // If the user is requesting a column whose class is not on the
-        // classpath, then we
-        // will get an exception here. Until we migrate to KijiSchema 1.1.0 and
-        // use the generic
-        // Avro API, we will have to require clients to load the rest server
-        // with compiled
-        // Avro schemas on the classpath.
-        DecodedCell<String> decodedCell = new DecodedCell<String>(null, "Error loading cell: "
-            + e.getMessage());
+  /**
+   * Reads the KijiRowData retrieved into a row buffer.
+   *
+   * @param rowData is the actual row data fetched from Kiji
+   * @param tableLayout the layout of the underlying Kiji table itself.
+   * @param columnPlans of the columns requested by the client, sorted by column.
+   * @param counterSchemaId is the UID of the schema of counters.
+   * @param schemaIds is the cache in front of the schema table used to resolve the writer's
+   *        schema into the Kiji specific UID.
+   * @param buffer is reset to hold the row.
+   * @throws IOException if the cells can not be read.
+   */
+  private static void fillRowBuffer(KijiRowData rowData, KijiTableLayout tableLayout,
+      List<RequestPlan.ColumnPlan> columnPlans, long counterSchemaId, SchemaIdCache schemaIds,
+      KijiRestRowBuffer buffer) throws IOException {
+    // The entityId is materialized based on the row key format.
+    buffer.reset(KijiRestEntityId.create(rowData.getEntityId(), tableLayout));
+
+    for (RequestPlan.ColumnPlan columnPlan : columnPlans) {
+      addColumnCells(rowData, columnPlan, counterSchemaId, schemaIds, buffer);
+    }
+  }
+
+  /**
+   * Reads the cells of a column into a row buffer, following the plan of the column. Paged
+   * columns are read a page at a time, by passing each page of the column as rowData.
+   *
+   * @param rowData is the row data, or a page of the column, fetched from Kiji.
+   * @param columnPlan of the column to read.
+   * @param counterSchemaId is the UID of the schema of counters.
+   * @param schemaIds is the cache in front of the schema table used to resolve the writer's
+   *        schema into the Kiji specific UID.
+   * @param buffer to add the cells to.
+   * @throws IOException if the cells can not be read.
+   */
+  public static void addColumnCells(KijiRowData rowData, RequestPlan.ColumnPlan columnPlan,
+      long counterSchemaId, SchemaIdCache schemaIds, KijiRestRowBuffer buffer)
+      throws IOException {
+    final KijiColumnName col = columnPlan.getColumn();
+    switch (columnPlan.getKind()) {
+      case UNREADABLE: {
+        // If the user is requesting a column whose class is not on the classpath, clients
+        // get an error cell. Until we migrate to KijiSchema 1.1.0 and use the generic Avro
+        // API, we will have to require clients to load the rest server with compiled Avro
+        // schemas on the classpath.
         String qualifier = "";
         if (col.getQualifier() != null) {
           qualifier = col.getQualifier();
         }
         // Error condition.
-        SchemaOption schemaOption = new SchemaOption(-1);
-        returnRow.addCell(new KijiCell<String>(col.getFamily(), qualifier, -1L, decodedCell),
-            schemaOption);
-        continue;
+        buffer.addCell(col.getFamily(), qualifier, -1L,
+            "Error loading cell: " + columnPlan.getError(), -1L);
+        break;
       }
-      if (spec.isCounter()) {
-        if (col.isFullyQualified()) {
-          KijiCell<Long> counter = rowData.getMostRecentCell(col.getFamily(), col.getQualifier());
+      case COUNTER: {
+        KijiCell<Long> counter = rowData.getMostRecentCell(col.getFamily(), col.getQualifier());
+        if (null != counter) {
+          addCell(buffer, counter, counterSchemaId, null);
+        }
+        break;
+      }
+      case FAMILY_COUNTERS: {
+        // Only can print all qualifiers on map types
+        for (String key : rowData.getQualifiers(col.getFamily())) {
+          KijiCell<Long> counter = rowData.getMostRecentCell(col.getFamily(), key);
           if (null != counter) {
-            SchemaOption schemaOption = new SchemaOption(schemaTable.
-                getOrCreateSchemaId(Schema.create(Schema.Type.LONG)));
-            returnRow.addCell(counter, schemaOption);
-          }
-        } else if (familyInfo.isMapType()) {
-          // Only can print all qualifiers on map types
-          for (String key : rowData.getQualifiers(col.getFamily())) {
-            KijiCell<Long> counter = rowData.getMostRecentCell(col.getFamily(), key);
-            if (null != counter) {
-              SchemaOption schemaOption = new SchemaOption(schemaTable.
-                  getOrCreateSchemaId(counter.getWriterSchema()));
-              returnRow.addCell(counter, schemaOption);
-            }
+            addCell(buffer, counter, schemaIds.getOrCreateSchemaId(counter.getWriterSchema()),
+                null);
           }
         }
-      } else {
-
-        if (col.isFullyQualified()) {
-          Map<Long, KijiCell<Object>> rowVals = rowData.getCells(col.getFamily(),
-              col.getQualifier());
-          for (Entry<Long, KijiCell<Object>> timestampedCell : rowVals.entrySet()) {
-            KijiCell<Object> kijiCell = timestampedCell.getValue();
-            SchemaOption schemaOption = new SchemaOption(schemaTable.
-                getOrCreateSchemaId(kijiCell.getWriterSchema()));
-            returnRow.addCell(kijiCell, schemaOption);
-          }
-        } else if (familyInfo.isMapType()) {
-          Map<String, NavigableMap<Long, KijiCell<Object>>> rowVals = rowData.getCells(col
-              .getFamily());
-
-          for (Entry<String, NavigableMap<Long, KijiCell<Object>>> e : rowVals.entrySet()) {
-            for (KijiCell<Object> timestampedCell : e.getValue().values()) {
-              SchemaOption schemaOption = new SchemaOption(schemaTable.
-                  getOrCreateSchemaId(timestampedCell.getWriterSchema()));
-              returnRow.addCell(timestampedCell, schemaOption);
-            }
+        break;
+      }
+      case CELLS: {
+        Map<Long, KijiCell<Object>> rowVals = rowData.getCells(col.getFamily(),
+            col.getQualifier());
+        for (Entry<Long, KijiCell<Object>> timestampedCell : rowVals.entrySet()) {
+          KijiCell<Object> kijiCell = timestampedCell.getValue();
+          addCell(buffer, kijiCell, schemaIds.getOrCreateSchemaId(kijiCell.getWriterSchema()),
+              columnPlan.getReaderSchema());
+        }
+        break;
+      }
+      case FAMILY_CELLS: {
+        Map<String, NavigableMap<Long, KijiCell<Object>>> rowVals = rowData.getCells(col
+            .getFamily());
+
+        for (Entry<String, NavigableMap<Long, KijiCell<Object>>> e : rowVals.entrySet()) {
+          for (KijiCell<Object> timestampedCell : e.getValue().values()) {
+            addCell(buffer, timestampedCell,
+                schemaIds.getOrCreateSchemaId(timestampedCell.getWriterSchema()),
+                columnPlan.getReaderSchema());
           }
         }
+        break;
       }
+      default:
+        break;
     }
-    return returnRow;
+  }
+
+  /**
+   * Adds a cell read from Kiji to a row buffer.
+   *
+   * @param buffer to add the cell to.
+   * @param cell to add.
+   * @param schemaId is the UID of the writer schema of the cell.
+   * @param readerSchema the cell was decoded with, or null if it is the writer schema.
+   */
+  private static void addCell(KijiRestRowBuffer buffer, KijiCell<?> cell, long schemaId,
+      Schema readerSchema) {
+    buffer.addCell(cell.getFamily(), cell.getQualifier(), cell.getTimestamp(), cell.getData(),
+        schemaId, readerSchema);
   }
 
   /**
@@ -297,6 +397,83 @@ public final class RowResourceUtil {
     return returnRow;
   }
 
+  /**
+   * Returns a Kiji row object given the table's reader pool, entity_id and data request. The
+   * reader is borrowed from the pool rather than opened for this single request.
+   *
+   * @param readerPool is the pool of readers of the table containing the row.
+   * @param eid is the entity id of the row to return.
+   * @param request contains information about what to return.
+   * @return a Kiji row object conforming to the parameters of the request.
+   *
+   * @throws IOException if the retrieve fails.
+   */
+  public static KijiRowData getKijiRowData(KijiTableReaderPool readerPool, EntityId eid,
+      KijiDataRequest request) throws IOException {
+    final KijiTableReader reader = readerPool.borrowReader();
+    final KijiRowData returnRow;
+    try {
+      returnRow = reader.get(eid, request);
+    } catch (IOException ioe) {
+      readerPool.invalidateReader(reader);
+      throw ioe;
+    } catch (RuntimeException re) {
+      readerPool.invalidateReader(reader);
+      throw re;
+    }
+    readerPool.returnReader(reader);
+    return returnRow;
+  }
+
+  /**
+   * Returns Kiji row objects given the table's reader pool, entity_ids and data request. All rows
+   * are fetched with a single bulk get and are returned in the order of the entity ids.
+   *
+   * @param readerPool is the pool of readers of the table containing the rows.
+   * @param eids are the entity ids of the rows to return.
+   * @param request contains information about what to return.
+   * @return Kiji row objects conforming to the parameters of the request.
+   *
+   * @throws IOException if the retrieve fails.
+   */
+  public static List<KijiRowData> getKijiRowDatas(KijiTableReaderPool readerPool,
+      List<EntityId> eids, KijiDataRequest request) throws IOException {
+    final KijiTableReader reader = readerPool.borrowReader();
+    final List<KijiRowData> returnRows;
+    try {
+      returnRows = reader.bulkGet(eids, request);
+    } catch (IOException ioe) {
+      readerPool.invalidateReader(reader);
+      throw ioe;
+    } catch (RuntimeException re) {
+      readerPool.invalidateReader(reader);
+      throw re;
+    }
+    readerPool.returnReader(reader);
+    return returnRows;
+  }
+
+  /**
+   * Builds the HBase options of a scanner. KijiSchema applies the server prefetch size as the
+   * caching of the HBase scan, i.e. rows per RPC, and the client buffer size as its batch, i.e.
+   * cells of a row per RPC.
+   *
+   * @param scannerCaching is the number of rows fetched per scanner RPC, 0 to leave it to HBase.
+   * @param scannerBatch is the number of cells of a row fetched per scanner RPC, 0 to leave it to
+   *        HBase.
+   * @return the HBase options of a scanner.
+   */
+  public static HBaseScanOptions newHBaseScanOptions(int scannerCaching, int scannerBatch) {
+    final HBaseScanOptions hbaseOptions = new HBaseScanOptions();
+    if (scannerCaching > 0) {
+      hbaseOptions.setServerPrefetchSize(scannerCaching);
+    }
+    if (scannerBatch > 0) {
+      hbaseOptions.setClientBufferSize(scannerBatch);
+    }
+    return hbaseOptions;
+  }
+
   /**
    * A helper method to perform individual cell puts.
    *
@@ -307,7 +484,11 @@ public final class RowResourceUtil {
    * @param timestamp The timestamp to put the cell at (default is cluster-side UNIX time).
    * @param schema The schema of the cell (default is specified in layout.).
    * @throws IOException When the put fails.
+   * @deprecated The decoder of the value is built for the cell. Use
+   *         {@link #putCell(KijiTableWriter, EntityId, String, KijiColumnName, long, Schema,
+   *         JsonDecoderCache)} with the cache of the instance.
    */
+  @Deprecated
   public static void putCell(
       final KijiTableWriter writer,
       final EntityId entityId,
@@ -316,16 +497,47 @@ public final class RowResourceUtil {
       final long timestamp,
       final Schema schema)
       throws IOException {
-    Preconditions.checkNotNull(schema);
-    // Create the Avro record to write.
-    // String types are a bit annoying in that those need double escaping of the quotations
-    // which are impractical for clients and don't match the semantics of what GET returns. This
-    // is because the JSON decoder requires escaped strings to be properly parsed into JSON.
-    Object datum = jsonValue;
-    if (schema.getType() != Type.STRING) {
-      GenericDatumReader<Object> reader = new GenericDatumReader<Object>(schema);
-      datum = reader.read(null, new DecoderFactory().jsonDecoder(schema, jsonValue));
-    }
+    putCell(writer, entityId, jsonValue, column, timestamp, schema, new JsonDecoderCache());
+  }
+
+  /**
+   * Decodes the JSON value of a posted cell into the Avro datum to write.
+   *
+   * @param jsonValue The json value to decode.
+   * @param schema The schema of the cell.
+   * @return the datum to write.
+   * @throws IOException When the value can not be decoded with the schema.
+   * @deprecated The decoder of the value is built for the cell. Use
+   *         {@link JsonDecoderCache#decode(String, Schema)} with the cache of the instance.
+   */
+  @Deprecated
+  public static Object decodeCellValue(final String jsonValue, final Schema schema)
+      throws IOException {
+    return new JsonDecoderCache().decode(jsonValue, schema);
+  }
+
+  /**
+   * A helper method to perform individual cell puts.
+   *
+   * @param writer The table writer which will do the putting.
+   * @param entityId The entityId of the row to put to.
+   * @param jsonValue The json value to put.
+   * @param column The column to put the cell to.
+   * @param timestamp The timestamp to put the cell at (default is cluster-side UNIX time).
+   * @param schema The schema of the cell (default is specified in layout.).
+   * @param jsonDecoders The cache of the instance decoding the JSON value with the schema.
+   * @throws IOException When the put fails.
+   */
+  public static void putCell(
+      final KijiTableWriter writer,
+      final EntityId entityId,
+      final String jsonValue,
+      final KijiColumnName column,
+      final long timestamp,
+      final Schema schema,
+      final JsonDecoderCache jsonDecoders)
+      throws IOException {
+    final Object datum = jsonDecoders.decode(jsonValue, schema);
     // Write the put.
     writer.put(entityId, column.getFamily(), column.getQualifier(), timestamp, datum);
   }
@@ -339,93 +551,36 @@ public final class RowResourceUtil {
    * @param schemaTable is the handle to the schema table used to resolve the KijiRestCell's
    *        writer schema if it was specified as a UID.
    * @throws IOException if there a failure writing the row.
+   * @deprecated The decoders of the values are built for the row. Use
+   *         {@link #writeRow(KijiTable, EntityId, KijiRestRow, KijiSchemaTable, JsonDecoderCache)}
+   *         with the cache of the instance.
    */
+  @Deprecated
   public static void writeRow(KijiTable kijiTable, EntityId entityId,
       KijiRestRow kijiRestRow, KijiSchemaTable schemaTable) throws IOException {
-    final KijiTableWriter writer = kijiTable.openTableWriter();
-    // Default global timestamp.
-    long globalTimestamp = System.currentTimeMillis();
+    writeRow(kijiTable, entityId, kijiRestRow, schemaTable, new JsonDecoderCache());
+  }
 
+  /**
+   * Util method to write a rest row into Kiji.
+   *
+   * @param kijiTable is the table to write into.
+   * @param entityId is the entity id of the row to write.
+   * @param kijiRestRow is the row model to write to Kiji.
+   * @param schemaTable is the handle to the schema table used to resolve the KijiRestCell's
+   *        writer schema if it was specified as a UID.
+   * @param jsonDecoders is the cache of the instance decoding the JSON values of the cells.
+   * @throws IOException if there a failure writing the row.
+   */
+  public static void writeRow(KijiTable kijiTable, EntityId entityId,
+      KijiRestRow kijiRestRow, KijiSchemaTable schemaTable, JsonDecoderCache jsonDecoders)
+      throws IOException {
+    final KijiRestRowWriter writer =
+        new KijiRestRowWriter(kijiTable, schemaTable, jsonDecoders, 0, 0);
     try {
-      for (Entry<String, NavigableMap<String, List<KijiRestCell>>> familyEntry : kijiRestRow
-          .getCells().entrySet()) {
-        String columnFamily = familyEntry.getKey();
-        NavigableMap<String, List<KijiRestCell>> qualifiedCells = familyEntry.getValue();
-        for (Entry<String, List<KijiRestCell>> qualifiedCell : qualifiedCells.entrySet()) {
-          final KijiColumnName column = new KijiColumnName(columnFamily, qualifiedCell.getKey());
-          if (!kijiTable.getLayout().exists(column)) {
-            throw new WebApplicationException(new IllegalArgumentException(
-                "Specified column does not exist: " + column), Response.Status.BAD_REQUEST);
-          }
-
-          for (KijiRestCell restCell : qualifiedCell.getValue()) {
-            final long timestamp;
-            if (null != restCell.getTimestamp()) {
-              timestamp = restCell.getTimestamp();
-            } else {
-              timestamp = globalTimestamp;
-            }
-            if (timestamp >= 0) {
-              // Put to either a counter or a regular cell.
-              if (SchemaType.COUNTER == kijiTable.getLayout().getCellSchema(column).getType()) {
-                JsonNode parsedCounterValue = BASIC_MAPPER.valueToTree(restCell.getValue());
-                if (parsedCounterValue.isIntegralNumber()) {
-                  // Write the counter cell.
-                  writer.put(entityId,
-                      column.getFamily(),
-                      column.getQualifier(),
-                      timestamp,
-                      parsedCounterValue.asLong());
-                } else if (parsedCounterValue.isContainerNode()) {
-                    if (null != parsedCounterValue.get(COUNTER_INCREMENT_KEY)
-                        && parsedCounterValue.get(COUNTER_INCREMENT_KEY).isIntegralNumber()) {
-                      // Counter incrementation does not support timestamp.
-                      if (null != restCell.getTimestamp()) {
-                        throw new WebApplicationException(
-                            new IllegalArgumentException("Counter incrementation does not support "
-                                + "timestamp. Do not specify timestamp in request."));
-                      }
-                      // Increment counter cell.
-                      writer.increment(entityId,
-                          column.getFamily(),
-                          column.getQualifier(),
-                          parsedCounterValue.get(COUNTER_INCREMENT_KEY).asLong());
-                    } else {
-                      throw new WebApplicationException(
-                          new IllegalArgumentException("Counter increment could not be parsed "
-                              + "as long: "
-                              + parsedCounterValue
-                              + ". Provide a json node such as {\"incr\" : 123}."),
-                          Response.Status.BAD_REQUEST);
-                    }
-                } else {
-                  // Could not parse parameter to a long.
-                  throw new WebApplicationException(
-                      new IllegalArgumentException("Counter value could not be parsed as long: "
-                          + parsedCounterValue
-                          + ". Provide a long value to set the counter."),
-                      Response.Status.BAD_REQUEST);
-                }
-              } else {
-                // Write the cell.
-                String jsonValue = restCell.getValue().toString();
-                // TODO: This is ugly. Converting from Map to JSON to String.
-                if (restCell.getValue() instanceof Map<?, ?>) {
-                  JsonNode node = BASIC_MAPPER.valueToTree(restCell.getValue());
-                  jsonValue = node.toString();
-                }
-                Schema actualWriter = restCell.getWriterSchema(schemaTable);
-                if (actualWriter == null) {
-                  throw new IOException("Unrecognized schema " + restCell.getValue());
-                }
-                putCell(writer, entityId, jsonValue, column, timestamp, actualWriter);
-              }
-            }
-          }
-        }
-      }
+      writer.write(entityId, kijiRestRow);
     } finally {
-      ResourceUtils.closeOrLog(writer);
+      writer.close();
     }
   }
 }
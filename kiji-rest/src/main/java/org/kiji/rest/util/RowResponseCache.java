@@ -0,0 +1,255 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest.util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableMap;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
+
+import org.kiji.schema.EntityId;
+import org.kiji.schema.KijiDataRequest;
+
+/**
+ * Caches the serialized JSON responses of point GETs, so that frequently read rows are neither
+ * fetched from HBase nor serialized again. A response is cached for the row it belongs to, the
+ * layout of the table and the data request, which normalizes the requested columns, versions
+ * and time range.
+ *
+ * <p>The cache is bounded by the size of the responses it holds, and responses expire after a
+ * short time to bound staleness from writers on other nodes. Writes through this node invalidate
+ * the rows they touch. A response read before an invalidation is not cached after it: callers
+ * take the current generation before reading a row and pass it back when caching the
+ * response.</p>
+ */
+public class RowResponseCache {
+
+  /** Estimated number of bytes held by an entry besides its response. */
+  private static final int ENTRY_OVERHEAD = 64;
+
+  /** Responses of each row, keyed by the table layout id and data request. */
+  private final Cache<RowId, Map<ResponseId, byte[]>> mCache;
+
+  /** Incremented whenever rows are invalidated. */
+  private final AtomicLong mGeneration = new AtomicLong(0);
+
+  private final Counter mHits = Metrics.newCounter(RowResponseCache.class, "hits");
+  private final Counter mMisses = Metrics.newCounter(RowResponseCache.class, "misses");
+
+  /**
+   * Create a new response cache.
+   *
+   * @param maxBytes maximum total size of the cached responses.
+   * @param ttlMillis time after which a cached response expires.
+   */
+  public RowResponseCache(long maxBytes, long ttlMillis) {
+    mCache = CacheBuilder.newBuilder()
+        .maximumWeight(maxBytes)
+        .weigher(new Weigher<RowId, Map<ResponseId, byte[]>>() {
+          @Override
+          public int weigh(RowId row, Map<ResponseId, byte[]> responses) {
+            int weight = ENTRY_OVERHEAD + row.mRowKey.length;
+            for (byte[] response : responses.values()) {
+              weight += ENTRY_OVERHEAD + response.length;
+            }
+            return weight;
+          }
+        })
+        .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  /**
+   * Returns the current generation of the cache, to pass to {@link #put} once the row is read.
+   *
+   * @return the current generation.
+   */
+  public long getGeneration() {
+    return mGeneration.get();
+  }
+
+  /**
+   * Returns a cached response.
+   *
+   * @param instance of the table.
+   * @param table of the row.
+   * @param layoutId of the table layout.
+   * @param entityId of the row.
+   * @param request of the response.
+   * @return the cached response, or null.
+   */
+  public byte[] get(String instance, String table, String layoutId, EntityId entityId,
+      KijiDataRequest request) {
+    final Map<ResponseId, byte[]> responses =
+        mCache.getIfPresent(new RowId(instance, table, entityId));
+    final byte[] response =
+        (null != responses) ? responses.get(new ResponseId(layoutId, request)) : null;
+    if (null != response) {
+      mHits.inc();
+    } else {
+      mMisses.inc();
+    }
+    return response;
+  }
+
+  /**
+   * Caches a response, unless rows were invalidated since it was read.
+   *
+   * @param instance of the table.
+   * @param table of the row.
+   * @param layoutId of the table layout.
+   * @param entityId of the row.
+   * @param request of the response.
+   * @param generation of the cache before the row was read.
+   * @param response to cache.
+   */
+  // CSOFF: ParameterNumberCheck
+  public void put(String instance, String table, String layoutId, EntityId entityId,
+      KijiDataRequest request, long generation, byte[] response) {
+    // CSON: ParameterNumberCheck
+    if (generation != mGeneration.get()) {
+      return;
+    }
+    final RowId row = new RowId(instance, table, entityId);
+    final ResponseId responseId = new ResponseId(layoutId, request);
+    // Entries are replaced rather than updated so that they are weighed again. Concurrent puts
+    // may drop each other's response, which is only a missed opportunity to cache.
+    final Map<ResponseId, byte[]> responses = mCache.getIfPresent(row);
+    final ImmutableMap.Builder<ResponseId, byte[]> builder = ImmutableMap.builder();
+    if (null != responses) {
+      for (Map.Entry<ResponseId, byte[]> entry : responses.entrySet()) {
+        if (!entry.getKey().equals(responseId)) {
+          builder.put(entry);
+        }
+      }
+    }
+    builder.put(responseId, response);
+    if (generation != mGeneration.get()) {
+      return;
+    }
+    mCache.put(row, builder.build());
+    // An invalidation may have run between the check and the put. Invalidations bump the
+    // generation before discarding rows, so either it discards the response, or it is seen here.
+    if (generation != mGeneration.get()) {
+      mCache.invalidate(row);
+    }
+  }
+
+  /**
+   * Discards the cached responses of rows. Must be called once the rows are written.
+   *
+   * @param instance of the table.
+   * @param table of the rows.
+   * @param entityIds of the rows.
+   */
+  public void invalidate(String instance, String table, Iterable<EntityId> entityIds) {
+    mGeneration.incrementAndGet();
+    for (EntityId entityId : entityIds) {
+      mCache.invalidate(new RowId(instance, table, entityId));
+    }
+  }
+
+  /**
+   * Discards all cached responses.
+   */
+  public void invalidateAll() {
+    mGeneration.incrementAndGet();
+    mCache.invalidateAll();
+  }
+
+  /** Identifies a row of a table. */
+  private static final class RowId {
+    private final String mInstance;
+    private final String mTable;
+    private final byte[] mRowKey;
+
+    /**
+     * Create a row id.
+     *
+     * @param instance of the table.
+     * @param table of the row.
+     * @param entityId of the row.
+     */
+    private RowId(String instance, String table, EntityId entityId) {
+      mInstance = instance;
+      mTable = table;
+      mRowKey = entityId.getHBaseRowKey();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof RowId)) {
+        return false;
+      }
+      final RowId that = (RowId) other;
+      return mInstance.equals(that.mInstance)
+          && mTable.equals(that.mTable)
+          && Arrays.equals(mRowKey, that.mRowKey);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(mInstance, mTable) * 31 + Arrays.hashCode(mRowKey);
+    }
+  }
+
+  /** Identifies a response of a row. */
+  private static final class ResponseId {
+    private final String mLayoutId;
+    private final KijiDataRequest mRequest;
+
+    /**
+     * Create a response id.
+     *
+     * @param layoutId of the table layout.
+     * @param request of the response.
+     */
+    private ResponseId(String layoutId, KijiDataRequest request) {
+      mLayoutId = layoutId;
+      mRequest = request;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof ResponseId)) {
+        return false;
+      }
+      final ResponseId that = (ResponseId) other;
+      return Objects.equal(mLayoutId, that.mLayoutId) && mRequest.equals(that.mRequest);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(mLayoutId, mRequest);
+    }
+  }
+}
@@ -0,0 +1,233 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.BaseEncoding;
+
+/**
+ * Position of a client paging through a range scan, one page of rows per request. A cursor holds
+ * the HBase row key of the next row to return, the stop key of the scan and the parameters of its
+ * request plan, so that the scan resumes exactly where the previous page ended whatever the row
+ * key format. It is exchanged with clients as an opaque, URL safe token.
+ */
+public final class ScanCursor {
+
+  private static final BaseEncoding ENCODING = BaseEncoding.base64Url().omitPadding();
+
+  /** Version of the encoding of cursors. */
+  private static final int VERSION = 1;
+
+  private final byte[] mStartKey;
+  private final byte[] mStopKey;
+  private final String mColumns;
+  private final String mMaxVersions;
+  private final String mTimeRange;
+  private final int mPageSize;
+  private final String mFilter;
+
+  /**
+   * Create a cursor.
+   *
+   * @param startKey of the next row to return, or null before the first page.
+   * @param stopKey of the scan, exclusive. Empty for the end of the table.
+   * @param columns requested, as the cols parameter.
+   * @param maxVersions requested, as the versions parameter.
+   * @param timeRange requested, as the timerange parameter, or null.
+   * @param pageSize of paged columns, 0 if columns are not paged.
+   * @param filter requested, as the filter parameter, or null.
+   */
+  public ScanCursor(byte[] startKey, byte[] stopKey, String columns, String maxVersions,
+      String timeRange, int pageSize, String filter) {
+    mStartKey = startKey;
+    mStopKey = Preconditions.checkNotNull(stopKey);
+    mColumns = Preconditions.checkNotNull(columns);
+    mMaxVersions = Preconditions.checkNotNull(maxVersions);
+    mTimeRange = timeRange;
+    mPageSize = pageSize;
+    mFilter = filter;
+  }
+
+  /**
+   * Decodes a cursor sent by a client.
+   *
+   * @param token to decode.
+   * @return the decoded cursor.
+   * @throws WebApplicationException with status 400 if the token is invalid.
+   */
+  public static ScanCursor decode(String token) {
+    try {
+      final DataInputStream in =
+          new DataInputStream(new ByteArrayInputStream(ENCODING.decode(token)));
+      if (in.readInt() != VERSION) {
+        throw new IOException("Unsupported cursor version.");
+      }
+      final byte[] startKey = readBytes(in);
+      final byte[] stopKey = readBytes(in);
+      final String columns = in.readUTF();
+      final String maxVersions = in.readUTF();
+      final String timeRange = in.readBoolean() ? in.readUTF() : null;
+      final int pageSize = in.readInt();
+      final String filter = in.readBoolean() ? in.readUTF() : null;
+      return new ScanCursor(startKey, stopKey, columns, maxVersions, timeRange, pageSize,
+          filter);
+    } catch (IOException ioe) {
+      throw new WebApplicationException(new IllegalArgumentException(
+          "Invalid cursor: " + token), Status.BAD_REQUEST);
+    } catch (IllegalArgumentException iae) {
+      throw new WebApplicationException(new IllegalArgumentException(
+          "Invalid cursor: " + token), Status.BAD_REQUEST);
+    }
+  }
+
+  /**
+   * Reads a length prefixed byte array.
+   *
+   * @param in to read from.
+   * @return the byte array.
+   * @throws IOException if the array can not be read.
+   */
+  private static byte[] readBytes(DataInputStream in) throws IOException {
+    final int length = in.readInt();
+    if (length < 0 || length > in.available()) {
+      throw new IOException("Invalid key length: " + length);
+    }
+    final byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  /**
+   * Returns the cursor of the page starting at a row.
+   *
+   * @param startKey of the first row of the page.
+   * @return a cursor of the same scan, starting at startKey.
+   */
+  public ScanCursor resumeAt(byte[] startKey) {
+    return new ScanCursor(startKey, mStopKey, mColumns, mMaxVersions, mTimeRange, mPageSize,
+        mFilter);
+  }
+
+  /**
+   * Encodes this cursor to send it to a client.
+   *
+   * @return the encoded cursor.
+   */
+  public String encode() {
+    Preconditions.checkState(null != mStartKey, "Cursor has no start key.");
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      out.writeInt(VERSION);
+      out.writeInt(mStartKey.length);
+      out.write(mStartKey);
+      out.writeInt(mStopKey.length);
+      out.write(mStopKey);
+      out.writeUTF(mColumns);
+      out.writeUTF(mMaxVersions);
+      out.writeBoolean(null != mTimeRange);
+      if (null != mTimeRange) {
+        out.writeUTF(mTimeRange);
+      }
+      out.writeInt(mPageSize);
+      out.writeBoolean(null != mFilter);
+      if (null != mFilter) {
+        out.writeUTF(mFilter);
+      }
+      out.flush();
+    } catch (IOException ioe) {
+      // Writing to a byte array does not fail.
+      throw new IllegalStateException(ioe);
+    }
+    return ENCODING.encode(bytes.toByteArray());
+  }
+
+  /**
+   * Returns the row key of the next row to return.
+   *
+   * @return the start key of the page, or null before the first page.
+   */
+  public byte[] getStartKey() {
+    return mStartKey;
+  }
+
+  /**
+   * Returns the stop key of the scan.
+   *
+   * @return the exclusive stop key of the scan, empty for the end of the table.
+   */
+  public byte[] getStopKey() {
+    return mStopKey;
+  }
+
+  /**
+   * Returns the columns requested.
+   *
+   * @return the cols parameter of the scan.
+   */
+  public String getColumns() {
+    return mColumns;
+  }
+
+  /**
+   * Returns the max versions requested.
+   *
+   * @return the versions parameter of the scan.
+   */
+  public String getMaxVersions() {
+    return mMaxVersions;
+  }
+
+  /**
+   * Returns the time range requested.
+   *
+   * @return the timerange parameter of the scan, or null.
+   */
+  public String getTimeRange() {
+    return mTimeRange;
+  }
+
+  /**
+   * Returns the page size of paged columns.
+   *
+   * @return the page_size parameter of the scan, 0 if columns are not paged.
+   */
+  public int getPageSize() {
+    return mPageSize;
+  }
+
+  /**
+   * Returns the filter expression requested.
+   *
+   * @return the filter parameter of the scan, or null.
+   */
+  public String getFilter() {
+    return mFilter;
+  }
+}
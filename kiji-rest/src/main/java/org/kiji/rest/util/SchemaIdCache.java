@@ -0,0 +1,142 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest.util;
+
+import java.io.IOException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
+
+import org.apache.avro.Schema;
+
+import org.kiji.schema.KijiSchemaTable;
+
+/**
+ * A read-through cache in front of {@link KijiSchemaTable#getOrCreateSchemaId(Schema)} for a Kiji
+ * instance. Serializing a row resolves the writer schema of every cell to its UID, but only a
+ * handful of distinct writer schemas usually exist, and the decoded cells of a table share the
+ * same Schema objects.
+ *
+ * <p>Lookups first go through a cache keyed by schema identity, which never hashes the schema.
+ * Equal schemas which are distinct objects fall through to a cache keyed by schema equality
+ * (Avro caches the hash code of a schema), so that the schema table is only reached the first
+ * time a schema is seen. Hits and misses are exported as counters scoped by instance.</p>
+ *
+ * <p>Schemas are also cached by UID, for clients which refer to writer schemas by UID.</p>
+ */
+public class SchemaIdCache {
+
+  /** Maximum number of schemas held by each level of the cache. */
+  private static final long MAX_SCHEMAS = 1000;
+
+  private final KijiSchemaTable mSchemaTable;
+
+  /** Schema UIDs keyed by schema identity. Weak keys are compared with ==. */
+  private final Cache<Schema, Long> mIdentityCache =
+      CacheBuilder.newBuilder()
+          .weakKeys()
+          .maximumSize(MAX_SCHEMAS)
+          .build();
+
+  /** Schema UIDs keyed by schema equality. */
+  private final Cache<Schema, Long> mSchemaCache =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_SCHEMAS)
+          .build();
+
+  /** Schemas keyed by UID. */
+  private final Cache<Long, Schema> mIdCache =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_SCHEMAS)
+          .build();
+
+  private final Counter mHits;
+  private final Counter mMisses;
+
+  /**
+   * Create a new schema id cache in front of a schema table.
+   *
+   * @param schemaTable to resolve schemas missing from the cache.
+   * @param instance name of the Kiji instance of the schema table, used to scope metrics.
+   */
+  public SchemaIdCache(KijiSchemaTable schemaTable, String instance) {
+    mSchemaTable = schemaTable;
+    mHits = Metrics.newCounter(SchemaIdCache.class, "hits", instance);
+    mMisses = Metrics.newCounter(SchemaIdCache.class, "misses", instance);
+  }
+
+  /**
+   * Returns the UID of a schema, registering the schema in the schema table if necessary.
+   *
+   * @param schema to look up.
+   * @return the UID of the schema.
+   * @throws IOException if the schema table can not be reached.
+   */
+  public long getOrCreateSchemaId(Schema schema) throws IOException {
+    Long schemaId = mIdentityCache.getIfPresent(schema);
+    if (null != schemaId) {
+      mHits.inc();
+      return schemaId;
+    }
+    schemaId = mSchemaCache.getIfPresent(schema);
+    if (null != schemaId) {
+      mHits.inc();
+    } else {
+      mMisses.inc();
+      schemaId = mSchemaTable.getOrCreateSchemaId(schema);
+      mSchemaCache.put(schema, schemaId);
+      mIdCache.put(schemaId, schema);
+    }
+    mIdentityCache.put(schema, schemaId);
+    return schemaId;
+  }
+
+  /**
+   * Returns the schema with a UID.
+   *
+   * @param schemaId UID of the schema to look up.
+   * @return the schema with the UID, or null if no such schema exists.
+   * @throws IOException if the schema table can not be reached.
+   */
+  public Schema getSchema(long schemaId) throws IOException {
+    Schema schema = mIdCache.getIfPresent(schemaId);
+    if (null != schema) {
+      mHits.inc();
+      return schema;
+    }
+    mMisses.inc();
+    schema = mSchemaTable.getSchema(schemaId);
+    if (null != schema) {
+      mIdCache.put(schemaId, schema);
+    }
+    return schema;
+  }
+
+  /**
+   * Returns the schema table behind this cache.
+   *
+   * @return the schema table.
+   */
+  public KijiSchemaTable getSchemaTable() {
+    return mSchemaTable;
+  }
+}
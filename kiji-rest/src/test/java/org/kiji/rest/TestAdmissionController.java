@@ -0,0 +1,109 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import org.kiji.rest.util.AdmissionController;
+import org.kiji.rest.util.AdmissionController.RequestClass;
+
+/**
+ * Tests the admission control of concurrent requests.
+ */
+public class TestAdmissionController {
+
+  /**
+   * Asserts that a request is rejected with status 503 and a Retry-After header.
+   *
+   * @param controller admitting the request.
+   * @param table targeted by the request.
+   * @param requestClass of the request.
+   */
+  private static void assertRejected(AdmissionController controller, String table,
+      RequestClass requestClass) {
+    try {
+      controller.admit("instance", table, requestClass);
+      fail("The request should be rejected.");
+    } catch (WebApplicationException wae) {
+      assertEquals(Status.SERVICE_UNAVAILABLE.getStatusCode(), wae.getResponse().getStatus());
+      assertEquals(2, wae.getResponse().getMetadata()
+          .getFirst(AdmissionController.RETRY_AFTER_HEADER));
+    }
+  }
+
+  @Test
+  public void testShouldLimitRequestsPerClass() throws Exception {
+    final AdmissionController controller = new AdmissionController(
+        ImmutableMap.of(RequestClass.SCAN, 1), 0, 0, 0, 0, 2);
+    final AdmissionController.Permit scan =
+        controller.admit("instance", "table", RequestClass.SCAN);
+    assertRejected(controller, "other_table", RequestClass.SCAN);
+    // Other classes are not limited.
+    controller.admit("instance", "table", RequestClass.GET).release();
+    scan.release();
+    // Releasing twice does not free another permit.
+    scan.release();
+    controller.admit("instance", "table", RequestClass.SCAN);
+    assertRejected(controller, "table", RequestClass.SCAN);
+  }
+
+  @Test
+  public void testShouldLimitRequestsPerTable() throws Exception {
+    final AdmissionController controller = new AdmissionController(
+        ImmutableMap.<RequestClass, Integer>of(), 0, 1, 0, 0, 2);
+    final AdmissionController.Permit write =
+        controller.admit("instance", "table", RequestClass.WRITE);
+    assertRejected(controller, "table", RequestClass.GET);
+    controller.admit("instance", "other_table", RequestClass.GET).release();
+    write.release();
+    controller.admit("instance", "table", RequestClass.GET).release();
+  }
+
+  @Test
+  public void testShouldQueueRequestsUntilAdmitted() throws Exception {
+    final AdmissionController controller = new AdmissionController(
+        ImmutableMap.of(RequestClass.GET, 1), 0, 0, 1, 10000, 2);
+    final AdmissionController.Permit get =
+        controller.admit("instance", "table", RequestClass.GET);
+    final Thread waiter = new Thread() {
+      @Override
+      public void run() {
+        controller.admit("instance", "table", RequestClass.GET).release();
+      }
+    };
+    waiter.start();
+    while (controller.getQueued() == 0) {
+      Thread.sleep(10);
+    }
+    // The queue is full.
+    assertRejected(controller, "table", RequestClass.GET);
+    get.release();
+    waiter.join(10000);
+    assertEquals(0, controller.getQueued());
+    controller.admit("instance", "table", RequestClass.GET).release();
+  }
+}
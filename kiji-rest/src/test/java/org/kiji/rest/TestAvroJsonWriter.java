@@ -0,0 +1,122 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericContainer;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.io.JsonEncoder;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificRecord;
+import org.junit.Test;
+
+import org.kiji.rest.sample_avro.Team;
+import org.kiji.rest.serializers.AvroToJsonStringSerializer;
+
+/**
+ * Tests that Avro values are written with the same JSON as Avro's JsonEncoder produces.
+ */
+public class TestAvroJsonWriter {
+
+  private static final Schema RECORD_SCHEMA = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"Node\",\"namespace\":\"org.kiji.rest.test\",\"fields\":["
+      + "{\"name\":\"i\",\"type\":\"int\"},"
+      + "{\"name\":\"l\",\"type\":\"long\"},"
+      + "{\"name\":\"f\",\"type\":\"float\"},"
+      + "{\"name\":\"d\",\"type\":\"double\"},"
+      + "{\"name\":\"b\",\"type\":\"boolean\"},"
+      + "{\"name\":\"s\",\"type\":\"string\"},"
+      + "{\"name\":\"bytes\",\"type\":\"bytes\"},"
+      + "{\"name\":\"fixed\",\"type\":{\"type\":\"fixed\",\"name\":\"Two\",\"size\":2}},"
+      + "{\"name\":\"e\",\"type\":{\"type\":\"enum\",\"name\":\"Color\","
+      + "\"symbols\":[\"RED\",\"GREEN\"]}},"
+      + "{\"name\":\"a\",\"type\":{\"type\":\"array\",\"items\":\"string\"}},"
+      + "{\"name\":\"m\",\"type\":{\"type\":\"map\",\"values\":[\"null\",\"long\"]}},"
+      + "{\"name\":\"next\",\"type\":[\"null\",\"Node\"]}"
+      + "]}");
+
+  /**
+   * Encodes a value with Avro's JsonEncoder.
+   *
+   * @param record to encode.
+   * @return the JSON produced by Avro.
+   */
+  private static String avroEncode(GenericContainer record) throws IOException {
+    final ByteArrayOutputStream os = new ByteArrayOutputStream();
+    final JsonEncoder encoder = EncoderFactory.get().jsonEncoder(record.getSchema(), os);
+    final DatumWriter<GenericContainer> writer = (record instanceof SpecificRecord)
+        ? new SpecificDatumWriter<GenericContainer>(record.getSchema())
+        : new GenericDatumWriter<GenericContainer>(record.getSchema());
+    writer.write(record, encoder);
+    encoder.flush();
+    return new String(os.toByteArray(), "UTF-8");
+  }
+
+  /**
+   * Builds a record of RECORD_SCHEMA.
+   *
+   * @param next value of the recursive field.
+   * @return a record.
+   */
+  private static GenericRecord newNode(GenericRecord next) {
+    final Schema fixedSchema = RECORD_SCHEMA.getField("fixed").schema();
+    final Schema enumSchema = RECORD_SCHEMA.getField("e").schema();
+    final GenericRecord record = new GenericData.Record(RECORD_SCHEMA);
+    record.put("i", -7);
+    record.put("l", 1L << 40);
+    record.put("f", 0.1f);
+    record.put("d", 1.0E-10);
+    record.put("b", true);
+    record.put("s", "\"quoted\"\n€");
+    record.put("bytes", ByteBuffer.wrap(new byte[] {0, 1, (byte) 0xff, '"'}));
+    record.put("fixed", new GenericData.Fixed(fixedSchema, new byte[] {(byte) 0x80, 'a'}));
+    record.put("e", new GenericData.EnumSymbol(enumSchema, "GREEN"));
+    record.put("a", ImmutableList.of("x", "y"));
+    record.put("m", ImmutableMap.of("k1", 3L));
+    record.put("next", next);
+    return record;
+  }
+
+  @Test
+  public void testShouldMatchAvroEncodingOfGenericRecords() throws Exception {
+    final GenericRecord record = newNode(newNode(null));
+    assertEquals(avroEncode(record), AvroToJsonStringSerializer.getJsonString(record));
+  }
+
+  @Test
+  public void testShouldMatchAvroEncodingOfSpecificRecords() throws Exception {
+    final Team team = new Team();
+    team.setId(1234L);
+    team.setName("Team Name");
+    assertEquals(avroEncode(team), AvroToJsonStringSerializer.getJsonString(team));
+  }
+}
@@ -0,0 +1,105 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import com.google.common.collect.ImmutableMultimap;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.kiji.rest.resources.CachesTask;
+import org.kiji.rest.util.KijiInstanceCache;
+import org.kiji.schema.Kiji;
+import org.kiji.schema.KijiClientTest;
+import org.kiji.schema.KijiURI;
+import org.kiji.schema.avro.TableLayoutDesc;
+import org.kiji.schema.layout.KijiTableLayouts;
+
+/**
+ * Tests the Caches task.
+ */
+public class TestCachesTask extends KijiClientTest {
+  private static final String TABLE_NAME = "test_caches_task_table";
+
+  private ManagedKijiClient mKijiClient;
+  private CachesTask mCachesTask;
+  private Kiji mKiji;
+
+  @Before
+  public void setUp() throws Exception {
+    final KijiURI clusterURI = createTestHBaseURI();
+    mKiji = createTestKiji(clusterURI);
+    final TableLayoutDesc layout =
+        KijiTableLayouts.getLayout("org/kiji/rest/layouts/sample_table.json");
+    layout.setName(TABLE_NAME);
+    mKiji.createTable(layout);
+
+    mKijiClient = new ManagedKijiClient(clusterURI);
+    mKijiClient.start();
+    mCachesTask = new CachesTask(mKijiClient);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    mKijiClient.stop();
+  }
+
+  /**
+   * Runs the task.
+   *
+   * @param parameters of the task.
+   * @return the output of the task.
+   * @throws Exception on error.
+   */
+  private String execute(ImmutableMultimap<String, String> parameters) throws Exception {
+    final StringWriter output = new StringWriter();
+    mCachesTask.execute(parameters, new PrintWriter(output));
+    return output.toString();
+  }
+
+  @Test
+  public void testShouldDumpAndResizeCaches() throws Exception {
+    final String instance = mKiji.getURI().getInstance();
+    mKijiClient.getKijiTable(instance, TABLE_NAME);
+    mKijiClient.getKijiTable(instance, TABLE_NAME);
+
+    final String dump = execute(ImmutableMultimap.<String, String>of());
+    Assert.assertTrue(dump, dump.contains("instances spec=expireAfterAccess=10m size=1"));
+    Assert.assertTrue(dump, dump.contains(instance + "/" + KijiInstanceCache.TABLES
+        + " spec=expireAfterAccess=10m size=1 hits=1 misses=1 evictions=0"));
+
+    final String resized = execute(ImmutableMultimap.of(
+        CachesTask.CACHE_KEY, KijiInstanceCache.TABLES,
+        CachesTask.SPEC_KEY, "maximumSize=0"));
+    Assert.assertTrue(resized, resized.contains(instance + "/" + KijiInstanceCache.TABLES
+        + " spec=maximumSize=0 size=0 hits=1 misses=1"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testShouldRejectUnknownCaches() throws Exception {
+    execute(ImmutableMultimap.of(
+        CachesTask.CACHE_KEY, "unknown",
+        CachesTask.SPEC_KEY, "maximumSize=0"));
+  }
+}
@@ -0,0 +1,93 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import org.kiji.rest.util.EntityIdScanRanges;
+import org.kiji.schema.EntityIdFactory;
+import org.kiji.schema.avro.RowKeyFormat2;
+import org.kiji.schema.avro.TableLayoutDesc;
+import org.kiji.schema.layout.KijiTableLayout;
+import org.kiji.schema.layout.KijiTableLayouts;
+
+/**
+ * Tests the key ranges scanned for wildcarded entity ids.
+ */
+public class TestEntityIdScanRanges {
+
+  private static KijiTableLayout getLayout(int rangeScanStartIndex) throws Exception {
+    final TableLayoutDesc desc =
+        KijiTableLayouts.getLayout("org/kiji/rest/layouts/rkf2_formatted.json");
+    ((RowKeyFormat2) desc.getKeysFormat()).setRangeScanStartIndex(rangeScanStartIndex);
+    return KijiTableLayout.newLayout(desc);
+  }
+
+  private static boolean contains(List<byte[][]> ranges, byte[] key) {
+    for (byte[][] range : ranges) {
+      if (Bytes.compareTo(range[0], key) <= 0
+          && (range[1].length == 0 || Bytes.compareTo(key, range[1]) < 0)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Test
+  public void testShouldScanPrefixOfFixedComponents() throws Exception {
+    final KijiTableLayout layout = getLayout(1);
+    final EntityIdFactory factory = EntityIdFactory.getFactory(layout);
+    final List<byte[][]> ranges = EntityIdScanRanges.getRanges(
+        layout, new Object[] {"a", "b", null, null, null}, 256);
+    assertEquals(1, ranges.size());
+    assertTrue(contains(ranges, factory.getEntityId("a", "b", "c", 1, 2L).getHBaseRowKey()));
+    assertTrue(contains(ranges, factory.getEntityId("a", "b", "0", -1, -2L).getHBaseRowKey()));
+    assertFalse(contains(ranges, factory.getEntityId("a", "bc", "c", 1, 2L).getHBaseRowKey()));
+    assertFalse(contains(ranges, factory.getEntityId("b", "b", "c", 1, 2L).getHBaseRowKey()));
+  }
+
+  @Test
+  public void testShouldFanOutPerSaltBucketWhenHashIsUnknown() throws Exception {
+    final KijiTableLayout layout = getLayout(2);
+    final EntityIdFactory factory = EntityIdFactory.getFactory(layout);
+    final Object[] components = new Object[] {"a", null, "c", null, null};
+    // Two bytes of hash make 65536 buckets.
+    assertNull(EntityIdScanRanges.getRanges(layout, components, 256));
+    final List<byte[][]> ranges = EntityIdScanRanges.getRanges(layout, components, 65536);
+    assertEquals(65536, ranges.size());
+    assertTrue(contains(ranges, factory.getEntityId("a", "b", "c", 1, 2L).getHBaseRowKey()));
+    assertTrue(contains(ranges, factory.getEntityId("a", "x", "y", 1, 2L).getHBaseRowKey()));
+    assertFalse(contains(ranges, factory.getEntityId("b", "b", "c", 1, 2L).getHBaseRowKey()));
+  }
+
+  @Test
+  public void testShouldScanWholeTableWithoutFixedLeadingComponent() throws Exception {
+    assertNull(EntityIdScanRanges.getRanges(
+        getLayout(1), new Object[] {null, "b", null, null, null}, 256));
+  }
+}
@@ -0,0 +1,109 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yammer.dropwizard.json.ObjectMapperFactory;
+import org.apache.avro.Schema;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.kiji.rest.plugins.StandardKijiRestPlugin;
+import org.kiji.rest.representations.KijiRestEntityId;
+import org.kiji.rest.representations.KijiRestRowBuffer;
+
+/**
+ * Tests that row buffers are serialized as the KijiRestRows holding the same cells.
+ */
+public class TestKijiRestRowBuffer {
+
+  private ObjectMapper mMapper = null;
+
+  @Before
+  public void setup() {
+    final ObjectMapperFactory mapperFactory = new ObjectMapperFactory();
+    StandardKijiRestPlugin.registerSerializers(mapperFactory);
+    mMapper = mapperFactory.build();
+  }
+
+  private void assertSameJson(KijiRestRowBuffer buffer) throws Exception {
+    assertEquals(mMapper.writeValueAsString(buffer.toKijiRestRow()),
+        mMapper.writeValueAsString(buffer));
+  }
+
+  @Test
+  public void testShouldSerializeAsKijiRestRow() throws Exception {
+    final KijiRestRowBuffer buffer = new KijiRestRowBuffer();
+    buffer.reset(KijiRestEntityId.create("hbase=row1"));
+    buffer.addCell("family", "long_qualifier", 2L, 42L, 1L);
+    buffer.addCell("family", "long_qualifier", 1L, 41L, 1L);
+    buffer.addCell("family", "string_qualifier", 1L, "value", 2L);
+    buffer.addCell("other", "qualifier", 3L, "other value", 2L);
+    assertSameJson(buffer);
+  }
+
+  @Test
+  public void testShouldSortCellsAddedOutOfOrder() throws Exception {
+    final KijiRestRowBuffer buffer = new KijiRestRowBuffer();
+    buffer.reset(KijiRestEntityId.create("hbase=row1"));
+    buffer.addCell("other", "qualifier", 3L, "other value", 2L);
+    buffer.addCell("family", "string_qualifier", 2L, "newer", 2L);
+    buffer.addCell("family", "long_qualifier", 1L, 41L, 1L);
+    buffer.addCell("family", "string_qualifier", 1L, "older", 2L);
+    assertSameJson(buffer);
+  }
+
+  @Test
+  public void testShouldReuseBufferAcrossRows() throws Exception {
+    final KijiRestRowBuffer buffer = new KijiRestRowBuffer();
+    buffer.reset(KijiRestEntityId.create("hbase=row1"));
+    for (int i = 0; i < 100; i++) {
+      buffer.addCell("family", "qualifier" + (i % 10), i, "value" + i, 2L);
+    }
+    assertEquals(100, buffer.size());
+    buffer.reset(KijiRestEntityId.create("hbase=row2"));
+    assertEquals(0, buffer.size());
+    assertSameJson(buffer);
+    buffer.addCell("family", "qualifier", 1L, "value", 2L);
+    assertSameJson(buffer);
+  }
+
+  @Test
+  public void testShouldKeepReaderSchemasOfCells() throws Exception {
+    final Schema readerSchema = Schema.create(Schema.Type.LONG);
+    final KijiRestRowBuffer buffer = new KijiRestRowBuffer();
+    buffer.reset(KijiRestEntityId.create("hbase=row1"));
+    for (int i = 0; i < 100; i++) {
+      buffer.addCell("family", "qualifier", i, (long) i, 1L, (i % 2 == 0) ? readerSchema : null);
+    }
+    for (int i = 0; i < 100; i++) {
+      assertEquals((i % 2 == 0) ? readerSchema : null, buffer.getValueSchema(i));
+      // The JSON still designates the writer schema.
+      assertEquals(1L, buffer.getSchemaId(i));
+    }
+    assertSameJson(buffer);
+    buffer.reset(KijiRestEntityId.create("hbase=row2"));
+    buffer.addCell("family", "qualifier", 1L, 1L, 1L);
+    assertNull(buffer.getValueSchema(0));
+  }
+}
@@ -31,13 +31,18 @@ import javax.ws.rs.core.Response;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
+import org.apache.avro.Schema;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import org.kiji.rest.util.JsonDecoderCache;
+import org.kiji.rest.util.KijiTableReaderPool;
+import org.kiji.rest.util.SchemaIdCache;
 import org.kiji.schema.Kiji;
 import org.kiji.schema.KijiClientTest;
+import org.kiji.schema.KijiTableReader;
 import org.kiji.schema.KijiURI;
 import org.kiji.schema.avro.TableLayoutDesc;
 import org.kiji.schema.layout.KijiTableLayouts;
@@ -160,6 +165,63 @@ public class TestManagedKijiClient extends KijiClientTest {
     }
   }
 
+  @Test
+  public void testKeepsReaderPoolsCached() throws Exception {
+    for (String instance : mInstanceNames) {
+      for (String table : INSTANCE_TABLES) {
+        assertTrue(mKijiClient.getKijiTableReaderPool(instance, table)
+            == mKijiClient.getKijiTableReaderPool(instance, table));
+      }
+    }
+  }
+
+  @Test
+  public void testReusesPooledReaders() throws Exception {
+    final String instance = mInstanceNames.iterator().next();
+    final String table = INSTANCE_TABLES.iterator().next();
+    final KijiTableReaderPool pool = mKijiClient.getKijiTableReaderPool(instance, table);
+
+    final KijiTableReader reader = pool.borrowReader();
+    assertEquals(1, pool.getBorrowedCount());
+    assertEquals(0, pool.getIdleCount());
+    pool.returnReader(reader);
+    assertEquals(0, pool.getBorrowedCount());
+    assertEquals(1, pool.getIdleCount());
+
+    final KijiTableReader reused = pool.borrowReader();
+    try {
+      assertTrue(reader == reused);
+    } finally {
+      pool.returnReader(reused);
+    }
+  }
+
+  @Test
+  public void testCachesSchemaIds() throws Exception {
+    final String instance = mInstanceNames.iterator().next();
+    final SchemaIdCache schemaIds = mKijiClient.getSchemaIdCache(instance);
+    assertTrue(schemaIds == mKijiClient.getSchemaIdCache(instance));
+
+    final long schemaId = mKijiClient.getKijiSchemaTable(instance)
+        .getOrCreateSchemaId(Schema.create(Schema.Type.STRING));
+    // Equal schemas which are distinct objects resolve to the same id.
+    assertEquals(schemaId, schemaIds.getOrCreateSchemaId(Schema.create(Schema.Type.STRING)));
+    assertEquals(schemaId, schemaIds.getOrCreateSchemaId(Schema.create(Schema.Type.STRING)));
+  }
+
+  @Test
+  public void testCachesJsonDecoders() throws Exception {
+    final String instance = mInstanceNames.iterator().next();
+    final JsonDecoderCache decoders = mKijiClient.getJsonDecoderCache(instance);
+    assertTrue(decoders == mKijiClient.getJsonDecoderCache(instance));
+
+    final Schema schema = Schema.create(Schema.Type.LONG);
+    assertEquals(123L, decoders.decode("123", schema));
+    // The decoder of the schema is reused for the following values.
+    assertEquals(456L, decoders.decode("456", schema));
+    assertEquals("hello", decoders.decode("hello", Schema.create(Schema.Type.STRING)));
+  }
+
   @Test(expected = WebApplicationException.class)
   public void testGetKijiInvalidInstanceForbidden() throws Exception {
     try {
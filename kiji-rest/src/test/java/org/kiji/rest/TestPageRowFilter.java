@@ -0,0 +1,69 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.PageFilter;
+import org.junit.Test;
+
+import org.kiji.rest.util.PageRowFilter;
+import org.kiji.schema.filter.KijiRowFilter;
+import org.kiji.schema.filter.StripValueRowFilter;
+
+/**
+ * Tests the page filter bounding the rows region servers return to limited scans.
+ */
+public class TestPageRowFilter {
+
+  @Test
+  public void testShouldBuildPageFilter() throws Exception {
+    final PageFilter filter = (PageFilter) new PageRowFilter(10).toHBaseFilter(null);
+    assertEquals(10, filter.getPageSize());
+  }
+
+  @Test
+  public void testShouldLimitRowsAfterOtherFilters() throws Exception {
+    assertEquals(new PageRowFilter(10), PageRowFilter.limitRows(null, 10, 0));
+    final FilterList filters = (FilterList) PageRowFilter
+        .limitRows(new StripValueRowFilter(), 10, 0)
+        .toHBaseFilter(null);
+    assertEquals(2, filters.getFilters().size());
+    assertEquals(10, ((PageFilter) filters.getFilters().get(1)).getPageSize());
+  }
+
+  @Test
+  public void testShouldNotLimitUnlimitedScans() throws Exception {
+    assertNull(PageRowFilter.limitRows(null, -1, 0));
+    final KijiRowFilter filter = new StripValueRowFilter();
+    assertSame(filter, PageRowFilter.limitRows(filter, -1, 0));
+  }
+
+  @Test
+  public void testShouldNotLimitBatchedScans() throws Exception {
+    // Region servers reject a PageFilter in scans fetching rows in batches of cells.
+    assertNull(PageRowFilter.limitRows(null, 10, 100));
+    final KijiRowFilter filter = new StripValueRowFilter();
+    assertSame(filter, PageRowFilter.limitRows(filter, 10, 100));
+  }
+}
@@ -0,0 +1,114 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.kiji.rest.util.ParallelRowScanner;
+import org.kiji.schema.Kiji;
+import org.kiji.schema.KijiDataRequest;
+import org.kiji.schema.KijiRowData;
+import org.kiji.schema.KijiTable;
+import org.kiji.schema.KijiTableReader.KijiScannerOptions;
+import org.kiji.schema.layout.KijiTableLayouts;
+import org.kiji.schema.util.InstanceBuilder;
+
+/**
+ * Tests the scanner running sub-scanners on an executor.
+ */
+public class TestParallelRowScanner {
+
+  private Kiji mKiji = null;
+  private KijiTable mTable = null;
+
+  /** Single thread executor without a queue, as the scan executors of the Rows resource. */
+  private ThreadPoolExecutor mExecutor = null;
+
+  @Before
+  public void setUp() throws Exception {
+    mKiji = new InstanceBuilder("default")
+        .withTable(KijiTableLayouts.getLayout("org/kiji/rest/layouts/players_table.json"))
+            .withRow("seleukos", "asia.central")
+                .withFamily("info").withQualifier("fullname").withValue("Seleukos Nikator")
+            .withRow("cassander", "greece")
+                .withFamily("info").withQualifier("fullname").withValue("Cassander")
+        .build();
+    mTable = mKiji.openTable("players");
+    mExecutor = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS,
+        new SynchronousQueue<Runnable>());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    mExecutor.shutdownNow();
+    mTable.release();
+    mKiji.release();
+  }
+
+  @Test
+  public void testShouldScanOnExecutor() throws Exception {
+    final ParallelRowScanner scanner = new ParallelRowScanner(mTable,
+        KijiDataRequest.create("info"), new KijiScannerOptions(), 1, true, 1, mExecutor);
+    try {
+      int rows = 0;
+      for (KijiRowData row : scanner) {
+        rows++;
+      }
+      assertEquals(2, rows);
+    } finally {
+      scanner.close();
+    }
+  }
+
+  @Test
+  public void testShouldFailWhenNoThreadIsFree() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    mExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          release.await();
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    try {
+      new ParallelRowScanner(mTable, KijiDataRequest.create("info"), new KijiScannerOptions(), 1,
+          true, 1, mExecutor);
+      fail("Scan started when it should have been rejected because no thread is free.");
+    } catch (RejectedExecutionException ree) {
+      // Expected.
+    } finally {
+      release.countDown();
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import javax.ws.rs.WebApplicationException;
+
+import org.junit.Test;
+
+import org.kiji.rest.util.PriorityLanes;
+import org.kiji.rest.util.PriorityLanes.Priority;
+
+/**
+ * Tests the scheduling of bulk requests behind interactive requests.
+ */
+public class TestPriorityLanes {
+
+  @Test
+  public void testShouldPauseBulkRequestsWhileInteractiveRequestsRun() throws Exception {
+    final PriorityLanes lanes = new PriorityLanes(2, 60000);
+    final PriorityLanes.Lane interactive = lanes.enter(Priority.INTERACTIVE);
+    assertEquals(1, lanes.getInteractive());
+    final PriorityLanes.Lane bulk = lanes.enter(Priority.BULK);
+    // Bulk requests only pause at the end of a chunk.
+    bulk.rowDone();
+    final Thread bulkRequest = new Thread() {
+      @Override
+      public void run() {
+        bulk.rowDone();
+      }
+    };
+    bulkRequest.start();
+    bulkRequest.join(100);
+    assertTrue(bulkRequest.isAlive());
+    interactive.leave();
+    bulkRequest.join(10000);
+    assertFalse(bulkRequest.isAlive());
+    // Leaving twice has no effect.
+    interactive.leave();
+    assertEquals(0, lanes.getInteractive());
+  }
+
+  @Test
+  public void testShouldBoundPausesOfBulkRequests() throws Exception {
+    final PriorityLanes lanes = new PriorityLanes(1, 10);
+    lanes.enter(Priority.INTERACTIVE);
+    final PriorityLanes.Lane bulk = lanes.enter(Priority.BULK);
+    for (int i = 0; i < 3; i++) {
+      bulk.rowDone();
+    }
+    bulk.leave();
+  }
+
+  @Test(expected = WebApplicationException.class)
+  public void testShouldRejectUnknownPriorities() throws Exception {
+    Priority.parse("urgent");
+  }
+}
@@ -0,0 +1,102 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import javax.ws.rs.WebApplicationException;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import org.kiji.rest.util.RequestPlan;
+import org.kiji.rest.util.RequestPlan.ColumnKind;
+import org.kiji.rest.util.RequestPlanCache;
+import org.kiji.schema.KijiColumnName;
+import org.kiji.schema.layout.KijiTableLayout;
+import org.kiji.schema.layout.KijiTableLayouts;
+
+/**
+ * Tests the compilation and caching of request plans.
+ */
+public class TestRequestPlanCache {
+
+  private static KijiTableLayout getLayout() throws Exception {
+    return KijiTableLayouts.getTableLayout("org/kiji/rest/layouts/sample_table.json");
+  }
+
+  @Test
+  public void testShouldCompileSortedColumnsAndCellSpecs() throws Exception {
+    final RequestPlan plan = RequestPlan.create(getLayout(),
+        "group_family:string_qualifier,group_family:long_qualifier", "2", "10..20");
+    final KijiColumnName longColumn = new KijiColumnName("group_family:long_qualifier");
+    final KijiColumnName stringColumn = new KijiColumnName("group_family:string_qualifier");
+    assertEquals(ImmutableList.of(longColumn, stringColumn), plan.getColumns());
+    assertNotNull(plan.getCellSpec(longColumn));
+    assertEquals(2, plan.getDataRequest()
+        .getColumn("group_family", "long_qualifier").getMaxVersions());
+    assertEquals(10L, plan.getDataRequest().getMinTimestamp());
+    assertEquals(20L, plan.getDataRequest().getMaxTimestamp());
+  }
+
+  @Test
+  public void testShouldClassifyColumns() throws Exception {
+    final RequestPlan plan = RequestPlan.create(getLayout(),
+        "group_family:string_qualifier,strings,longs:some_qualifier", "1", null);
+    assertEquals(3, plan.getColumnPlans().size());
+    assertEquals(new KijiColumnName("group_family:string_qualifier"),
+        plan.getColumnPlans().get(0).getColumn());
+    assertEquals(ColumnKind.CELLS, plan.getColumnPlans().get(0).getKind());
+    assertEquals(ColumnKind.CELLS, plan.getColumnPlans().get(1).getKind());
+    assertEquals(new KijiColumnName("strings"), plan.getColumnPlans().get(2).getColumn());
+    assertEquals(ColumnKind.FAMILY_CELLS, plan.getColumnPlans().get(2).getKind());
+    assertFalse(plan.hasCounters());
+  }
+
+  @Test
+  public void testShouldCachePlansPerLayoutAndShape() throws Exception {
+    final RequestPlanCache cache = new RequestPlanCache();
+    final KijiTableLayout layout = getLayout();
+    final RequestPlan plan = cache.get(layout, "group_family", "1", null);
+    assertSame(plan, cache.get(layout, "group_family", "1", null));
+    assertNotSame(plan, cache.get(layout, "group_family", "all", null));
+    // A new layout of the table does not reuse the plans of the previous one.
+    assertNotSame(plan, cache.get(getLayout(), "group_family", "1", null));
+  }
+
+  @Test
+  public void testShouldNotCacheInvalidPlans() throws Exception {
+    final RequestPlanCache cache = new RequestPlanCache();
+    final KijiTableLayout layout = getLayout();
+    for (int i = 0; i < 2; i++) {
+      try {
+        cache.get(layout, "group_family", "many", null);
+        fail("Invalid versions should be rejected.");
+      } catch (WebApplicationException wae) {
+        assertEquals(400, wae.getResponse().getStatus());
+      }
+    }
+  }
+}
@@ -0,0 +1,100 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.CyclicBarrier;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import org.kiji.rest.util.RowResponseCache;
+import org.kiji.schema.EntityId;
+import org.kiji.schema.HBaseEntityId;
+import org.kiji.schema.KijiDataRequest;
+
+/**
+ * Tests the cache of serialized point GET responses.
+ */
+public class TestRowResponseCache {
+
+  private static final EntityId ROW = HBaseEntityId.fromHBaseRowKey(new byte[] {1, 2});
+  private static final EntityId OTHER_ROW = HBaseEntityId.fromHBaseRowKey(new byte[] {3});
+  private static final KijiDataRequest REQUEST = KijiDataRequest.create("family");
+  private static final byte[] RESPONSE = "{\"entityId\":\"row\"}\r\n".getBytes();
+
+  @Test
+  public void testShouldCacheResponsesPerRequest() throws Exception {
+    final RowResponseCache cache = new RowResponseCache(1 << 20, 60000);
+    cache.put("instance", "table", "layout", ROW, REQUEST, cache.getGeneration(), RESPONSE);
+    assertArrayEquals(RESPONSE, cache.get("instance", "table", "layout",
+        HBaseEntityId.fromHBaseRowKey(new byte[] {1, 2}), KijiDataRequest.create("family")));
+    assertNull(cache.get("instance", "table", "layout", ROW, KijiDataRequest.create("other")));
+    assertNull(cache.get("instance", "table", "new_layout", ROW, REQUEST));
+    assertNull(cache.get("instance", "other_table", "layout", ROW, REQUEST));
+  }
+
+  @Test
+  public void testShouldInvalidateWrittenRows() throws Exception {
+    final RowResponseCache cache = new RowResponseCache(1 << 20, 60000);
+    cache.put("instance", "table", "layout", ROW, REQUEST, cache.getGeneration(), RESPONSE);
+    cache.put("instance", "table", "layout", OTHER_ROW, REQUEST, cache.getGeneration(), RESPONSE);
+    cache.invalidate("instance", "table", ImmutableList.of(ROW));
+    assertNull(cache.get("instance", "table", "layout", ROW, REQUEST));
+    assertArrayEquals(RESPONSE, cache.get("instance", "table", "layout", OTHER_ROW, REQUEST));
+  }
+
+  @Test
+  public void testShouldNotCacheResponsesReadBeforeInvalidation() throws Exception {
+    final RowResponseCache cache = new RowResponseCache(1 << 20, 60000);
+    final long generation = cache.getGeneration();
+    cache.invalidate("instance", "table", ImmutableList.of(ROW));
+    cache.put("instance", "table", "layout", ROW, REQUEST, generation, RESPONSE);
+    assertNull(cache.get("instance", "table", "layout", ROW, REQUEST));
+  }
+
+  @Test
+  public void testShouldNotCacheResponsesReadBeforeConcurrentInvalidation() throws Exception {
+    final RowResponseCache cache = new RowResponseCache(1 << 20, 60000);
+    final CyclicBarrier start = new CyclicBarrier(2);
+    for (int i = 0; i < 1000; i++) {
+      final long generation = cache.getGeneration();
+      final Thread writer = new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (Exception e) {
+            throw new RuntimeException(e);
+          }
+          cache.invalidate("instance", "table", ImmutableList.of(ROW));
+        }
+      };
+      writer.start();
+      start.await();
+      cache.put("instance", "table", "layout", ROW, REQUEST, generation, RESPONSE);
+      writer.join();
+      // The row was read before the invalidation, whichever ran first.
+      assertNull(cache.get("instance", "table", "layout", ROW, REQUEST));
+    }
+  }
+}
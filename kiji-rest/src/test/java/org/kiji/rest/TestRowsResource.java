@@ -25,10 +25,12 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -46,36 +48,51 @@ import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.google.common.base.Charsets;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.UniformInterfaceException;
 import com.yammer.dropwizard.testing.ResourceTest;
 
 import org.apache.avro.Schema;
 import org.apache.avro.Schema.Type;
 import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
 import org.apache.commons.codec.binary.Hex;
+import org.apache.hadoop.hbase.client.Scan;
 import org.junit.After;
 import org.junit.Test;
 
 import org.kiji.rest.config.FresheningConfiguration;
 import org.kiji.rest.plugins.StandardKijiRestPlugin;
+import org.kiji.rest.representations.KijiRestCell;
 import org.kiji.rest.representations.KijiRestEntityId;
 import org.kiji.rest.representations.KijiRestRow;
 import org.kiji.rest.representations.SchemaOption;
 import org.kiji.rest.resources.RowsResource;
 import org.kiji.rest.sample_avro.PickBan;
 import org.kiji.rest.sample_avro.Team;
+import org.kiji.rest.serializers.AvroRowCodec;
 import org.kiji.rest.serializers.AvroToJsonStringSerializer;
+import org.kiji.rest.util.RowResourceUtil;
 import org.kiji.schema.DecodedCell;
 import org.kiji.schema.EntityId;
 import org.kiji.schema.Kiji;
 import org.kiji.schema.KijiCell;
 import org.kiji.schema.KijiColumnName;
+import org.kiji.schema.KijiDataRequest;
 import org.kiji.schema.KijiSchemaTable;
 import org.kiji.schema.KijiTable;
 import org.kiji.schema.KijiTableWriter;
 import org.kiji.schema.KijiURI;
 import org.kiji.schema.avro.TableLayoutDesc;
+import org.kiji.schema.impl.hbase.HBaseDataRequestAdapter;
 import org.kiji.schema.layout.CellSpec;
+import org.kiji.schema.layout.HBaseColumnNameTranslator;
 import org.kiji.schema.layout.KijiTableLayout;
 import org.kiji.schema.layout.KijiTableLayouts;
 import org.kiji.schema.util.InstanceBuilder;
@@ -620,6 +637,16 @@ public class TestRowsResource extends ResourceTest {
     assertEquals(1, out.split("\r\n").length);
   }
 
+  @Test
+  public void testShouldLimitBatchedRowsSent() throws Exception {
+    URI resourceURI = UriBuilder.fromResource(RowsResource.class)
+        .queryParam("limit", "2")
+        .queryParam("scanner_batch", "1")
+        .build("default", "sample_table");
+    String out = client().resource(resourceURI).get(String.class);
+    assertEquals(2, out.split("\r\n").length);
+  }
+
   @Test
   public void testShouldReturnRowsInRange() throws Exception {
     String eid = getHBaseRowKeyHex("sample_table", 12345L);
@@ -674,6 +701,298 @@ public class TestRowsResource extends ResourceTest {
     assertFalse(returnRows.contains("antipater"));
   }
 
+  @Test
+  public void testParallelScanShouldReturnSameRowsAsSerialScan() throws Exception {
+    String serialRows = client().resource(UriBuilder.fromResource(RowsResource.class)
+        .build("default", "players")).get(String.class);
+
+    URI orderedURI = UriBuilder.fromResource(RowsResource.class)
+        .queryParam("parallelism", "4")
+        .build("default", "players");
+    assertEquals(serialRows, client().resource(orderedURI).get(String.class));
+
+    URI unorderedURI = UriBuilder.fromResource(RowsResource.class)
+        .queryParam("parallelism", "4")
+        .queryParam("ordered", "false")
+        .build("default", "players");
+    String[] unorderedRows = client().resource(unorderedURI).get(String.class).split("\r\n");
+    assertEquals(Sets.newHashSet(serialRows.split("\r\n")), Sets.newHashSet(unorderedRows));
+  }
+
+  @Test
+  public void testShouldPageThroughRangeScanWithCursors() throws Exception {
+    String[] allRows = client().resource(UriBuilder.fromResource(RowsResource.class)
+        .build("default", "players")).get(String.class).split("\r\n");
+
+    ObjectMapper mapper = new ObjectMapper();
+    List<String> pagedRows = Lists.newArrayList();
+    String cursor = "";
+    while (null != cursor) {
+      URI resourceURI = UriBuilder.fromResource(RowsResource.class)
+          .queryParam("limit", "1")
+          .queryParam("cursor", cursor)
+          .build("default", "players");
+      cursor = null;
+      for (String line : client().resource(resourceURI).get(String.class).split("\r\n")) {
+        JsonNode node = mapper.readTree(line);
+        if (node.has(RowsResource.CURSOR_FIELD)) {
+          cursor = node.get(RowsResource.CURSOR_FIELD).asText();
+        } else {
+          pagedRows.add(line);
+        }
+      }
+    }
+    assertEquals(Lists.newArrayList(allRows), pagedRows);
+
+    URI invalidURI = UriBuilder.fromResource(RowsResource.class)
+        .queryParam("cursor", "not-a-cursor")
+        .build("default", "players");
+    try {
+      client().resource(invalidURI).get(String.class);
+      fail("GET succeeded when it should have failed because of an invalid cursor.");
+    } catch (UniformInterfaceException e) {
+      assertEquals(400, e.getResponse().getStatus());
+    }
+  }
+
+  @Test
+  public void testShouldFilterRowsAndQualifiers() throws Exception {
+    URI rowFilterURI = UriBuilder.fromResource(RowsResource.class)
+        .queryParam("filter", URLEncoder.encode(
+            "{\"or\": [{\"column\": \"info:fullname\", \"equals\": \"Cassander\"},"
+            + " {\"column\": \"info:fullname\", \"equals\": \"Antipater\"}]}", UTF_8))
+        .build("default", "players");
+    String returnRows = client().resource(rowFilterURI).get(String.class);
+    assertEquals(2, returnRows.split("\r\n").length);
+    assertTrue(returnRows.contains("cassander"));
+    assertTrue(returnRows.contains("antipater"));
+    assertFalse(returnRows.contains("seleukos"));
+
+    String eid = getUrlEncodedEntityIdString("sample_table", 12345L);
+    URI qualifierFilterURI = UriBuilder.fromResource(RowsResource.class)
+        .queryParam("eid", eid)
+        .queryParam("cols", "strings")
+        .queryParam("filter", URLEncoder.encode(
+            "{\"column\": \"strings\", \"qualifier_regex\": \"^android\"}", UTF_8))
+        .build("default", "sample_table");
+    KijiRestRow row = client().resource(qualifierFilterURI).get(KijiRestRow.class);
+    assertFalse(row.getCells().containsKey("strings"));
+
+    URI pointRowFilterURI = UriBuilder.fromResource(RowsResource.class)
+        .queryParam("eid", eid)
+        .queryParam("filter", URLEncoder.encode(
+            "{\"column\": \"strings:apple iphone\", \"exists\": true}", UTF_8))
+        .build("default", "sample_table");
+    try {
+      client().resource(pointRowFilterURI).get(String.class);
+      fail("GET succeeded when it should have failed because of a row filter on a point GET.");
+    } catch (UniformInterfaceException e) {
+      assertEquals(400, e.getResponse().getStatus());
+    }
+  }
+
+  @Test
+  public void testShouldRejectInvalidParallelism() throws Exception {
+    URI resourceURI = UriBuilder.fromResource(RowsResource.class)
+        .queryParam("parallelism", "0")
+        .build("default", "players");
+    try {
+      client().resource(resourceURI).get(String.class);
+      fail("GET succeeded when it should have failed because of an invalid parallelism.");
+    } catch (UniformInterfaceException e) {
+      assertEquals(400, e.getResponse().getStatus());
+    }
+  }
+
+  @Test
+  public void testShouldScanWithScannerCachingAndBatch() throws Exception {
+    String serialRows = client().resource(UriBuilder.fromResource(RowsResource.class)
+        .build("default", "players")).get(String.class);
+    URI resourceURI = UriBuilder.fromResource(RowsResource.class)
+        .queryParam("scanner_caching", "2")
+        .queryParam("scanner_batch", "100")
+        .build("default", "players");
+    assertEquals(serialRows, client().resource(resourceURI).get(String.class));
+
+    URI invalidURI = UriBuilder.fromResource(RowsResource.class)
+        .queryParam("scanner_caching", "0")
+        .build("default", "players");
+    try {
+      client().resource(invalidURI).get(String.class);
+      fail("GET succeeded when it should have failed because of an invalid scanner caching.");
+    } catch (UniformInterfaceException e) {
+      assertEquals(400, e.getResponse().getStatus());
+    }
+  }
+
+  @Test
+  public void testShouldApplyScannerCachingAndBatchToScan() throws Exception {
+    final KijiTableLayout layout =
+        KijiTableLayouts.getTableLayout("org/kiji/rest/layouts/sample_table.json");
+    final Scan scan = new HBaseDataRequestAdapter(
+        KijiDataRequest.create("group_family"), HBaseColumnNameTranslator.from(layout))
+        .toScan(layout, RowResourceUtil.newHBaseScanOptions(2, 100));
+    // scanner_caching is the number of rows per RPC, scanner_batch the cells of a row per RPC.
+    assertEquals(2, scan.getCaching());
+    assertEquals(100, scan.getBatch());
+
+    final Scan unbatched = new HBaseDataRequestAdapter(
+        KijiDataRequest.create("group_family"), HBaseColumnNameTranslator.from(layout))
+        .toScan(layout, RowResourceUtil.newHBaseScanOptions(100, 0));
+    assertEquals(100, unbatched.getCaching());
+    assertEquals(-1, unbatched.getBatch());
+  }
+
+  @Test
+  public void testShouldStreamPagedColumns() throws Exception {
+    String eid = getUrlEncodedEntityIdString("sample_table", 56789L);
+    URI unpagedURI = UriBuilder.fromResource(RowsResource.class)
+        .queryParam("eid", eid)
+        .queryParam("cols", "group_family:string_qualifier,strings")
+        .queryParam("versions", "all")
+        .build("default", "sample_table");
+    URI pagedURI = UriBuilder.fromResource(RowsResource.class)
+        .queryParam("eid", eid)
+        .queryParam("cols", "group_family:string_qualifier,strings")
+        .queryParam("versions", "all")
+        .queryParam("page_size", "2")
+        .build("default", "sample_table");
+    assertEquals(client().resource(unpagedURI).get(String.class),
+        client().resource(pagedURI).get(String.class));
+  }
+
+  @Test
+  public void testShouldPageThroughVersionsWithPageTokens() throws Exception {
+    String eid = getUrlEncodedEntityIdString("sample_table", 56789L);
+    List<Long> timestamps = Lists.newArrayList();
+    String pageToken = "";
+    int numPages = 0;
+    while (null != pageToken) {
+      URI resourceURI = UriBuilder.fromResource(RowsResource.class)
+          .queryParam("eid", eid)
+          .queryParam("cols", "group_family:string_qualifier")
+          .queryParam("versions", "all")
+          .queryParam("page_size", "2")
+          .queryParam("page_token", pageToken)
+          .build("default", "sample_table");
+      ClientResponse response = client().resource(resourceURI).get(ClientResponse.class);
+      assertEquals(200, response.getStatus());
+      KijiRestRow returnRow = response.getEntity(KijiRestRow.class);
+      if (returnRow.getCells().containsKey("group_family")) {
+        List<KijiRestCell> cells =
+            returnRow.getCells().get("group_family").get("string_qualifier");
+        assertTrue(cells.size() <= 2);
+        for (KijiRestCell cell : cells) {
+          timestamps.add(cell.getTimestamp());
+        }
+      }
+      pageToken = response.getHeaders().getFirst(RowsResource.NEXT_PAGE_TOKEN_HEADER);
+      numPages++;
+    }
+    assertEquals(Lists.newArrayList(5L, 4L, 3L, 2L, 1L), timestamps);
+    assertTrue(numPages >= 3);
+
+    URI invalidURI = UriBuilder.fromResource(RowsResource.class)
+        .queryParam("eid", eid)
+        .queryParam("cols", "group_family")
+        .queryParam("page_size", "2")
+        .queryParam("page_token", "")
+        .build("default", "sample_table");
+    try {
+      client().resource(invalidURI).get(String.class);
+      fail("GET succeeded when it should have failed because of paging several columns.");
+    } catch (UniformInterfaceException e) {
+      assertEquals(400, e.getResponse().getStatus());
+    }
+  }
+
+  @Test
+  public void testShouldBatchGetRowsInRequestedOrder() throws Exception {
+    String eid1 = getEntityIdString("sample_table", 56789L);
+    String eid2 = getEntityIdString("sample_table", 12345L);
+    String eids = URLEncoder.encode(createJsonArray(eid1, eid2), UTF_8);
+    URI resourceURI = UriBuilder.fromResource(RowsResource.class)
+        .queryParam("eids", eids)
+        .queryParam("cols", "group_family:string_qualifier")
+        .build("default", "sample_table");
+
+    String[] rows = client().resource(resourceURI).get(String.class).split("\r\n");
+    assertEquals(2, rows.length);
+    assertTrue(rows[0].contains("[56789]"));
+    assertTrue(rows[1].contains("[12345]"));
+  }
+
+  @Test
+  public void testShouldBatchGetPostedRows() throws Exception {
+    String eid1 = getEntityIdString("sample_table", 2345L);
+    String eid2 = getEntityIdString("sample_table", 12345L);
+    String eid3 = getEntityIdString("sample_table", 56789L);
+    URI resourceURI = UriBuilder.fromResource(RowsResource.class)
+        .path("batch-get")
+        .queryParam("cols", "group_family:string_qualifier")
+        .build("default", "sample_table");
+
+    String[] rows = client().resource(resourceURI).type(MediaType.APPLICATION_JSON)
+        .post(String.class, createJsonArray(eid1, eid2, eid3)).split("\r\n");
+    assertEquals(3, rows.length);
+    assertTrue(rows[0].contains("[2345]"));
+    assertTrue(rows[1].contains("[12345]"));
+    assertTrue(rows[2].contains("[56789]"));
+  }
+
+  @Test
+  public void testShouldStreamKeysOnly() throws Exception {
+    URI resourceURI = UriBuilder.fromResource(RowsResource.class)
+        .queryParam("mode", RowsResource.KEYS_MODE)
+        .build("default", "players");
+    String[] rows = client().resource(resourceURI).get(String.class).split("\r\n");
+    assertEquals(5, rows.length);
+    ObjectMapper mapper = new ObjectMapper();
+    for (String row : rows) {
+      JsonNode node = mapper.readTree(row);
+      assertEquals(2, node.get("entityId").size());
+      assertEquals(0, node.get("cells").size());
+    }
+  }
+
+  @Test
+  public void testShouldCheckWhetherPostedRowsExist() throws Exception {
+    String eid1 = getEntityIdString("sample_table", 2345L);
+    String eid2 = getEntityIdString("sample_table", 1L);
+    String eid3 = getEntityIdString("sample_table", 12345L);
+    URI resourceURI = UriBuilder.fromResource(RowsResource.class)
+        .path("exists")
+        .build("default", "sample_table");
+
+    String exist = client().resource(resourceURI).type(MediaType.APPLICATION_JSON)
+        .post(String.class, createJsonArray(eid1, eid2, eid3));
+    assertEquals("[true,false,true]", exist);
+
+    URI stringsURI = UriBuilder.fromResource(RowsResource.class)
+        .path("exists")
+        .queryParam("cols", "strings")
+        .build("default", "sample_table");
+    exist = client().resource(stringsURI).type(MediaType.APPLICATION_JSON)
+        .post(String.class, createJsonArray(eid1, eid2, eid3));
+    assertEquals("[false,false,true]", exist);
+  }
+
+  @Test
+  public void testShouldFailBatchGetWithEid() throws Exception {
+    String eid = getEntityIdString("sample_table", 12345L);
+    String eids = URLEncoder.encode(createJsonArray(eid), UTF_8);
+    URI resourceURI = UriBuilder.fromResource(RowsResource.class)
+        .queryParam("eid", URLEncoder.encode(eid, UTF_8))
+        .queryParam("eids", eids)
+        .build("default", "sample_table");
+    try {
+      client().resource(resourceURI).get(String.class);
+      fail("GET succeeded when it should have failed because of an ambiguous request.");
+    } catch (UniformInterfaceException e) {
+      assertEquals(400, e.getResponse().getStatus());
+    }
+  }
+
   @Test
   public void testSingleCellPost() throws Exception {
     // Set up.
@@ -1181,6 +1500,162 @@ public class TestRowsResource extends ResourceTest {
     assertEquals(1, returnRow.getCells().size());
   }
 
+  @Test
+  public void testBatchPostShouldReportResultsPerRow() throws Exception {
+    // Set up.
+    String stringRowKey = getEntityIdString("sample_table", 55026L);
+    String encodedRowKey = URLEncoder.encode(stringRowKey, "UTF-8");
+
+    KijiRestRow validRow = new KijiRestRow(
+        KijiRestEntityId.create(stringToJsonNode(
+        URLDecoder.decode(stringRowKey, "UTF-8"))));
+    validRow.addCell("group_family", "string_qualifier", 5L, "helloworld", mStringOption);
+    KijiRestRow invalidRow = new KijiRestRow(
+        KijiRestEntityId.create(stringToJsonNode(
+        URLDecoder.decode(stringRowKey, "UTF-8"))));
+    invalidRow.addCell("nonfamily", "noncolumn", 5L, "hagar", mStringOption);
+
+    List<KijiRestRow> postRows = Lists.newArrayList(invalidRow, validRow);
+
+    // Post.
+    URI resourceURI = UriBuilder.fromResource(RowsResource.class)
+        .build("default", "sample_table");
+    @SuppressWarnings("unchecked")
+    Map<String, List<Map<String, Object>>> target = client().resource(resourceURI)
+        .type(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON)
+        .post(Map.class, postRows);
+
+    // Check.
+    List<Map<String, Object>> results = target.get("results");
+    assertEquals(2, results.size());
+    assertEquals(400, results.get(0).get("status"));
+    assertNull(results.get(0).get("target"));
+    assertEquals("/v1/instances/default/tables/sample_table/rows?eid=" + encodedRowKey,
+        results.get(1).get("target"));
+    assertEquals(1, target.get("targets").size());
+
+    // Retrieve.
+    resourceURI = UriBuilder.fromResource(RowsResource.class)
+        .queryParam("eid", encodedRowKey)
+        .build("default", "sample_table");
+    KijiRestRow returnRow = client().resource(resourceURI).get(KijiRestRow.class);
+    assertEquals("helloworld", returnRow.getCells().get("group_family").get("string_qualifier")
+        .get(0).getValue());
+  }
+
+  @Test
+  public void testShouldPostAndGetAvroRows() throws Exception {
+    // Set up.
+    String stringRowKey = getEntityIdString("sample_table", 55030L);
+    String encodedRowKey = URLEncoder.encode(stringRowKey, "UTF-8");
+    final Schema longSchema = Schema.create(Type.LONG);
+
+    ByteArrayOutputStream value = new ByteArrayOutputStream();
+    BinaryEncoder valueEncoder = EncoderFactory.get().binaryEncoder(value, null);
+    valueEncoder.writeLong(123L);
+    valueEncoder.flush();
+
+    Schema cellSchema = AvroRowCodec.ROW_SCHEMA.getField("cells").schema().getElementType();
+    GenericData.Record cell = new GenericData.Record(cellSchema);
+    cell.put("family", "group_family");
+    cell.put("qualifier", "long_qualifier");
+    cell.put("timestamp", 5L);
+    cell.put("writer_schema", mSchemaTable.getOrCreateSchemaId(longSchema));
+    cell.put("value", ByteBuffer.wrap(value.toByteArray()));
+    GenericData.Record row = new GenericData.Record(AvroRowCodec.ROW_SCHEMA);
+    row.put("entity_id", stringRowKey);
+    row.put("cells", Lists.newArrayList(cell));
+
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(body, null);
+    new GenericDatumWriter<GenericData.Record>(AvroRowCodec.ROW_SCHEMA).write(row, encoder);
+    encoder.flush();
+
+    // Post.
+    URI resourceURI = UriBuilder.fromResource(RowsResource.class)
+        .build("default", "sample_table");
+    @SuppressWarnings("unchecked")
+    Map<String, List<String>> target = client().resource(resourceURI)
+        .type(AvroRowCodec.AVRO_BINARY).accept(MediaType.APPLICATION_JSON)
+        .post(Map.class, body.toByteArray());
+    assertEquals("/v1/instances/default/tables/sample_table/rows?eid=" + encodedRowKey,
+        target.get("targets").get(0));
+
+    // Retrieve.
+    resourceURI = UriBuilder.fromResource(RowsResource.class)
+        .queryParam("eid", encodedRowKey)
+        .queryParam("cols", "group_family:long_qualifier")
+        .build("default", "sample_table");
+    byte[] response = client().resource(resourceURI).accept(AvroRowCodec.AVRO_BINARY)
+        .get(byte[].class);
+
+    // Check.
+    BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(response, null);
+    GenericRecord returnRow = new GenericDatumReader<GenericRecord>(AvroRowCodec.ROW_SCHEMA)
+        .read(null, decoder);
+    assertTrue(decoder.isEnd());
+    assertTrue(returnRow.get("entity_id").toString().contains("55030"));
+    @SuppressWarnings("unchecked")
+    List<GenericRecord> returnCells = (List<GenericRecord>) returnRow.get("cells");
+    assertEquals(1, returnCells.size());
+    GenericRecord returnCell = returnCells.get(0);
+    assertEquals(5L, returnCell.get("timestamp"));
+    Schema writerSchema = mSchemaTable.getSchema((Long) returnCell.get("writer_schema"));
+    ByteBuffer returnValue = (ByteBuffer) returnCell.get("value");
+    assertEquals(123L, new GenericDatumReader<Object>(writerSchema).read(null,
+        DecoderFactory.get().binaryDecoder(returnValue.array(), null)));
+  }
+
+  @Test
+  public void testShouldWriteAvroRowsAcceptedBeforeMalformedBody() throws Exception {
+    String stringRowKey = getEntityIdString("sample_table", 55031L);
+    String encodedRowKey = URLEncoder.encode(stringRowKey, "UTF-8");
+
+    ByteArrayOutputStream value = new ByteArrayOutputStream();
+    BinaryEncoder valueEncoder = EncoderFactory.get().binaryEncoder(value, null);
+    valueEncoder.writeLong(456L);
+    valueEncoder.flush();
+
+    Schema cellSchema = AvroRowCodec.ROW_SCHEMA.getField("cells").schema().getElementType();
+    GenericData.Record cell = new GenericData.Record(cellSchema);
+    cell.put("family", "group_family");
+    cell.put("qualifier", "long_qualifier");
+    cell.put("timestamp", 5L);
+    cell.put("writer_schema", mSchemaTable.getOrCreateSchemaId(Schema.create(Type.LONG)));
+    cell.put("value", ByteBuffer.wrap(value.toByteArray()));
+    GenericData.Record row = new GenericData.Record(AvroRowCodec.ROW_SCHEMA);
+    row.put("entity_id", stringRowKey);
+    row.put("cells", Lists.newArrayList(cell));
+
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(body, null);
+    new GenericDatumWriter<GenericData.Record>(AvroRowCodec.ROW_SCHEMA).write(row, encoder);
+    // The entity id of the next row is cut short.
+    encoder.writeLong(32L);
+    encoder.flush();
+
+    URI resourceURI = UriBuilder.fromResource(RowsResource.class)
+        .build("default", "sample_table");
+    @SuppressWarnings("unchecked")
+    Map<String, List<Object>> target = client().resource(resourceURI)
+        .type(AvroRowCodec.AVRO_BINARY).accept(MediaType.APPLICATION_JSON)
+        .post(Map.class, body.toByteArray());
+    assertEquals(1, target.get("targets").size());
+    assertEquals(2, target.get("results").size());
+    @SuppressWarnings("unchecked")
+    Map<String, Object> error = (Map<String, Object>) target.get("results").get(1);
+    assertEquals(400, error.get("status"));
+
+    // The row accepted before the malformed one is written.
+    resourceURI = UriBuilder.fromResource(RowsResource.class)
+        .queryParam("eid", encodedRowKey)
+        .queryParam("cols", "group_family:long_qualifier")
+        .build("default", "sample_table");
+    KijiRestRow returnRow = client().resource(resourceURI).get(KijiRestRow.class);
+    assertEquals(456, returnRow.getCells().get("group_family").get("long_qualifier")
+        .get(0).getValue());
+  }
+
   @Test
   public void testShouldPostAndGetCounterCell() throws Exception {
     KijiCell<Long> postCell = fromInputs("info",
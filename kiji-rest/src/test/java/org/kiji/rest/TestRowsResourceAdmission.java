@@ -0,0 +1,98 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest;
+
+import static org.junit.Assert.assertEquals;
+
+import java.net.URI;
+
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.UriBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yammer.dropwizard.testing.ResourceTest;
+import org.junit.After;
+import org.junit.Test;
+
+import org.kiji.rest.config.FresheningConfiguration;
+import org.kiji.rest.config.RowsConfiguration;
+import org.kiji.rest.plugins.StandardKijiRestPlugin;
+import org.kiji.rest.resources.RowsResource;
+import org.kiji.schema.Kiji;
+import org.kiji.schema.layout.KijiTableLayouts;
+import org.kiji.schema.util.InstanceBuilder;
+
+/**
+ * Tests the admission control of the Rows resource.
+ */
+public class TestRowsResourceAdmission extends ResourceTest {
+
+  private static final URI SCAN_URI = UriBuilder
+      .fromResource(RowsResource.class)
+      .build("default", "players");
+
+  private Kiji mFakeKiji = null;
+  private ManagedKijiClient mKijiClient = null;
+
+  /** {@inheritDoc} */
+  @Override
+  protected void setUpResources() throws Exception {
+    mFakeKiji = new InstanceBuilder("default")
+        .withTable(KijiTableLayouts.getLayout("org/kiji/rest/layouts/players_table.json"))
+            .withRow("seleukos", "asia.central")
+                .withFamily("info").withQualifier("fullname").withValue("Seleukos Nikator")
+            .withRow("cassander", "greece")
+                .withFamily("info").withQualifier("fullname").withValue("Cassander")
+        .build();
+
+    StandardKijiRestPlugin.registerSerializers(this.getObjectMapperFactory());
+    mKijiClient = new ManagedKijiClient(mFakeKiji.getURI());
+    mKijiClient.start();
+
+    // A single scan at a time, rejecting the others.
+    final RowsConfiguration rowsConfig = new ObjectMapper()
+        .readValue("{\"max-concurrent-scans\": 1}", RowsConfiguration.class);
+    addResource(new RowsResource(mKijiClient, this.getObjectMapperFactory().build(),
+        new FresheningConfiguration(false, 0), rowsConfig));
+  }
+
+  @After
+  public void afterTest() throws Exception {
+    mFakeKiji.release();
+    mKijiClient.stop();
+  }
+
+  @Test
+  public void testShouldReleaseScansWhichAreNotStreamed() throws Exception {
+    // The rows of HEAD requests are never streamed.
+    for (int i = 0; i < 3; i++) {
+      assertEquals(Status.OK.getStatusCode(),
+          client().resource(SCAN_URI).head().getStatus());
+    }
+    assertEquals(2, client().resource(SCAN_URI).get(String.class).split("\r\n").length);
+  }
+
+  @Test
+  public void testShouldReleaseStreamedScans() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      assertEquals(2, client().resource(SCAN_URI).get(String.class).split("\r\n").length);
+    }
+  }
+}
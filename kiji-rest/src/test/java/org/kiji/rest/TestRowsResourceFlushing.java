@@ -0,0 +1,101 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+
+import javax.ws.rs.core.UriBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yammer.dropwizard.testing.ResourceTest;
+import org.junit.After;
+import org.junit.Test;
+
+import org.kiji.rest.config.FresheningConfiguration;
+import org.kiji.rest.config.RowsConfiguration;
+import org.kiji.rest.plugins.StandardKijiRestPlugin;
+import org.kiji.rest.representations.KijiRestRow;
+import org.kiji.rest.resources.RowsResource;
+import org.kiji.schema.Kiji;
+import org.kiji.schema.layout.KijiTableLayouts;
+import org.kiji.schema.util.InstanceBuilder;
+
+/**
+ * Tests that the rows streamed by the Rows resource do not depend on when the response is
+ * flushed.
+ */
+public class TestRowsResourceFlushing extends ResourceTest {
+
+  private static final URI SCAN_URI = UriBuilder
+      .fromResource(RowsResource.class)
+      .build("default", "players");
+
+  private Kiji mFakeKiji = null;
+  private ManagedKijiClient mKijiClient = null;
+
+  /** {@inheritDoc} */
+  @Override
+  protected void setUpResources() throws Exception {
+    mFakeKiji = new InstanceBuilder("default")
+        .withTable(KijiTableLayouts.getLayout("org/kiji/rest/layouts/players_table.json"))
+            .withRow("seleukos", "asia.central")
+                .withFamily("info").withQualifier("fullname").withValue("Seleukos Nikator")
+            .withRow("cassander", "greece")
+                .withFamily("info").withQualifier("fullname").withValue("Cassander")
+        .build();
+
+    StandardKijiRestPlugin.registerSerializers(this.getObjectMapperFactory());
+    mKijiClient = new ManagedKijiClient(mFakeKiji.getURI());
+    mKijiClient.start();
+
+    // Flushed after every byte, counting the bytes buffered by the JSON generator.
+    final RowsConfiguration rowsConfig = new ObjectMapper()
+        .readValue("{\"flush-rows\": 0, \"flush-bytes\": 1}", RowsConfiguration.class);
+    addResource(new RowsResource(mKijiClient, this.getObjectMapperFactory().build(),
+        new FresheningConfiguration(false, 0), rowsConfig));
+  }
+
+  @After
+  public void afterTest() throws Exception {
+    mFakeKiji.release();
+    mKijiClient.stop();
+  }
+
+  @Test
+  public void testShouldStreamWholeRowsWhenFlushingByBytes() throws Exception {
+    final String out = client().resource(SCAN_URI).get(String.class);
+    assertTrue(out.endsWith("\r\n"));
+    final String[] rows = out.split("\r\n");
+    assertEquals(2, rows.length);
+    final ObjectMapper mapper = this.getObjectMapperFactory().build();
+    int fullnames = 0;
+    for (String row : rows) {
+      final KijiRestRow restRow = mapper.readValue(row, KijiRestRow.class);
+      final String fullname =
+          restRow.getCells().get("info").get("fullname").get(0).getValue().toString();
+      assertTrue("Seleukos Nikator".equals(fullname) || "Cassander".equals(fullname));
+      fullnames++;
+    }
+    assertEquals(2, fullnames);
+  }
+}
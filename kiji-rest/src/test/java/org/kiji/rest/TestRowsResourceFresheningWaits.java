@@ -0,0 +1,327 @@
+/**
+ * (c) Copyright 2014 WibiData, Inc.
+ *
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kiji.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.ws.rs.core.UriBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.UniformInterfaceException;
+import com.yammer.dropwizard.testing.ResourceTest;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
+import com.yammer.metrics.core.MetricName;
+import org.junit.After;
+import org.junit.Test;
+
+import org.kiji.rest.config.FresheningConfiguration;
+import org.kiji.rest.plugins.StandardKijiRestPlugin;
+import org.kiji.rest.representations.KijiRestRow;
+import org.kiji.rest.resources.RowsResource;
+import org.kiji.rest.util.JsonDecoderCache;
+import org.kiji.rest.util.KijiTableReaderPool;
+import org.kiji.rest.util.SchemaIdCache;
+import org.kiji.schema.EntityId;
+import org.kiji.schema.Kiji;
+import org.kiji.schema.KijiCell;
+import org.kiji.schema.KijiColumnName;
+import org.kiji.schema.KijiDataRequest;
+import org.kiji.schema.KijiRowData;
+import org.kiji.schema.KijiSchemaTable;
+import org.kiji.schema.KijiTable;
+import org.kiji.schema.KijiTableWriter;
+import org.kiji.schema.layout.KijiTableLayouts;
+import org.kiji.schema.util.InstanceBuilder;
+import org.kiji.scoring.FreshKijiTableReader;
+import org.kiji.scoring.FreshenerContext;
+import org.kiji.scoring.KijiFreshnessManager;
+import org.kiji.scoring.ScoreFunction;
+import org.kiji.scoring.lib.AlwaysFreshen;
+
+/**
+ * Tests that at most max-waiting requests wait for freshening at once. Uses the table of
+ * {@link TestRowsResourceFreshening}, whose freshener sums columns a and b into column c once
+ * released by the test.
+ */
+public class TestRowsResourceFresheningWaits extends ResourceTest {
+  private static final String INSTANCE = "fresh";
+  private static final String TABLE = "py_table";
+  private static final String FAMILY = "trifam";
+  private static final String A = "a";
+  private static final String B = "b";
+  private static final String C = "c";
+
+  /** Time in ms requests wait for freshening at most. */
+  private static final long TIMEOUT = 10000;
+
+  /** Counted down by the freshener when it starts. */
+  private static volatile CountDownLatch mStarted;
+
+  /** Awaited by the freshener before it computes the fresh value. */
+  private static volatile CountDownLatch mRelease;
+
+  private Kiji mKiji;
+  private KijiTable mTable;
+  private KijiTableWriter mWriter;
+  private KijiFreshnessManager mManager;
+  private ManagedKijiClient mKijiClient;
+
+  /** Fresh reader returned to the resource instead of the reader of the client, if set. */
+  private final AtomicReference<FreshKijiTableReader> mFreshReader =
+      new AtomicReference<FreshKijiTableReader>();
+
+  /** {@inheritDoc} */
+  @Override
+  protected void setUpResources() throws Exception {
+    mStarted = new CountDownLatch(1);
+    mRelease = new CountDownLatch(1);
+    mKiji = new InstanceBuilder(INSTANCE)
+        .withTable(TABLE, KijiTableLayouts.getTableLayout("org/kiji/rest/layouts/py_table.json"))
+        .build();
+    mTable = mKiji.openTable(TABLE);
+
+    mManager = KijiFreshnessManager.create(mKiji);
+    mManager.registerFreshener(
+        TABLE,
+        new KijiColumnName(FAMILY, C),
+        new AlwaysFreshen(),
+        new ReleasedSum(),
+        ImmutableMap.<String, String>of(),
+        true,
+        false
+    );
+
+    mWriter = mTable.getWriterFactory().openTableWriter();
+
+    StandardKijiRestPlugin.registerSerializers(this.getObjectMapperFactory());
+    mKijiClient = new ManagedKijiClient(mKiji.getURI());
+    mKijiClient.start();
+
+    final FresheningConfiguration freshenConfig = new ObjectMapper().readValue(
+        "{\"freshen\": true, \"timeout\": " + TIMEOUT + ", \"max-waiting\": 1}",
+        FresheningConfiguration.class);
+    addResource(new RowsResource(new FreshReaderClient(), this.getObjectMapperFactory().build(),
+        freshenConfig));
+  }
+
+  @After
+  public void cleanUpResources() throws Exception {
+    mRelease.countDown();
+    mWriter.close();
+    mTable.release();
+    mKiji.release();
+    mManager.close();
+    mKijiClient.stop();
+  }
+
+  /**
+   * Returns the number of freshened requests which did not wait.
+   *
+   * @return the count of the skipped-freshening-waits metric.
+   */
+  private static long getSkippedWaits() {
+    final Counter skipped = (Counter) Metrics.defaultRegistry().allMetrics()
+        .get(new MetricName(RowsResource.class, "skipped-freshening-waits"));
+    return skipped.count();
+  }
+
+  /**
+   * Writes the columns a and b of a row.
+   *
+   * @param row name of the triangle.
+   * @return the URI of the column c of the row.
+   * @throws Exception if the row can not be written.
+   */
+  private URI writeRow(String row) throws Exception {
+    final EntityId eid = mTable.getEntityId(row);
+    mWriter.put(eid, FAMILY, A, 3L);
+    mWriter.put(eid, FAMILY, B, 4L);
+    return UriBuilder
+        .fromResource(RowsResource.class)
+        .queryParam("eid", URLEncoder.encode(eid.toShellString(), "UTF-8"))
+        .queryParam("cols", FAMILY + ":" + C)
+        .build(INSTANCE, TABLE);
+  }
+
+  @Test
+  public void testShouldNotWaitBeyondMaxWaiting() throws Exception {
+    final URI waitingUri = writeRow("waiting");
+    final URI skippingUri = writeRow("skipping");
+    final long skippedWaits = getSkippedWaits();
+
+    final AtomicReference<KijiRestRow> waitingRow = new AtomicReference<KijiRestRow>();
+    final Thread waiting = new Thread() {
+      @Override
+      public void run() {
+        waitingRow.set(client().resource(waitingUri).get(KijiRestRow.class));
+      }
+    };
+    waiting.start();
+    assertTrue(mStarted.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+    // The only wait is taken: the row is returned without waiting for freshening.
+    final long start = System.currentTimeMillis();
+    final ClientResponse skipped = client().resource(skippingUri).get(ClientResponse.class);
+    assertTrue(System.currentTimeMillis() - start < TIMEOUT / 2);
+    assertEquals("true",
+        skipped.getHeaders().getFirst(RowsResource.FRESHENING_SKIPPED_HEADER));
+    assertEquals(0, skipped.getEntity(KijiRestRow.class).getCells().size());
+    assertEquals(skippedWaits + 1, getSkippedWaits());
+
+    mRelease.countDown();
+    waiting.join(TIMEOUT);
+    assertEquals(7, waitingRow.get().getCells().get(FAMILY).get(C).get(0).getValue());
+
+    // The wait is free again.
+    final ClientResponse freshened = client().resource(skippingUri).get(ClientResponse.class);
+    assertNull(freshened.getHeaders().getFirst(RowsResource.FRESHENING_SKIPPED_HEADER));
+    assertEquals(7, freshened.getEntity(KijiRestRow.class)
+        .getCells().get(FAMILY).get(C).get(0).getValue());
+    assertEquals(skippedWaits + 1, getSkippedWaits());
+  }
+
+  @Test
+  public void testShouldFreeWaitsOfFailedRequests() throws Exception {
+    final URI uri = writeRow("failing");
+    final long skippedWaits = getSkippedWaits();
+    mRelease.countDown();
+
+    // Reading from a closed reader fails.
+    final FreshKijiTableReader closedReader = FreshKijiTableReader.Builder.create()
+        .withTable(mTable)
+        .build();
+    closedReader.close();
+    mFreshReader.set(closedReader);
+    for (int i = 0; i < 2; i++) {
+      try {
+        client().resource(uri).get(KijiRestRow.class);
+        fail("GET succeeded when it should have failed because of a closed reader.");
+      } catch (UniformInterfaceException e) {
+        assertEquals(500, e.getResponse().getStatus());
+      }
+    }
+
+    mFreshReader.set(null);
+    assertEquals(7, client().resource(uri).get(KijiRestRow.class)
+        .getCells().get(FAMILY).get(C).get(0).getValue());
+    assertEquals(skippedWaits, getSkippedWaits());
+  }
+
+  /** Client returning the fresh reader set by the test, if any. */
+  private final class FreshReaderClient implements KijiClient {
+    /** {@inheritDoc} */
+    @Override
+    public Kiji getKiji(String instance) {
+      return mKijiClient.getKiji(instance);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Collection<String> getInstances() {
+      return mKijiClient.getInstances();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public KijiTable getKijiTable(String instance, String table) {
+      return mKijiClient.getKijiTable(instance, table);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public KijiSchemaTable getKijiSchemaTable(String instance) {
+      return mKijiClient.getKijiSchemaTable(instance);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public KijiTableReaderPool getKijiTableReaderPool(String instance, String table) {
+      return mKijiClient.getKijiTableReaderPool(instance, table);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public SchemaIdCache getSchemaIdCache(String instance) {
+      return mKijiClient.getSchemaIdCache(instance);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public JsonDecoderCache getJsonDecoderCache(String instance) {
+      return mKijiClient.getJsonDecoderCache(instance);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public FreshKijiTableReader getFreshKijiTableReader(String instance, String table) {
+      final FreshKijiTableReader reader = mFreshReader.get();
+      return (null != reader) ? reader : mKijiClient.getFreshKijiTableReader(instance, table);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void invalidateTable(String instance, String table) {
+      mKijiClient.invalidateTable(instance, table);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void invalidateInstance(String instance) {
+      mKijiClient.invalidateInstance(instance);
+    }
+  }
+
+  /** Sums columns a and b, once released by the test. */
+  private static final class ReleasedSum extends ScoreFunction<Long> {
+    @Override
+    public KijiDataRequest getDataRequest(FreshenerContext context) throws IOException {
+      return KijiDataRequest.create(FAMILY);
+    }
+
+    @Override
+    public TimestampedValue<Long> score(KijiRowData dataToScore, FreshenerContext context)
+        throws IOException {
+      mStarted.countDown();
+      try {
+        mRelease.await(TIMEOUT, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      }
+      KijiCell<Long> cellA = dataToScore.getMostRecentCell(FAMILY, A);
+      KijiCell<Long> cellB = dataToScore.getMostRecentCell(FAMILY, B);
+      return TimestampedValue.create(Math.max(cellA.getTimestamp(), cellB.getTimestamp()),
+          cellA.getData() + cellB.getData());
+    }
+  }
+}